@@ -0,0 +1,84 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Jackson serialization of the models, with an ObjectMapper configured the way
+ * Spring MVC configures the one used by its JSON message converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	private static final String USER_ID = "bench-json";
+
+	private ObjectMapper objectMapper;
+
+	private Category category;
+
+	private Reminder reminder;
+
+	private Note note;
+
+	private List<Note> notes;
+
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		category = new Category(1, "Benchmark", "Category used by the benchmarks", new Date(), USER_ID, null);
+		reminder = new Reminder(1, "Benchmark", "Reminder used by the benchmarks", "Email", USER_ID, null,
+				new Date());
+		note = KeepNoteContext.note(USER_ID, 1);
+		note.setCategory(category);
+		note.setReminder(reminder);
+		notes = KeepNoteContext.notes(USER_ID, 100);
+		for (Note listed : notes) {
+			listed.setCategory(category);
+			listed.setReminder(reminder);
+		}
+	}
+
+	@Benchmark
+	public byte[] category() throws Exception {
+		return objectMapper.writeValueAsBytes(category);
+	}
+
+	@Benchmark
+	public byte[] reminder() throws Exception {
+		return objectMapper.writeValueAsBytes(reminder);
+	}
+
+	@Benchmark
+	public byte[] note() throws Exception {
+		return objectMapper.writeValueAsBytes(note);
+	}
+
+	@Benchmark
+	public byte[] noteList() throws Exception {
+		return objectMapper.writeValueAsBytes(notes);
+	}
+
+}
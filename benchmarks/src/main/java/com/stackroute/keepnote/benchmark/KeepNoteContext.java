@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Starts the complete application context (controllers, aspect, services, DAOs,
+ * Hibernate and the connection pool) against an in-memory H2 database running in
+ * MySQL mode. The datasource settings are passed as system properties, which take
+ * precedence over keepnote.properties. Every benchmark fork gets a fresh database.
+ */
+final class KeepNoteContext {
+
+	private KeepNoteContext() {
+	}
+
+	static AnnotationConfigWebApplicationContext start() {
+		System.setProperty("keepnote.datasource.driver-class-name", "org.h2.Driver");
+		System.setProperty("keepnote.datasource.url", "jdbc:h2:mem:keepnote;MODE=MySQL;DB_CLOSE_DELAY=-1");
+		System.setProperty("keepnote.datasource.username", "sa");
+		System.setProperty("keepnote.datasource.password", "");
+		System.setProperty("keepnote.search.rebuild-on-startup", "false");
+
+		AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+		context.setServletContext(new MockServletContext());
+		context.register(ApplicationContextConfig.class);
+		context.refresh();
+		return context;
+	}
+
+	static Note note(String userId, int index) {
+		return new Note(0, "Benchmark note " + index,
+				"Content of benchmark note " + index + " written to measure the note hot paths", "Active",
+				new Date(), null, null, userId);
+	}
+
+	static List<Note> notes(String userId, int count) {
+		List<Note> notes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			notes.add(note(userId, i));
+		}
+		return notes;
+	}
+
+}
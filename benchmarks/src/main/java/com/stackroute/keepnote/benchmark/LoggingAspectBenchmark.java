@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.Advised;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.dao.NoteDAO;
+
+/*
+ * Controller latency with and without LoggingAspect. The "advised" benchmarks call
+ * the NoteController bean, which is the AOP proxy running the four logging advices;
+ * the "plain" benchmarks call the same controller instance behind the proxy. The
+ * difference is the cost of the aspect, for a cheap in-memory handler (search) and
+ * for a handler returning noteCount notes from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class LoggingAspectBenchmark {
+
+	@Param({ "10", "1000" })
+	public int noteCount;
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private NoteController advised;
+
+	private NoteController plain;
+
+	private MockHttpSession session;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = KeepNoteContext.start();
+		String userId = "bench-aspect-" + noteCount;
+		context.getBean(NoteDAO.class).createNotes(KeepNoteContext.notes(userId, noteCount));
+		advised = context.getBean(NoteController.class);
+		plain = (NoteController) ((Advised) advised).getTargetSource().getTarget();
+		session = new MockHttpSession();
+		session.setAttribute(NoteController.LOGGEDIN_USERID, userId);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ResponseEntity<?> getNotesAdvised() {
+		return advised.getNotes(null, null, session).join();
+	}
+
+	@Benchmark
+	public ResponseEntity<?> getNotesPlain() {
+		return plain.getNotes(null, null, session).join();
+	}
+
+	@Benchmark
+	public ResponseEntity<?> searchNotesAdvised() {
+		return advised.searchNotes("benchmark", 20, session).join();
+	}
+
+	@Benchmark
+	public ResponseEntity<?> searchNotesPlain() {
+		return plain.searchNotes("benchmark", 20, session).join();
+	}
+
+}
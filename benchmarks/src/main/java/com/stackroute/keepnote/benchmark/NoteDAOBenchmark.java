@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Cost of NoteDAOImpl.getAllNotesByUserId as the number of notes returned grows,
+ * on its own read-only transaction and joined to a read-write one. Run with
+ * "-prof gc" to compare the bytes allocated per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class NoteDAOBenchmark {
+
+	private static final int INSERT_CHUNK_SIZE = 1000;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int resultSize;
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private NoteDAO noteDAO;
+
+	private String userId;
+
+	private TransactionTemplate readWriteTransaction;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = KeepNoteContext.start();
+		noteDAO = context.getBean(NoteDAO.class);
+		readWriteTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		userId = "bench-dao-" + resultSize;
+		for (int inserted = 0; inserted < resultSize; inserted += INSERT_CHUNK_SIZE) {
+			noteDAO.createNotes(KeepNoteContext.notes(userId, Math.min(INSERT_CHUNK_SIZE, resultSize - inserted)));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Note> getAllNotesByUserId() {
+		return noteDAO.getAllNotesByUserId(userId);
+	}
+
+	@Benchmark
+	public List<Note> getAllNotesByUserIdInReadWriteTransaction() {
+		return readWriteTransaction.execute(status -> noteDAO.getAllNotesByUserId(userId));
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.service.NoteService;
+
+/*
+ * Latency of a single note insert and update through NoteServiceImpl, including
+ * the transaction, the Hibernate flush and the search index maintenance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class NoteServiceBenchmark {
+
+	private static final String USER_ID = "bench-service";
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private NoteService noteService;
+
+	private Note updatable;
+
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = KeepNoteContext.start();
+		noteService = context.getBean(NoteService.class);
+		updatable = KeepNoteContext.note(USER_ID, -1);
+		noteService.createNote(updatable);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public boolean createNote() throws Exception {
+		return noteService.createNote(KeepNoteContext.note(USER_ID, counter++));
+	}
+
+	@Benchmark
+	public Note updateNote() throws Exception {
+		updatable.setNoteContent("Updated content " + counter++);
+		return noteService.updateNote(updatable, updatable.getNoteId());
+	}
+
+}
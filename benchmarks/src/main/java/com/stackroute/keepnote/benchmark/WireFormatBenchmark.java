@@ -0,0 +1,120 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.web.StreamingJacksonConverter;
+
+/*
+ * JSON against the Smile and CBOR binary formats, through the converters the
+ * application uses: writing a list of 100 notes (GET /note) and reading one note
+ * (the @RequestBody of POST and PUT /note). contentLength is the length of the
+ * note content, from a short note to a long one. The size of the encoded list is
+ * logged when each trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+	private static final String USER_ID = "bench-wire";
+
+	private Logger LOGGER = LoggerFactory.getLogger(WireFormatBenchmark.class);
+
+	@Param({ "json", "smile", "cbor" })
+	public String format;
+
+	@Param({ "200", "2000", "20000" })
+	public int contentLength;
+
+	private StreamingJacksonConverter converter;
+
+	private MediaType mediaType;
+
+	private List<Note> notes;
+
+	private byte[] encodedNote;
+
+	@Setup
+	public void setUp() throws Exception {
+		switch (format) {
+		case "smile":
+			converter = StreamingJacksonConverter.smile();
+			break;
+		case "cbor":
+			converter = StreamingJacksonConverter.cbor();
+			break;
+		default:
+			converter = StreamingJacksonConverter.json();
+		}
+		mediaType = converter.getSupportedMediaTypes().get(0);
+		Category category = new Category(1, "Benchmark", "Category used by the benchmarks", new Date(), USER_ID,
+				null);
+		Reminder reminder = new Reminder(1, "Benchmark", "Reminder used by the benchmarks", "Email", USER_ID, null,
+				new Date());
+		notes = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			notes.add(new Note(i, "Benchmark note " + i, content(i), "Active", new Date(), category, reminder,
+					USER_ID));
+		}
+		encodedNote = converter.getObjectMapper().writeValueAsBytes(notes.get(0));
+		LOGGER.info("WireFormatBenchmark : setUp : {} : {} : list of 100 notes : {} bytes", format, contentLength,
+				converter.getObjectMapper().writeValueAsBytes(notes).length);
+	}
+
+	/*
+	 * Text of the given length made of words, as notes are, rather than of one
+	 * repeated character that any format would compress away.
+	 */
+	private String content(int seed) {
+		List<String> words = Arrays.asList("meeting", "notes", "follow", "up", "with", "the", "team", "about",
+				"release", "plan", "and", "budget", "review", "tomorrow", "morning");
+		StringBuilder content = new StringBuilder(contentLength + 16);
+		for (int i = seed; content.length() < contentLength; i++) {
+			content.append(words.get(i % words.size())).append(i % 7 == 0 ? ". " : " ");
+		}
+		content.setLength(contentLength);
+		return content.toString();
+	}
+
+	@Benchmark
+	public byte[] writeNoteList() throws Exception {
+		MockHttpOutputMessage message = new MockHttpOutputMessage();
+		converter.write(notes, List.class, mediaType, message);
+		return message.getBodyAsBytes();
+	}
+
+	@Benchmark
+	public Object readNote() throws Exception {
+		MockHttpInputMessage message = new MockHttpInputMessage(encodedNote);
+		message.getHeaders().setContentType(mediaType);
+		return converter.read(Note.class, null, message);
+	}
+
+}
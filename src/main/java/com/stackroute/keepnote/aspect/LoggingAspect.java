@@ -1,5 +1,10 @@
 package com.stackroute.keepnote.aspect;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.After;
 import org.aspectj.lang.annotation.AfterReturning;
@@ -8,6 +13,8 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
 /* Annotate this class with @Aspect and @Component */
@@ -19,43 +26,113 @@ public class LoggingAspect {
 	 * Write loggers for each of the methods of controller, any particular method
 	 * will have all the four aspectJ annotation
 	 * (@Before, @After, @AfterReturning, @AfterThrowing).
+	 *
+	 * The advices run on every request, so each of them logs a single parameterized
+	 * message behind a level check: nothing is formatted unless the line is
+	 * actually written. Returned values are only rendered for one call out of
+	 * keepnote.logging.result-sample-rate, lazily and capped at
+	 * keepnote.logging.result-max-chars, so large note lists are never turned into
+	 * one huge string. The appenders themselves are asynchronous (see logback.xml).
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(LoggingAspect.class);
 
+	@Value("${keepnote.logging.result-sample-rate:100}")
+	private int resultSampleRate = 100;
+
+	@Value("${keepnote.logging.result-max-chars:256}")
+	private int resultMaxChars = 256;
+
+	private final AtomicLong returnCount = new AtomicLong();
+
 	@Before("execution(* com.stackroute.keepnote.controller..*(..))")
 	public void logBefore(JoinPoint joinPoint) {
 
-		LOGGER.info("logBefore() is running!");
-		LOGGER.info("LoggingAspect : " + joinPoint.getSignature().getName());
-		LOGGER.info("******");
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("LoggingAspect : before : {}", joinPoint.getSignature().getName());
+		}
 	}
 
 	@After("execution(* com.stackroute.keepnote.controller..*(..))")
 	public void logAfter(JoinPoint joinPoint) {
 
-		LOGGER.info("logAfter() is running!");
-		LOGGER.info("LoggingAspect : " + joinPoint.getSignature().getName());
-		LOGGER.info("******");
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("LoggingAspect : after : {}", joinPoint.getSignature().getName());
+		}
 
 	}
 
 	@AfterReturning(pointcut = "execution(* com.stackroute.keepnote.controller..*(..))", returning = "result")
 	public void logAfterReturning(JoinPoint joinPoint, Object result) {
 
-		LOGGER.info("logAfterReturning() is running!");
-		LOGGER.info("LoggingAspect : " + joinPoint.getSignature().getName());
-		LOGGER.info("Method returned value is : " + result);
-		LOGGER.info("******");
+		if (LOGGER.isInfoEnabled() && isSampled()) {
+			LOGGER.info("LoggingAspect : afterReturning : {} : {}", joinPoint.getSignature().getName(),
+					new CappedRendering(result, resultMaxChars));
+		}
 
 	}
 
 	@AfterThrowing(pointcut = "execution(* com.stackroute.keepnote.controller..*(..))", throwing = "error")
 	public void logAfterThrowing(JoinPoint joinPoint, Throwable error) {
 
-		LOGGER.info("logAfterThrowing() is running!");
-		LOGGER.info("LoggingAspect : " + joinPoint.getSignature().getName());
-		LOGGER.info("Exception : " + error);
-		LOGGER.info("******");
+		LOGGER.warn("LoggingAspect : afterThrowing : {} : {}", joinPoint.getSignature().getName(), error.toString());
+
+	}
+
+	private boolean isSampled() {
+		return resultSampleRate <= 1 || returnCount.getAndIncrement() % resultSampleRate == 0;
+	}
+
+	/*
+	 * Renders a returned value only when the logger formats the message, and stops
+	 * after maxChars characters. Collections, also as ResponseEntity body, are
+	 * rendered as their size followed by as many elements as fit. A handler that
+	 * returned a CompletableFuture is rendered by its result if it has one yet.
+	 */
+	static final class CappedRendering {
+
+		private final Object value;
+
+		private final int maxChars;
+
+		CappedRendering(Object value, int maxChars) {
+			this.value = value;
+			this.maxChars = maxChars;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(Math.min(maxChars, 256) + 16);
+			render(value, builder);
+			if (builder.length() > maxChars) {
+				builder.setLength(maxChars);
+				builder.append("...");
+			}
+			return builder.toString();
+		}
+
+		private void render(Object object, StringBuilder builder) {
+			if (object instanceof CompletableFuture && ((CompletableFuture<?>) object).isDone()
+					&& !((CompletableFuture<?>) object).isCompletedExceptionally()) {
+				render(((CompletableFuture<?>) object).getNow(null), builder);
+			} else if (object instanceof ResponseEntity) {
+				ResponseEntity<?> entity = (ResponseEntity<?>) object;
+				builder.append(entity.getStatusCode()).append(' ');
+				render(entity.getBody(), builder);
+			} else if (object instanceof Collection) {
+				Collection<?> collection = (Collection<?>) object;
+				builder.append("size=").append(collection.size()).append(" [");
+				Iterator<?> elements = collection.iterator();
+				while (elements.hasNext() && builder.length() <= maxChars) {
+					builder.append(elements.next());
+					if (elements.hasNext()) {
+						builder.append(", ");
+					}
+				}
+				builder.append(']');
+			} else {
+				builder.append(object);
+			}
+		}
 
 	}
 }
@@ -1,22 +1,56 @@
 package com.stackroute.keepnote.config;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.dbcp.BasicDataSource;
+import org.flywaydb.core.Flyway;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.datasource.ReplicaRoutingDataSource;
+import com.stackroute.keepnote.datasource.SchemaIndexCheck;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.web.StreamingJacksonConverter;
+import com.stackroute.keepnote.web.VaryAcceptInterceptor;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 /*This class will contain the application-context for the application. 
  * Define the following annotations:
@@ -29,6 +63,8 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
  * @EnableTransactionManagement - Enables Spring's annotation-driven transaction management capability.
  *                  
  * @EnableAspectJAutoProxy - This spring aop annotation is used to enable @AspectJ support with Java @Configuration  
+ * @PropertySource - loads keepnote.properties into the Environment; system properties and
+ * 					environment variables take precedence over the values in the file.
  * */
 
 @Configuration
@@ -37,49 +73,247 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 @EnableWebMvc
 @EnableTransactionManagement
 @EnableAspectJAutoProxy
-public class ApplicationContextConfig {
+@PropertySource("classpath:keepnote.properties")
+public class ApplicationContextConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private Environment environment;
 
 	/*
 	 * Define the bean for DataSource. In our application, we are using MySQL as the
 	 * dataSource. To create the DataSource bean, we need to know: 1. Driver class
 	 * name 2. Database URL 3. UserName 4. Password
+	 * 
+	 * All of them, as well as the pool implementation and its sizing, are read from
+	 * keepnote.properties (keepnote.datasource.*). HikariCP is used by default; the
+	 * previous commons-dbcp pool can still be selected with
+	 * keepnote.datasource.pool=dbcp.
+	 * 
+	 * Read-only transactions are routed to the read replicas listed in
+	 * keepnote.datasource.replicas (see routingDataSource). The connection is only
+	 * fetched at the first statement, once the transaction is known to be read-only.
 	 */
 	
 	@Bean(name="dataSource")
 	public DataSource dataSource() {
+		return new LazyConnectionDataSourceProxy(routingDataSource());
+	}
+
+	/*
+	 * The primary pool plus one pool per replica. A replica named "r1" reads
+	 * keepnote.datasource.replica.r1.url, and .username and .password, which default
+	 * to those of the primary. With no replica configured every connection comes
+	 * from the primary.
+	 */
+	@Bean(name="routingDataSource")
+	public ReplicaRoutingDataSource routingDataSource() {
+		String username = environment.getProperty("keepnote.datasource.username");
+		String password = environment.getProperty("keepnote.datasource.password");
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		for (String name : environment.getProperty("keepnote.datasource.replicas", String[].class, new String[0])) {
+			if (!name.trim().isEmpty()) {
+				String prefix = "keepnote.datasource.replica." + name.trim() + ".";
+				replicas.put(name.trim(), pooledDataSource("keepnote-" + name.trim(),
+						environment.getRequiredProperty(prefix + "url"),
+						environment.getProperty(prefix + "username", username),
+						environment.getProperty(prefix + "password", password)));
+			}
+		}
+		DataSource primary = pooledDataSource("keepnote-primary",
+				environment.getProperty("keepnote.datasource.url"), username, password);
+		ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas, metricRegistry());
+		routingDataSource.setLagQuery(environment.getProperty("keepnote.datasource.replica-lag-query"));
+		routingDataSource.setMaxLagSeconds(environment.getProperty("keepnote.datasource.replica-max-lag-seconds", Long.class, 5L));
+		routingDataSource.setLagCheckIntervalMs(environment.getProperty("keepnote.datasource.replica-lag-check-interval-ms", Long.class, 2000L));
+		return routingDataSource;
+	}
+
+	private DataSource pooledDataSource(String poolName, String url, String username, String password) {
+		String pool = environment.getProperty("keepnote.datasource.pool", "hikari");
+		if ("dbcp".equalsIgnoreCase(pool)) {
+			return dbcpDataSource(url, username, password);
+		}
+		return hikariDataSource(poolName, url, username, password);
+	}
+
+	/*
+	 * HikariCP hands out connections without taking a lock on the borrow path,
+	 * validates them with Connection.isValid() before use, and publishes its
+	 * wait/usage histograms and active/idle/pending gauges into the metric registry.
+	 */
+	private DataSource hikariDataSource(String poolName, String url, String username, String password) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName(poolName);
+		config.setDriverClassName(environment.getProperty("keepnote.datasource.driver-class-name"));
+		config.setJdbcUrl(url);
+		config.setUsername(username);
+		config.setPassword(password);
+		config.setMaximumPoolSize(environment.getProperty("keepnote.datasource.maximum-pool-size", Integer.class, 20));
+		config.setMinimumIdle(environment.getProperty("keepnote.datasource.minimum-idle", Integer.class, 5));
+		config.setConnectionTimeout(environment.getProperty("keepnote.datasource.connection-timeout-ms", Long.class, 3000L));
+		config.setValidationTimeout(environment.getProperty("keepnote.datasource.validation-timeout-ms", Long.class, 1000L));
+		config.setIdleTimeout(environment.getProperty("keepnote.datasource.idle-timeout-ms", Long.class, 600000L));
+		config.setMaxLifetime(environment.getProperty("keepnote.datasource.max-lifetime-ms", Long.class, 1800000L));
+		config.setLeakDetectionThreshold(environment.getProperty("keepnote.datasource.leak-detection-threshold-ms", Long.class, 0L));
+		config.addDataSourceProperty("cachePrepStmts", "true");
+		config.addDataSourceProperty("prepStmtCacheSize", environment.getProperty("keepnote.datasource.prepared-statement-cache-size", "250"));
+		config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+		config.addDataSourceProperty("useServerPrepStmts", "true");
+		config.setMetricRegistry(metricRegistry());
+		config.setRegisterMbeans(true);
+		return new HikariDataSource(config);
+	}
+
+	private DataSource dbcpDataSource(String url, String username, String password) {
 		BasicDataSource dataSource = new BasicDataSource();
-//		dataSource.setDriverClassName("com.mysql.jdbc.Driver");
-//		dataSource.setUsername("root");
-//		dataSource.setPassword("root");
-//		dataSource.setUrl("jdbc:mysql://localhost:3306/keepnotes");
-	  dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-	  dataSource.setUrl("jdbc:mysql://" + System.getenv("MYSQL_HOST") + ":3306/" +
-			  System.getenv("MYSQL_DATABASE")
-	  			+"?verifyServerCertificate=false&useSSL=false&requireSSL=false");
-	  dataSource.setUsername(System.getenv("MYSQL_USER"));
-	  dataSource.setPassword(System.getenv("MYSQL_PASSWORD"));
+		dataSource.setDriverClassName(environment.getProperty("keepnote.datasource.driver-class-name"));
+		dataSource.setUrl(url);
+		dataSource.setUsername(username);
+		dataSource.setPassword(password);
+		dataSource.setMaxActive(environment.getProperty("keepnote.datasource.maximum-pool-size", Integer.class, 20));
+		dataSource.setMaxIdle(environment.getProperty("keepnote.datasource.maximum-pool-size", Integer.class, 20));
+		dataSource.setMinIdle(environment.getProperty("keepnote.datasource.minimum-idle", Integer.class, 5));
+		dataSource.setMaxWait(environment.getProperty("keepnote.datasource.connection-timeout-ms", Long.class, 3000L));
+		dataSource.setValidationQuery("SELECT 1");
+		dataSource.setTestOnBorrow(true);
 		return dataSource;
 	}
 
 	/*
-	 * Use this configuration while submitting solution in hobbes and CI
-//	 * dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-//	 * dataSource.setUrl("jdbc:mysql://" + System.getenv("MYSQL_HOST") + ":3306/" +
-//	 * System.getenv("MYSQL_DATABASE")
-//	 * +"?verifyServerCertificate=false&useSSL=false&requireSSL=false");
-//	 * dataSource.setUsername(System.getenv("MYSQL_USER"));
-//	 * dataSource.setPassword(System.getenv("MYSQL_PASSWORD"));
+	 * Registry shared by the connection pool and the application components that
+	 * record metrics. Everything in it is exported over JMX.
+	 */
+	@Bean(name="metricRegistry")
+	public MetricRegistry metricRegistry() {
+		return new MetricRegistry();
+	}
+
+	@Bean(name="jmxReporter", initMethod="start", destroyMethod="stop")
+	public JmxReporter jmxReporter() {
+		return JmxReporter.forRegistry(metricRegistry())
+				.inDomain(environment.getProperty("keepnote.metrics.jmx-domain", "keepnote"))
+				.build();
+	}
+
+	/*
+	 * Dedicated pool for password verification (see UserServiceImpl.validateUser).
+	 * It has a fixed number of threads, one per core unless
+	 * keepnote.auth.verification-threads says otherwise, and a bounded queue:
+	 * submissions beyond keepnote.auth.verification-queue-capacity are rejected
+	 * instead of waiting. The queue depth is published as login.queue-depth.
+	 */
+	@Bean(name="passwordVerificationExecutor", destroyMethod="shutdownNow")
+	public ThreadPoolExecutor passwordVerificationExecutor() {
+		int threads = environment.getProperty("keepnote.auth.verification-threads", Integer.class, 0);
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		int queueCapacity = environment.getProperty("keepnote.auth.verification-queue-capacity", Integer.class, 64);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("keepnote-login-"),
+				new ThreadPoolExecutor.AbortPolicy());
+		metricRegistry().register(MetricRegistry.name("login", "queue-depth"),
+				(Gauge<Integer>) () -> executor.getQueue().size());
+		return executor;
+	}
+
+	/*
+	 * Pool the controller handlers run on when keepnote.async.enabled is set (see
+	 * HandlerExecutor). Most of a handler's time is spent waiting for the database,
+	 * so the pool is sized on the connection pool rather than on the cores. The
+	 * queue holds the requests waiting for a thread without holding a container
+	 * thread each; beyond keepnote.async.queue-capacity they are rejected. The
+	 * queue depth is published as handlers.queue-depth.
+	 */
+	@Bean(name="handlerThreadPool", destroyMethod="shutdown")
+	public ThreadPoolExecutor handlerThreadPool() {
+		int threads = environment.getProperty("keepnote.async.threads", Integer.class, 40);
+		int queueCapacity = environment.getProperty("keepnote.async.queue-capacity", Integer.class, 1000);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("keepnote-handler-"),
+				new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		metricRegistry().register(MetricRegistry.name("handlers", "queue-depth"),
+				(Gauge<Integer>) () -> executor.getQueue().size());
+		return executor;
+	}
+
+	/*
+	 * A handler whose future is not complete after keepnote.async.timeout-ms is
+	 * answered with 503. The bodies of streamed responses are written on the
+	 * handlerThreadPool too, rather than on a new thread each.
+	 */
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setDefaultTimeout(environment.getProperty("keepnote.async.timeout-ms", Long.class, 30000L));
+		configurer.setTaskExecutor(new ConcurrentTaskExecutor(handlerThreadPool()));
+	}
+
+	/*
+	 * The controllers choose the format of their responses from Accept, which
+	 * VaryAcceptInterceptor tells caches.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new VaryAcceptInterceptor());
+	}
+
+	/*
+	 * Brings the schema up to date with the migrations in db/migration before the
+	 * SessionFactory validates its mapping against it. A database created by
+	 * hbm2ddl before the migrations existed has no migration history; it is
+	 * baselined at version 1 (the schema hbm2ddl created) and only gets the later
+	 * migrations; V7 creates the note id sequence that such a database lacks.
+	 * keepnote.schema.migrate=false leaves the schema alone.
+	 */
+	@Bean(name="flyway")
+	public Flyway flyway() {
+		Flyway flyway = flyway(dataSource());
+		if (environment.getProperty("keepnote.schema.migrate", Boolean.class, true)) {
+			flyway.migrate();
+		}
+		return flyway;
+	}
+
+	public static Flyway flyway(DataSource dataSource) {
+		return Flyway.configure()
+				.dataSource(dataSource)
+				.locations("classpath:db/migration")
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load();
+	}
+
+	/*
+	 * Reports the indexes declared on the entities that the database lacks.
 	 */
+	@Bean(name="schemaIndexCheck")
+	@DependsOn("flyway")
+	public SchemaIndexCheck schemaIndexCheck() {
+		return new SchemaIndexCheck(dataSource(), metricRegistry(), Note.class, Category.class, Reminder.class,
+				User.class, ChangeLogEntry.class);
+	}
 
 	/*
 	 * create a getter for Hibernate properties here we have to mention 1. show_sql
-	 * 2. Dialect 3. hbm2ddl
+	 * 2. Dialect 3. hbm2ddl 4. JDBC batching 5. second-level and query cache
 	 */
 	public Properties hibernateProperties() {
 		Properties properties = new Properties();
 		properties.put("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
-		properties.put("hibernate.show_sql", true);
-		properties.put("hibernate.hbm2ddl.auto", "update");
+		properties.put("hibernate.show_sql", environment.getProperty("keepnote.hibernate.show-sql", Boolean.class, false));
+		properties.put("hibernate.hbm2ddl.auto", environment.getProperty("keepnote.hibernate.hbm2ddl-auto", "validate"));
+		properties.put("hibernate.jdbc.batch_size", environment.getProperty("keepnote.hibernate.jdbc-batch-size", "50"));
+		properties.put("hibernate.order_inserts", true);
+		properties.put("hibernate.order_updates", true);
+		properties.put("hibernate.jdbc.batch_versioned_data", true);
+		boolean cacheEnabled = environment.getProperty("keepnote.cache.enabled", Boolean.class, true);
+		properties.put("hibernate.cache.use_second_level_cache", cacheEnabled);
+		properties.put("hibernate.cache.use_query_cache", cacheEnabled);
+		if (cacheEnabled) {
+			properties.put("hibernate.cache.region.factory_class", environment.getProperty("keepnote.cache.region-factory"));
+			properties.put("net.sf.ehcache.configurationResourceName", environment.getProperty("keepnote.cache.config"));
+		}
 		return properties;
 	}
 
@@ -88,6 +322,7 @@ public class ApplicationContextConfig {
 	 * class through which we get sessions and perform database operations.
 	 */
 	@Bean(name="sessionFactory")
+	@DependsOn("flyway")
 	@Autowired
 	public LocalSessionFactoryBean sessionFactory(DataSource dataSource) {
 		LocalSessionFactoryBean sessionfactory = new LocalSessionFactoryBean();
@@ -116,4 +351,23 @@ public class ApplicationContextConfig {
 	 * ensures data integrity.
 	 */
 
+	/*
+	 * Spring's Jackson converters are replaced by StreamingJacksonConverter, which
+	 * streams the lists returned by the controllers, for JSON and for the Smile and
+	 * CBOR binary formats. JSON stays first, so it is what clients get unless they
+	 * ask for another format.
+	 */
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		int index = converters.size();
+		for (int i = converters.size() - 1; i >= 0; i--) {
+			if (converters.get(i) instanceof AbstractJackson2HttpMessageConverter) {
+				converters.remove(i);
+				index = i;
+			}
+		}
+		converters.addAll(index, Arrays.asList(StreamingJacksonConverter.json(), StreamingJacksonConverter.smile(),
+				StreamingJacksonConverter.cbor()));
+	}
+
 }
@@ -1,5 +1,9 @@
 package com.stackroute.keepnote.config;
 
+import javax.servlet.Filter;
+
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
 public class WebApplicationInitializer extends AbstractAnnotationConfigDispatcherServletInitializer {
@@ -22,6 +26,24 @@ public class WebApplicationInitializer extends AbstractAnnotationConfigDispatche
 		return new String[] {"/"};
 	}
 
+	/*
+	 * The filters are beans of the servlet context; each proxy looks its bean up
+	 * there on the first request. Compression comes first so that it wraps every
+	 * response, including those ended by the token filter. Rate limiting follows
+	 * the token filter, which tells it the user of the request.
+	 */
+	@Override
+	protected Filter[] getServletFilters() {
+		return new Filter[] { servletContextFilter("compressionFilter"),
+				servletContextFilter("tokenAuthenticationFilter"), servletContextFilter("rateLimitFilter") };
+	}
+
+	private Filter servletContextFilter(String beanName) {
+		DelegatingFilterProxy filter = new DelegatingFilterProxy(beanName);
+		filter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + DEFAULT_SERVLET_NAME);
+		return filter;
+	}
+
 	
 
 }
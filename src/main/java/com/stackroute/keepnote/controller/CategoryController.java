@@ -1,12 +1,14 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
@@ -16,10 +18,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.sync.ListTags;
+import com.stackroute.keepnote.sync.ListTags.Tagged;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -40,12 +46,19 @@ public class CategoryController {
 	private Logger LOGGER = LoggerFactory.getLogger(CategoryController.class);
 
 	private CategoryService categoryService;
+
+	private ListTags listTags;
+
+	private HandlerExecutor handlerExecutor;
 	
 	public static final String LOGGEDIN_USERID = "loggedInUserId";
 
 	@Autowired
-	public CategoryController(CategoryService categoryService) {
+	public CategoryController(CategoryService categoryService, ListTags listTags,
+			HandlerExecutor handlerExecutor) {
 		this.categoryService = categoryService;
+		this.listTags = listTags;
+		this.handlerExecutor = handlerExecutor;
 	}
 
 	/*
@@ -63,26 +76,28 @@ public class CategoryController {
 	 * method".
 	 */
 	@PostMapping(path = "/category")
-	public ResponseEntity<?> createCategory(@RequestBody Category category, HttpSession session) {
-		LOGGER.info("CategoryController : createCategory : Begin");
-		ResponseEntity<Category> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				boolean result = categoryService.createCategory(category);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.CREATED);
+	public CompletableFuture<ResponseEntity<?>> createCategory(@RequestBody Category category, HttpSession session) {
+		return handlerExecutor.submit("createCategory", () -> {
+			LOGGER.info("CategoryController : createCategory : Begin");
+			ResponseEntity<Category> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					boolean result = categoryService.createCategory(category);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.CREATED);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.CONFLICT);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.CONFLICT);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("CategoryController : createCategory : HttpStatus : "+response.getStatusCode());
-		LOGGER.info("CategoryController : createCategory : End");
-		return response;
+			LOGGER.info("CategoryController : createCategory : HttpStatus : "+response.getStatusCode());
+			LOGGER.info("CategoryController : createCategory : End");
+			return response;
+		});
 	}
 
 	/*
@@ -98,26 +113,28 @@ public class CategoryController {
 	 * method" where "id" should be replaced by a valid categoryId without {}
 	 */
 	@DeleteMapping(value="/category/{id}")
-	public ResponseEntity<?> deleteCategory(@PathVariable int id, HttpSession session) {
-		LOGGER.info("CategoryController : deleteCategory : Begin : PathVariable Id : "+id);
-		ResponseEntity<Category> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				boolean result = categoryService.deleteCategory(id);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> deleteCategory(@PathVariable int id, HttpSession session) {
+		return handlerExecutor.submit("deleteCategory", () -> {
+			LOGGER.info("CategoryController : deleteCategory : Begin : PathVariable Id : "+id);
+			ResponseEntity<Category> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					boolean result = categoryService.deleteCategory(id);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("CategoryController : deleteCategory : HttpStatus : "+response.getStatusCode());
-		LOGGER.info("CategoryController : deleteCategory : End");
-		return response;
+			LOGGER.info("CategoryController : deleteCategory : HttpStatus : "+response.getStatusCode());
+			LOGGER.info("CategoryController : deleteCategory : End");
+			return response;
+		});
 	}
 
 	/*
@@ -128,32 +145,44 @@ public class CategoryController {
 	 * the category. This handler method should return any one of the status
 	 * messages basis on different situations: 1. 200(OK) - If the category updated
 	 * successfully. 2. 404(NOT FOUND) - If the category with specified categoryId
-	 * is not found. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
-	 * has not logged in.
+	 * is not found, or is not a category of the loggedIn user. 3. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in. 4.
+	 * 412(PRECONDITION FAILED) - If the category was updated since the version
+	 * given by If-Match (or by the category itself) was read.
 	 * 
 	 * This handler method should map to the URL "/category/{id}" using HTTP PUT
 	 * method.
 	 */
 	@PutMapping(value="/category/{id}")
-	public ResponseEntity<?> updateCategory(@PathVariable int id, @RequestBody Category category, HttpSession session) {
-		LOGGER.info("CategoryController : updateCategory : Begin : PathVariable Id : "+id);
-		ResponseEntity<Category> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				Category result = categoryService.updateCategory(category, id);
-				if (result != null) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> updateCategory(@PathVariable int id, @RequestBody Category category,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch, HttpSession session) {
+		return handlerExecutor.submit("updateCategory", () -> {
+			LOGGER.info("CategoryController : updateCategory : Begin : PathVariable Id : "+id);
+			ResponseEntity<Category> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					category.setCategoryCreatedBy(session.getAttribute(LOGGEDIN_USERID).toString());
+					if (ifMatch != null) {
+						category.setVersion(ETags.parseIfMatch(ifMatch));
+					}
+					Category result = categoryService.updateCategory(category, id);
+					if (result != null) {
+						response = new ResponseEntity<>(ETags.headers(ETags.ofVersion(result.getVersion())),
+								HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (OptimisticLockingFailureException e) {
+				response = new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);;
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.NOT_FOUND);;
-		}
-		LOGGER.info("CategoryController : updateCategory : End : HttpStatus : "+response.getStatusCode());
-		return response;
+			LOGGER.info("CategoryController : updateCategory : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 	/*
@@ -162,24 +191,33 @@ public class CategoryController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the category found successfully. 2.
 	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
-	 * in.
+	 * in. 3. 304(NOT MODIFIED) - If If-None-Match has the ETag of the list, i.e.
+	 * nothing changed since the client read it.
 	 * 
 	 * 
 	 * This handler method should map to the URL "/category" using HTTP GET method
 	 */
 	@GetMapping(value = "/category")
-	public ResponseEntity<?> getCategory(HttpSession session) {
-		LOGGER.info("CategoryController : getCategory : Begin ");
-		ResponseEntity<List<Category>> response = null;
-		if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-			List<Category> list = categoryService
-					.getAllCategoryByUserId(session.getAttribute(LOGGEDIN_USERID).toString());
-			response = ResponseEntity.ok().body(list);
-		} else {
-			response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-		}
-		LOGGER.info("CategoryController : getCategory : End : HttpStatus : "+response.getStatusCode());
-		return response;
+	public CompletableFuture<ResponseEntity<?>> getCategory(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+			HttpSession session) {
+		return handlerExecutor.submit("getCategory", () -> {
+			LOGGER.info("CategoryController : getCategory : Begin ");
+			ResponseEntity<List<Category>> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				Tagged<List<Category>> tagged = listTags.read(userId, tag -> ETags.matches(ifNoneMatch, tag),
+						() -> categoryService.getAllCategoryByUserId(userId));
+				if (tagged.isModified()) {
+					response = ResponseEntity.ok().eTag(tagged.getTag()).body(tagged.getList());
+				} else {
+					response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tagged.getTag()).build();
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("CategoryController : getCategory : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 }
\ No newline at end of file
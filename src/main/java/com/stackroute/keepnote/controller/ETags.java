@@ -0,0 +1,96 @@
+package com.stackroute.keepnote.controller;
+
+import org.springframework.http.HttpHeaders;
+
+/*
+ * Entity tags of the controllers. A single note, category, reminder or user is
+ * tagged with its version, which a client sends back in If-Match to update it
+ * only if nobody else did in between; a note, which has several
+ * representations, is tagged with its version and representation. Lists are
+ * tagged with the last change of the user (see ListTags) and answered with 304
+ * Not Modified when the client's If-None-Match still matches.
+ */
+public final class ETags {
+
+	/*
+	 * Version that no entity has, standing for an If-Match tag that is not a
+	 * version tag: the update is then always rejected as stale.
+	 */
+	private static final int NO_VERSION = -1;
+
+	private ETags() {
+	}
+
+	/*
+	 * The strong ETag of an entity version, or null if the version is unknown.
+	 */
+	public static String ofVersion(Integer version) {
+		return version == null ? null : "\"" + version + "\"";
+	}
+
+	/*
+	 * The strong ETag of one representation of an entity version, or null if the
+	 * version is unknown. Representations that differ in their bytes, such as the
+	 * JSON and CBOR documents of a note, must not share a strong tag. The tag still
+	 * starts with the version, so it can be sent back in If-Match like the plain one.
+	 */
+	public static String ofVersion(Integer version, String representation) {
+		return version == null ? null : "\"" + version + "-" + representation + "\"";
+	}
+
+	/*
+	 * The version required by an If-Match header, or null if the header is absent
+	 * or "*", in which case the update is unconditional. Any representation or
+	 * content encoding (see CompressionFilter) named after the version is ignored.
+	 */
+	public static Integer parseIfMatch(String ifMatch) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String tag = ifMatch.trim();
+		if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+			return NO_VERSION;
+		}
+		String opaque = tag.substring(1, tag.length() - 1);
+		int representation = opaque.indexOf('-');
+		try {
+			return Integer.valueOf(representation < 0 ? opaque : opaque.substring(0, representation));
+		} catch (NumberFormatException e) {
+			return NO_VERSION;
+		}
+	}
+
+	/*
+	 * Whether an If-None-Match header matches a tag, using the weak comparison
+	 * that RFC 7232 prescribes for If-None-Match.
+	 */
+	public static boolean matches(String ifNoneMatch, String tag) {
+		if (ifNoneMatch == null || tag == null) {
+			return false;
+		}
+		String opaqueTag = opaqueTag(tag);
+		for (String candidate : ifNoneMatch.split(",")) {
+			String trimmed = candidate.trim();
+			if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaqueTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Response headers carrying a tag, or no header if the tag is null.
+	 */
+	public static HttpHeaders headers(String tag) {
+		HttpHeaders headers = new HttpHeaders();
+		if (tag != null) {
+			headers.setETag(tag);
+		}
+		return headers;
+	}
+
+	private static String opaqueTag(String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+
+}
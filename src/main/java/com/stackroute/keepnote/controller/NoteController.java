@@ -1,13 +1,19 @@
 package com.stackroute.keepnote.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,10 +22,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.search.NoteSearchHit;
+import com.stackroute.keepnote.service.NoteSearchService;
 import com.stackroute.keepnote.service.NoteService;
+import com.stackroute.keepnote.sync.ListTags;
+import com.stackroute.keepnote.sync.ListTags.Tagged;
+import com.stackroute.keepnote.web.HandlerExecutor;
+import com.stackroute.keepnote.web.StreamingJacksonConverter;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -40,12 +63,30 @@ public class NoteController {
 	private Logger LOGGER = LoggerFactory.getLogger(NoteController.class);
 
 	private NoteService noteService;
+
+	private NoteSearchService noteSearchService;
+
+	private ListTags listTags;
+
+	private HandlerExecutor handlerExecutor;
 	
 	public static final String LOGGEDIN_USERID = "loggedInUserId";
 
+	/*
+	 * Writer used by the streaming endpoint. Flushing after every note would turn
+	 * each element into its own network write, so flushing is left to the
+	 * generator's buffer instead.
+	 */
+	private static final ObjectWriter NOTE_WRITER = new ObjectMapper().writerFor(Note.class)
+			.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
 	@Autowired
-	public NoteController(NoteService noteService) {
+	public NoteController(NoteService noteService, NoteSearchService noteSearchService,
+			ListTags listTags, HandlerExecutor handlerExecutor) {
 		this.noteService = noteService;
+		this.noteSearchService = noteSearchService;
+		this.listTags = listTags;
+		this.handlerExecutor = handlerExecutor;
 	}
 
 	/*
@@ -55,32 +96,75 @@ public class NoteController {
 	 * CategoryNotFoundException as well. please note that the loggedIn userID
 	 * should be taken as the createdBy for the note.This handler method should
 	 * return any one of the status messages basis on different situations: 1.
-	 * 201(CREATED) - If the note created successfully. 2. 409(CONFLICT) - If the
-	 * noteId conflicts with any existing user3. 401(UNAUTHORIZED) - If the user
-	 * trying to perform the action has not logged in.
+	 * 201(CREATED) - If the note created successfully. 2. 500(INTERNAL SERVER
+	 * ERROR) - If the note could not be saved. 3. 401(UNAUTHORIZED) - If the user
+	 * trying to perform the action has not logged in. The noteId is generated, so
+	 * one sent by the client is ignored and cannot conflict with an existing note.
 	 * 
 	 * This handler method should map to the URL "/note" using HTTP POST method
 	 */
 	@PostMapping(value = "/note")
-	public ResponseEntity<?> createNote(@RequestBody Note note, HttpSession session) {
-		LOGGER.info("NoteController : createNote : Begin");
-		ResponseEntity<Note> response = null;
-		try {
-			if (isValidUser(session, note.getCreatedBy())) {
-				boolean result = noteService.createNote(note);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.CREATED);
+	public CompletableFuture<ResponseEntity<?>> createNote(@RequestBody Note note, HttpSession session) {
+		return handlerExecutor.submit("createNote", () -> {
+			LOGGER.info("NoteController : createNote : Begin");
+			ResponseEntity<Note> response = null;
+			try {
+				if (isValidUser(session, note.getCreatedBy())) {
+					boolean result = noteService.createNote(note);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.CREATED);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.CONFLICT);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("NoteController : createNote : End : HttpStatus : "+response.getStatusCode());
-		return response;
+			LOGGER.info("NoteController : createNote : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
+	}
+
+	/*
+	 * Define a handler method which will create a list of notes in one request,
+	 * e.g. when importing notes from another system. Every note must have the
+	 * loggedIn userID as createdBy. This handler method should return any one of
+	 * the status messages basis on different situations: 1. 201(CREATED) - If all
+	 * the notes are created successfully, with the number of notes created in the
+	 * body. 2. 409(CONFLICT) - If only some of the notes could be created, with the
+	 * number of notes created in the body. 3. 401(UNAUTHORIZED) - If the user trying
+	 * to perform the action has not logged in or does not own all the notes.
+	 * 
+	 * This handler method should map to the URL "/notes/batch" using HTTP POST method
+	 */
+	@PostMapping(value = "/notes/batch")
+	public CompletableFuture<ResponseEntity<?>> createNotes(@RequestBody List<Note> notes, HttpSession session) {
+		return handlerExecutor.submit("createNotes", () -> {
+			LOGGER.info("NoteController : createNotes : Begin : Size : "+notes.size());
+			ResponseEntity<Integer> response = null;
+			try {
+				boolean valid = !ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID));
+				for (int i = 0; valid && i < notes.size(); i++) {
+					valid = isValidUser(session, notes.get(i).getCreatedBy());
+				}
+				if (valid) {
+					int created = noteService.createNotes(notes);
+					if (created == notes.size()) {
+						response = new ResponseEntity<>(created, HttpStatus.CREATED);
+					} else {
+						response = new ResponseEntity<>(created, HttpStatus.CONFLICT);
+					}
+				} else {
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+				}
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
+			LOGGER.info("NoteController : createNotes : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 	/**
@@ -105,33 +189,37 @@ public class NoteController {
 	 * as well.
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the note deleted successfully from
-	 * database. 2. 404(NOT FOUND) - If the note with specified noteId is not found.
-	 * 3. 401(UNAUTHORIZED) - If the user trying to perform the action has not
-	 * logged in.
+	 * database. 2. 404(NOT FOUND) - If the note with specified noteId is not found,
+	 * or is not a note of the loggedIn user. 3. 401(UNAUTHORIZED) - If the user
+	 * trying to perform the action has not logged in.
 	 * 
 	 * This handler method should map to the URL "/note/{id}" using HTTP Delete
 	 * method" where "id" should be replaced by a valid noteId without {}
 	 */
 	@DeleteMapping(value="/note/{id}")
-	public ResponseEntity<?> deleteNote(@PathVariable int id, HttpSession session) {
-		LOGGER.info("NoteController : deleteNote : Begin : Id : "+id);
-		ResponseEntity<Note> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				boolean result = noteService.deleteNote(id);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> deleteNote(@PathVariable int id, HttpSession session) {
+		return handlerExecutor.submit("deleteNote", () -> {
+			LOGGER.info("NoteController : deleteNote : Begin : Id : "+id);
+			ResponseEntity<Note> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					boolean result = noteService.deleteNote(session.getAttribute(LOGGEDIN_USERID).toString(), id);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (NoteNotFoundException e) {
+				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("NoteController : deleteNote : End : HttpStatus : "+response.getStatusCode());
-		return response;
+			LOGGER.info("NoteController : deleteNote : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 	/*
@@ -142,32 +230,46 @@ public class NoteController {
 	 * the loggedIn userID should be taken as the createdBy for the note. This
 	 * handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the note updated successfully. 2.
-	 * 404(NOT FOUND) - If the note with specified noteId is not found. 3.
+	 * 404(NOT FOUND) - If the note with specified noteId is not found, or is not
+	 * a note of the loggedIn user. 3.
 	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
-	 * in.
+	 * in. 4. 412(PRECONDITION FAILED) - If the note was updated since the version
+	 * given by the If-Match header (or by the note itself) was read.
+	 * 
+	 * The response carries the ETag of the new version when it is known.
 	 * 
 	 * This handler method should map to the URL "/note/{id}" using HTTP PUT method.
 	 */
 	@PutMapping(value="/note/{id}")
-	public ResponseEntity<?> updateNote(@PathVariable int id, @RequestBody Note note, HttpSession session) {
-		LOGGER.info("NoteController : updateNote : Begin : Id : "+id);
-		ResponseEntity<Note> response = null;
-		try {
-			if (isValidUser(session, note.getCreatedBy())) {
-				Note result = noteService.updateNote(note, id);
-				if (result != null) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> updateNote(@PathVariable int id, @RequestBody Note note,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch, HttpSession session) {
+		return handlerExecutor.submit("updateNote", () -> {
+			LOGGER.info("NoteController : updateNote : Begin : Id : "+id);
+			ResponseEntity<Note> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					note.setCreatedBy(session.getAttribute(LOGGEDIN_USERID).toString());
+					if (ifMatch != null) {
+						note.setVersion(ETags.parseIfMatch(ifMatch));
+					}
+					Note result = noteService.updateNote(note, id);
+					if (result != null) {
+						response = new ResponseEntity<>(ETags.headers(ETags.ofVersion(result.getVersion())),
+								HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (OptimisticLockingFailureException e) {
+				response = new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);;
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.NOT_FOUND);;
-		}
-		LOGGER.info("NoteController : updateNote : End : HttpStatus : "+response.getStatusCode());
-		return response;
+			LOGGER.info("NoteController : updateNote : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 
@@ -180,21 +282,237 @@ public class NoteController {
 	 * in.
 	 * 
 	 * 
+	 * The optional "fetch" parameter (summary, withCategory or full) selects the
+	 * associations loaded with the notes by a single join query; an unknown value
+	 * gets 400(BAD REQUEST).
+	 * 
+	 * The list is tagged with the last change of the user, and 304(NOT MODIFIED)
+	 * is returned without reading the notes when If-None-Match has that tag, as
+	 * for the other note lists.
+	 * 
 	 * This handler method should map to the URL "/note" using HTTP GET method
 	 */
 	@GetMapping(value = "/note")
-	public ResponseEntity<?> getNotes(HttpSession session) {
-		LOGGER.info("NoteController : getNotes : Begin");
-		ResponseEntity<List<Note>> response = null;
-		if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-			List<Note> list = noteService
-					.getAllNotesByUserId(session.getAttribute(LOGGEDIN_USERID).toString());
-			response = ResponseEntity.ok().body(list);
-		} else {
-			response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+	public CompletableFuture<ResponseEntity<?>> getNotes(@RequestParam(value = "fetch", required = false) String fetch,
+			@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch, HttpSession session) {
+		return handlerExecutor.submit("getNotes", () -> {
+			LOGGER.info("NoteController : getNotes : Begin");
+			ResponseEntity<List<Note>> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				try {
+					Tagged<List<Note>> tagged = listTags.read(userId, tag -> ETags.matches(ifNoneMatch, tag),
+							() -> fetch == null ? noteService.getAllNotesByUserId(userId)
+									: noteService.getAllNotesByUserId(userId, NoteFetchProfile.fromParam(fetch)));
+					if (tagged.isModified()) {
+						response = ResponseEntity.ok().eTag(tagged.getTag()).body(tagged.getList());
+					} else {
+						response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tagged.getTag()).build();
+					}
+				} catch (IllegalArgumentException e) {
+					response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("NoteController : getNotes : End");
+			return response;
+		});
+	}
+
+	/*
+	 * Define a handler method which will get us a note by noteId, with the
+	 * associations of the fetch profile given by the "fetch" parameter (summary,
+	 * withCategory or full, the default), loaded by a single join query.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the note found successfully. 2.
+	 * 400(BAD REQUEST) - If the fetch profile is unknown. 3. 404(NOT FOUND) - If
+	 * the note with specified noteId is not found, or belongs to another user. 4.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * The note is tagged with its version, to be sent back in If-Match when
+	 * updating it, and with its representation: the fetch profile and the format
+	 * negotiated from Accept, as each of them gives other bytes.
+	 * 
+	 * This handler method should map to the URL "/note/{id}" using HTTP GET method
+	 */
+	@GetMapping(value = "/note/{id}")
+	public CompletableFuture<ResponseEntity<?>> getNoteDetails(@PathVariable int id,
+			@RequestParam(value = "fetch", defaultValue = "full") String fetch,
+			@RequestHeader(value = "Accept", required = false) String accept, HttpSession session) {
+		return handlerExecutor.submit("getNoteDetails", () -> {
+			LOGGER.info("NoteController : getNoteDetails : Begin : Id : "+id);
+			ResponseEntity<Note> response = null;
+			String userId = (String) session.getAttribute(LOGGEDIN_USERID);
+			if (!ObjectUtils.isEmpty(userId)) {
+				try {
+					NoteFetchProfile profile = NoteFetchProfile.fromParam(fetch);
+					Note note = noteService.getNoteById(userId, id, profile);
+					String tag = ETags.ofVersion(note.getVersion(),
+							profile.getParam() + "-" + StreamingJacksonConverter.format(accept));
+					response = new ResponseEntity<>(note, ETags.headers(tag), HttpStatus.OK);
+				} catch (IllegalArgumentException e) {
+					response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+				} catch (NoteNotFoundException e) {
+					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("NoteController : getNoteDetails : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
+	}
+
+	/*
+	 * Define a handler method which will get us the list view of the notes of the
+	 * loggedIn user: one NoteSummary per note, with the names of its category and
+	 * reminder, read by a single query.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the summaries are fetched successfully.
+	 * 2. 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/summary" using HTTP GET method
+	 */
+	@GetMapping(value = "/note/summary")
+	public CompletableFuture<ResponseEntity<?>> getNoteSummaries(
+			@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch, HttpSession session) {
+		return handlerExecutor.submit("getNoteSummaries", () -> {
+			LOGGER.info("NoteController : getNoteSummaries : Begin");
+			ResponseEntity<List<NoteSummary>> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				Tagged<List<NoteSummary>> tagged = listTags.read(userId, tag -> ETags.matches(ifNoneMatch, tag),
+						() -> noteService.getNoteSummariesByUserId(userId));
+				if (tagged.isModified()) {
+					response = ResponseEntity.ok().eTag(tagged.getTag()).body(tagged.getList());
+				} else {
+					response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tagged.getTag()).build();
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("NoteController : getNoteSummaries : End");
+			return response;
+		});
+	}
+
+	/*
+	 * Define a handler method which will get us one page of the notes of the
+	 * loggedIn user, starting after the noteId given as cursor.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the page is fetched successfully. 2.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/page?after={cursor}&limit={limit}"
+	 * using HTTP GET method
+	 */
+	@GetMapping(value = "/note/page")
+	public CompletableFuture<ResponseEntity<?>> getNotesPage(@RequestParam(value = "after", defaultValue = "0") int after,
+			@RequestParam(value = "limit", defaultValue = "50") int limit,
+			@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch, HttpSession session) {
+		return handlerExecutor.submit("getNotesPage", () -> {
+			LOGGER.info("NoteController : getNotesPage : Begin : After : "+after);
+			ResponseEntity<NotePage> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				Tagged<NotePage> tagged = listTags.read(userId, tag -> ETags.matches(ifNoneMatch, tag),
+						() -> noteService.getNotesByUserId(userId, after, limit));
+				if (tagged.isModified()) {
+					response = ResponseEntity.ok().eTag(tagged.getTag()).body(tagged.getList());
+				} else {
+					response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tagged.getTag()).build();
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("NoteController : getNotesPage : End");
+			return response;
+		});
+	}
+
+	/*
+	 * Define a handler method which will stream all the notes of the loggedIn user
+	 * as a single JSON array. Notes are written to the response as they are read
+	 * from the database, so the memory used does not grow with the number of notes,
+	 * and on the handler thread pool, so that no container thread waits on the
+	 * client for the whole export.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the notes are streamed successfully. 2.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/stream" using HTTP GET method
+	 */
+	@GetMapping(value = "/note/stream")
+	public ResponseEntity<StreamingResponseBody> streamNotes(HttpSession session) {
+		return handlerExecutor.stream("streamNotes", () -> {
+			LOGGER.info("NoteController : streamNotes : Begin");
+			ResponseEntity<StreamingResponseBody> response = null;
+			if (ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} else {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8)
+						.body(outputStream -> writeNotes(userId, outputStream));
+			}
+			LOGGER.info("NoteController : streamNotes : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
+	}
+
+	private void writeNotes(String userId, OutputStream outputStream) throws IOException {
+		try (JsonGenerator generator = NOTE_WRITER.getFactory().createGenerator(outputStream)) {
+			generator.writeStartArray();
+			noteService.streamAllNotesByUserId(userId, note -> {
+				try {
+					NOTE_WRITER.writeValue(generator, note);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			generator.writeEndArray();
 		}
-		LOGGER.info("NoteController : getNotes : End");
-		return response;
+	}
+
+	/*
+	 * Define a handler method which will search the notes of the loggedIn user by
+	 * title and content. Terms ending with '*' are matched as prefixes, and the
+	 * hits are ranked best first.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the (possibly empty) list of hits. 2.
+	 * 400(BAD REQUEST) - If the query is blank. 3. 401(UNAUTHORIZED) -If the user
+	 * trying to perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/note/search?q={query}&limit={limit}"
+	 * using HTTP GET method
+	 */
+	@GetMapping(value = "/note/search")
+	public CompletableFuture<ResponseEntity<?>> searchNotes(@RequestParam(value = "q", defaultValue = "") String query,
+			@RequestParam(value = "limit", defaultValue = "20") int limit, HttpSession session) {
+		return handlerExecutor.submit("searchNotes", () -> {
+			LOGGER.info("NoteController : searchNotes : Begin");
+			ResponseEntity<List<NoteSearchHit>> response = null;
+			if (ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} else if (query.trim().isEmpty()) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			} else {
+				List<NoteSearchHit> hits = noteSearchService
+						.searchNotes(session.getAttribute(LOGGEDIN_USERID).toString(), query, limit);
+				response = ResponseEntity.ok().body(hits);
+			}
+			LOGGER.info("NoteController : searchNotes : End : HttpStatus : "+response.getStatusCode());
+			return response;
+		});
 	}
 
 }
@@ -1,12 +1,14 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
@@ -16,11 +18,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.service.ReminderService;
+import com.stackroute.keepnote.sync.ListTags;
+import com.stackroute.keepnote.sync.ListTags.Tagged;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -55,11 +61,18 @@ public class ReminderController {
 
 	private ReminderService reminderService;
 
+	private ListTags listTags;
+
+	private HandlerExecutor handlerExecutor;
+
 	public static final String LOGGEDIN_USERID = "loggedInUserId";
 
 	@Autowired
-	public ReminderController(ReminderService reminderService) {
+	public ReminderController(ReminderService reminderService, ListTags listTags,
+			HandlerExecutor handlerExecutor) {
 		this.reminderService = reminderService;
+		this.listTags = listTags;
+		this.handlerExecutor = handlerExecutor;
 	}
 
 	/*
@@ -77,25 +90,27 @@ public class ReminderController {
 	 * method".
 	 */
 	@PostMapping(path = "/reminder")
-	public ResponseEntity<?> createReminder(@RequestBody Reminder reminder, HttpSession session) {
-		LOGGER.info("ReminderController : createReminder : Begin");
-		ResponseEntity<Reminder> response = null;
-		try {
-			if (isValidUser(session, reminder.getReminderCreatedBy())) {
-				boolean result = reminderService.createReminder(reminder);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.CREATED);
+	public CompletableFuture<ResponseEntity<?>> createReminder(@RequestBody Reminder reminder, HttpSession session) {
+		return handlerExecutor.submit("createReminder", () -> {
+			LOGGER.info("ReminderController : createReminder : Begin");
+			ResponseEntity<Reminder> response = null;
+			try {
+				if (isValidUser(session, reminder.getReminderCreatedBy())) {
+					boolean result = reminderService.createReminder(reminder);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.CREATED);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.CONFLICT);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.CONFLICT);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("ReminderController : createReminder : End");
-		return response;
+			LOGGER.info("ReminderController : createReminder : End");
+			return response;
+		});
 	}
 
 	/**
@@ -128,25 +143,27 @@ public class ReminderController {
 	 * method" where "id" should be replaced by a valid reminderId without {}
 	 */
 	@DeleteMapping(value = "/reminder/{id}")
-	public ResponseEntity<?> deleteReminder(@PathVariable int id, HttpSession session) {
-		LOGGER.info("ReminderController : deleteReminder : Begin");
-		ResponseEntity<Reminder> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				boolean result = reminderService.deleteReminder(id);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> deleteReminder(@PathVariable int id, HttpSession session) {
+		return handlerExecutor.submit("deleteReminder", () -> {
+			LOGGER.info("ReminderController : deleteReminder : Begin");
+			ResponseEntity<Reminder> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					boolean result = reminderService.deleteReminder(id);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("ReminderController : deleteReminder : End");
-		return response;
+			LOGGER.info("ReminderController : deleteReminder : End");
+			return response;
+		});
 	}
 
 	/*
@@ -157,33 +174,45 @@ public class ReminderController {
 	 * the reminder. This handler method should return any one of the status
 	 * messages basis on different situations: 1. 200(OK) - If the reminder updated
 	 * successfully. 2. 404(NOT FOUND) - If the reminder with specified reminderId
-	 * is not found. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
-	 * has not logged in.
+	 * is not found, or is not a reminder of the loggedIn user. 3. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in. 4.
+	 * 412(PRECONDITION FAILED) - If the reminder was updated
+	 * since the version given by If-Match (or by the reminder itself) was read.
 	 * 
 	 * This handler method should map to the URL "/reminder/{id}" using HTTP PUT
 	 * method.
 	 */
 	@PutMapping(value = "/reminder/{id}")
-	public ResponseEntity<?> updateReminder(@PathVariable int id, @RequestBody Reminder reminder, HttpSession session) {
-		LOGGER.info("ReminderController : updateReminder : Begin");
-		ResponseEntity<Reminder> response = null;
-		try {
-			if (isValidUser(session, reminder.getReminderCreatedBy())) {
-				Reminder result = reminderService.updateReminder(reminder, id);
-				if (result != null) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> updateReminder(@PathVariable int id, @RequestBody Reminder reminder,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch, HttpSession session) {
+		return handlerExecutor.submit("updateReminder", () -> {
+			LOGGER.info("ReminderController : updateReminder : Begin");
+			ResponseEntity<Reminder> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					reminder.setReminderCreatedBy(session.getAttribute(LOGGEDIN_USERID).toString());
+					if (ifMatch != null) {
+						reminder.setVersion(ETags.parseIfMatch(ifMatch));
+					}
+					Reminder result = reminderService.updateReminder(reminder, id);
+					if (result != null) {
+						response = new ResponseEntity<>(ETags.headers(ETags.ofVersion(result.getVersion())),
+								HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (OptimisticLockingFailureException e) {
+				response = new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+				;
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
-			;
-		}
-		LOGGER.info("ReminderController : updateReminder : End");
-		return response;
+			LOGGER.info("ReminderController : updateReminder : End");
+			return response;
+		});
 	}
 
 	/*
@@ -192,24 +221,33 @@ public class ReminderController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the reminder found successfully. 2.
 	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
-	 * in.
+	 * in. 3. 304(NOT MODIFIED) - If If-None-Match has the ETag of the list, i.e.
+	 * nothing changed since the client read it.
 	 * 
 	 * 
 	 * This handler method should map to the URL "/reminder" using HTTP GET method
 	 */
 	@GetMapping(value = "/reminder")
-	public ResponseEntity<?> getReminder(HttpSession session) {
-		LOGGER.info("ReminderController : getReminder : Begin");
-		ResponseEntity<List<Reminder>> response = null;
-		if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-			List<Reminder> list = reminderService
-					.getAllReminderByUserId(session.getAttribute(LOGGEDIN_USERID).toString());
-			response = ResponseEntity.ok().body(list);
-		} else {
-			response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-		}
-		LOGGER.info("ReminderController : getReminder : End");
-		return response;
+	public CompletableFuture<ResponseEntity<?>> getReminder(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+			HttpSession session) {
+		return handlerExecutor.submit("getReminder", () -> {
+			LOGGER.info("ReminderController : getReminder : Begin");
+			ResponseEntity<List<Reminder>> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				Tagged<List<Reminder>> tagged = listTags.read(userId, tag -> ETags.matches(ifNoneMatch, tag),
+						() -> reminderService.getAllReminderByUserId(userId));
+				if (tagged.isModified()) {
+					response = ResponseEntity.ok().eTag(tagged.getTag()).body(tagged.getList());
+				} else {
+					response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tagged.getTag()).build();
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("ReminderController : getReminder : End");
+			return response;
+		});
 	}
 
 	/*
@@ -218,32 +256,36 @@ public class ReminderController {
 	 * of the status messages basis on different situations: 1. 200(OK) - If the
 	 * reminder found successfully. 2. 401(UNAUTHORIZED) - If the user trying to
 	 * perform the action has not logged in. 3. 404(NOT FOUND) - If the reminder
-	 * with specified reminderId is not found. This handler method should map to the
-	 * URL "/reminder/{id}" using HTTP GET method where "id" should be replaced by a
-	 * valid reminderId without {}
+	 * with specified reminderId is not found. The reminder is tagged with its
+	 * version, to be sent back in If-Match when updating it. This handler method
+	 * should map to the URL "/reminder/{id}" using HTTP GET method where "id" should
+	 * be replaced by a valid reminderId without {}
 	 */
 	@GetMapping(value = "/reminder/{id}")
-	public ResponseEntity<?> getReminderDetails(@PathVariable int id, HttpSession session) {
-		LOGGER.info("ReminderController : getReminderDetails : Begin");
-		ResponseEntity<Reminder> response = null;
-		if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-			Reminder reminder;
-			try {
-				reminder = reminderService.getReminderById(id);
-				if (reminder != null) {
-					response = ResponseEntity.ok().body(reminder);
-				} else {
+	public CompletableFuture<ResponseEntity<?>> getReminderDetails(@PathVariable int id, HttpSession session) {
+		return handlerExecutor.submit("getReminderDetails", () -> {
+			LOGGER.info("ReminderController : getReminderDetails : Begin");
+			ResponseEntity<Reminder> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				Reminder reminder;
+				try {
+					reminder = reminderService.getReminderById(id);
+					if (reminder != null) {
+						response = new ResponseEntity<>(reminder, ETags.headers(ETags.ofVersion(reminder.getVersion())),
+								HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
+				} catch (ReminderNotFoundException e) {
 					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
 				}
-			} catch (ReminderNotFoundException e) {
-				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
-			}
 
-		} else {
-			response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-		}
-		LOGGER.info("ReminderController : getReminderDetails : End");
-		return response;
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("ReminderController : getReminderDetails : End");
+			return response;
+		});
 	}
 
 }
\ No newline at end of file
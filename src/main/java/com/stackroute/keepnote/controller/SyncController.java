@@ -0,0 +1,74 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.model.SyncBatch;
+import com.stackroute.keepnote.service.SyncService;
+import com.stackroute.keepnote.web.HandlerExecutor;
+
+/*
+ * The sync endpoint of offline-capable clients. A client without data calls
+ * "/sync" once to get everything, then "/sync?since=<token>" with the token of
+ * its last batch to get only what was saved or deleted since.
+ */
+@RestController
+public class SyncController {
+
+	private Logger LOGGER = LoggerFactory.getLogger(SyncController.class);
+
+	private SyncService syncService;
+
+	private HandlerExecutor handlerExecutor;
+
+	public static final String LOGGEDIN_USERID = "loggedInUserId";
+
+	@Autowired
+	public SyncController(SyncService syncService, HandlerExecutor handlerExecutor) {
+		this.syncService = syncService;
+		this.handlerExecutor = handlerExecutor;
+	}
+
+	/*
+	 * Return the changes of the logged in user since the token, at most limit
+	 * change log entries of them (see SyncBatch). This handler method should return
+	 * any one of the status messages basis on different situations: 1. 200(OK) -
+	 * with the batch. 2. 400(BAD REQUEST) - If since is not a token returned by
+	 * this endpoint. 3. 401(UNAUTHORIZED) - If the user trying to perform the
+	 * action has not logged in.
+	 *
+	 * This handler method should map to the URL "/sync" using HTTP GET method
+	 */
+	@GetMapping(value = "/sync")
+	public CompletableFuture<ResponseEntity<?>> getChanges(@RequestParam(value = "since", required = false) String since,
+			@RequestParam(value = "limit", defaultValue = "500") int limit, HttpSession session) {
+		return handlerExecutor.submit("getChanges", () -> {
+			LOGGER.info("SyncController : getChanges : Begin : since : " + since);
+			ResponseEntity<SyncBatch> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				String userId = session.getAttribute(LOGGEDIN_USERID).toString();
+				try {
+					response = new ResponseEntity<>(syncService.getChanges(userId, since, limit), HttpStatus.OK);
+				} catch (IllegalArgumentException e) {
+					response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+				}
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("SyncController : getChanges : End : HttpStatus : " + response.getStatusCode());
+			return response;
+		});
+	}
+
+}
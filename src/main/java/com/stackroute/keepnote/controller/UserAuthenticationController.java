@@ -6,6 +6,7 @@ import javax.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
@@ -14,8 +15,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.stackroute.keepnote.exception.LoginUnavailableException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.AuthTokenService;
+import com.stackroute.keepnote.security.TokenAuthenticationFilter;
 import com.stackroute.keepnote.service.UserService;
 
 /*
@@ -46,6 +50,17 @@ public class UserAuthenticationController {
 		this.userService = userService;
 	}
 
+	private AuthTokenService authTokenService;
+
+	/*
+	 * Optional, so that the controller can be built without it; without the token
+	 * service only the session mode is available.
+	 */
+	@Autowired(required = false)
+	public void setAuthTokenService(AuthTokenService authTokenService) {
+		this.authTokenService = authTokenService;
+	}
+
 	/*
 	 * Define a handler method which will authenticate a user by reading the
 	 * Serialized user object from request body containing the userId and password
@@ -54,7 +69,12 @@ public class UserAuthenticationController {
 	 * other services handle UserNotFoundException as well. This handler method
 	 * should return any one of the status messages basis on different situations:
 	 * 1. 200(OK) - If login is successful. 2. 401(UNAUTHORIZED) - If login is not
-	 * successful
+	 * successful 3. 503(SERVICE UNAVAILABLE) - If too many logins are being verified
+	 * at the moment; the client may retry after the Retry-After delay.
+	 * 
+	 * In token mode (keepnote.auth.mode=token) the response also carries an
+	 * "Authorization: Bearer <token>" header; the client sends that header back
+	 * instead of the session cookie.
 	 * 
 	 * This handler method should map to the URL "/login" using HTTP POST method
 	 */
@@ -65,13 +85,23 @@ public class UserAuthenticationController {
 		try {
 			boolean result = userService.validateUser(user.getUserId(), user.getUserPassword());
 			if (result) {
-				request.getSession().setAttribute(LOGGEDIN_USERID, user.getUserId());
-				response = new ResponseEntity<>("Successfully Logged In!!",HttpStatus.OK);
+				if (authTokenService != null && authTokenService.isTokenMode()) {
+					response = ResponseEntity.ok()
+							.header(HttpHeaders.AUTHORIZATION,
+									TokenAuthenticationFilter.BEARER_PREFIX + authTokenService.issueToken(user.getUserId()))
+							.body("Successfully Logged In!!");
+				} else {
+					request.getSession().setAttribute(LOGGEDIN_USERID, user.getUserId());
+					response = new ResponseEntity<>("Successfully Logged In!!",HttpStatus.OK);
+				}
 			} else {
 				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 			}
 		} catch (UserNotFoundException e) {
 			response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (LoginUnavailableException e) {
+			LOGGER.warn("UserAuthenticationController : authenticate : {}", e.getMessage());
+			response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
 		}
 		LOGGER.info("UserAuthenticationController : authenticate : End");
 		return response;
@@ -81,7 +111,9 @@ public class UserAuthenticationController {
 	 * Define a handler method which will perform logout. Post logout, the user
 	 * session is to be destroyed. This handler method should return any one of the
 	 * status messages basis on different situations: 1. 200(OK) - If logout is
-	 * successful 2. 400(BAD REQUEST) - If logout has failed
+	 * successful 2. 400(BAD REQUEST) - If logout has failed 3. 501(NOT
+	 * IMPLEMENTED) - In token mode, where there is no session to destroy and the
+	 * token stays valid until it expires; the client has to discard it.
 	 * 
 	 * This handler method should map to the URL "/logout" using HTTP GET method
 	 */
@@ -90,7 +122,9 @@ public class UserAuthenticationController {
 		LOGGER.info("UserAuthenticationController : logout : Begin");
 		ResponseEntity<User> response = null;
 		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+			if (authTokenService != null && authTokenService.isTokenMode()) {
+				response = new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+			} else if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
 				session.removeAttribute(LOGGEDIN_USERID);
 				response = new ResponseEntity<>(HttpStatus.OK);
 			} else {
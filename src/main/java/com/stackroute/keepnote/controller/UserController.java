@@ -1,10 +1,13 @@
 package com.stackroute.keepnote.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
@@ -14,11 +17,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.UserService;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 /*
  * As in this assignment, we are working on creating RESTful web service, hence annotate
@@ -40,11 +45,14 @@ public class UserController {
 
 	private UserService userService;
 
+	private HandlerExecutor handlerExecutor;
+
 	public static final String LOGGEDIN_USERID = "loggedInUserId";
 
 	@Autowired
-	public UserController(UserService userService) {
+	public UserController(UserService userService, HandlerExecutor handlerExecutor) {
 		this.userService = userService;
+		this.handlerExecutor = handlerExecutor;
 	}
 
 	/*
@@ -63,21 +71,23 @@ public class UserController {
 	 * method
 	 */
 	@PostMapping(path = "/user/register")
-	public ResponseEntity<?> createUser(@RequestBody User user, HttpSession session) {
-		LOGGER.info("UserController : createUser : Begin");
-		ResponseEntity<User> response = null;
-		try {
-			boolean result = userService.registerUser(user);
-			if (result) {
-				response = new ResponseEntity<>(HttpStatus.CREATED);
-			} else {
+	public CompletableFuture<ResponseEntity<?>> createUser(@RequestBody User user, HttpSession session) {
+		return handlerExecutor.submit("createUser", () -> {
+			LOGGER.info("UserController : createUser : Begin");
+			ResponseEntity<User> response = null;
+			try {
+				boolean result = userService.registerUser(user);
+				if (result) {
+					response = new ResponseEntity<>(HttpStatus.CREATED);
+				} else {
+					response = new ResponseEntity<>(HttpStatus.CONFLICT);
+				}
+			} catch (Exception e) {
 				response = new ResponseEntity<>(HttpStatus.CONFLICT);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.CONFLICT);
-		}
-		LOGGER.info("UserController : createUser : End");
-		return response;
+			LOGGER.info("UserController : createUser : End");
+			return response;
+		});
 	}
 
 	/**
@@ -104,30 +114,42 @@ public class UserController {
 	 * return any one of the status messages basis on different situations: 1.
 	 * 200(OK) - If the user updated successfully. 2. 404(NOT FOUND) - If the user
 	 * with specified userId is not found. 3. 401(UNAUTHORIZED) - If the user trying
-	 * to perform the action has not logged in.
+	 * to perform the action has not logged in as the user {id}; the userId of the
+	 * body is not used. 4. 412(PRECONDITION FAILED) - If the
+	 * user was updated since the version given by If-Match (or by the user itself)
+	 * was read.
 	 * 
 	 * This handler method should map to the URL "/user/{id}" using HTTP PUT method.
 	 */
 	@PutMapping(value = "/user/{id}")
-	public ResponseEntity<?> updateUser(@PathVariable String id, @RequestBody User user, HttpSession session) {
-		LOGGER.info("UserController : updateUser : Begin");
-		ResponseEntity<User> response = null;
-		try {
-			if (isValidUser(session, user.getUserId())) {
-				User result = userService.updateUser(user, id);
-				if (result != null) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> updateUser(@PathVariable String id, @RequestBody User user,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch, HttpSession session) {
+		return handlerExecutor.submit("updateUser", () -> {
+			LOGGER.info("UserController : updateUser : Begin");
+			ResponseEntity<User> response = null;
+			try {
+				if (isValidUser(session, id)) {
+					if (ifMatch != null) {
+						user.setVersion(ETags.parseIfMatch(ifMatch));
+					}
+					User result = userService.updateUser(user, id);
+					if (result != null) {
+						response = new ResponseEntity<>(ETags.headers(ETags.ofVersion(result.getVersion())),
+								HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (OptimisticLockingFailureException e) {
+				response = new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
-		}
-		LOGGER.info("UserController : updateUser : End");
-		return response;
+			LOGGER.info("UserController : updateUser : End");
+			return response;
+		});
 	}
 
 	/*
@@ -143,25 +165,27 @@ public class UserController {
 	 * method" where "id" should be replaced by a valid userId without {}
 	 */
 	@DeleteMapping(value = "/user/{id}")
-	public ResponseEntity<?> deleteUser(@PathVariable String id, HttpSession session) {
-		LOGGER.info("UserController : deleteUser : Begin");
-		ResponseEntity<User> response = null;
-		try {
-			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-				boolean result = userService.deleteUser(id);
-				if (result) {
-					response = new ResponseEntity<>(HttpStatus.OK);
+	public CompletableFuture<ResponseEntity<?>> deleteUser(@PathVariable String id, HttpSession session) {
+		return handlerExecutor.submit("deleteUser", () -> {
+			LOGGER.info("UserController : deleteUser : Begin");
+			ResponseEntity<User> response = null;
+			try {
+				if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+					boolean result = userService.deleteUser(id);
+					if (result) {
+						response = new ResponseEntity<>(HttpStatus.OK);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
 				} else {
-					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 				}
-			} else {
-				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			} catch (Exception e) {
+				response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 			}
-		} catch (Exception e) {
-			response = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
-		LOGGER.info("UserController : deleteUser : End");
-		return response;
+			LOGGER.info("UserController : deleteUser : End");
+			return response;
+		});
 	}
 
 	/*
@@ -175,27 +199,29 @@ public class UserController {
 	 * {}
 	 */
 	@GetMapping(value = "/user/{id}")
-	public ResponseEntity<?> getUserDetails(@PathVariable String id, HttpSession session) {
-		LOGGER.info("UserController : getUserDetails : Begin");
-		ResponseEntity<User> response = null;
-		if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
-			User user;
-			try {
-				user = userService.getUserById(id);
-				if (user != null) {
-					response = ResponseEntity.ok().body(user);
-				} else {
+	public CompletableFuture<ResponseEntity<?>> getUserDetails(@PathVariable String id, HttpSession session) {
+		return handlerExecutor.submit("getUserDetails", () -> {
+			LOGGER.info("UserController : getUserDetails : Begin");
+			ResponseEntity<User> response = null;
+			if (!ObjectUtils.isEmpty(session.getAttribute(LOGGEDIN_USERID))) {
+				User user;
+				try {
+					user = userService.getUserById(id);
+					if (user != null) {
+						response = ResponseEntity.ok().body(user);
+					} else {
+						response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+					}
+				} catch (UserNotFoundException e) {
 					response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
 				}
-			} catch (UserNotFoundException e) {
-				response = new ResponseEntity<>(HttpStatus.NOT_FOUND);
-			}
 
-		} else {
-			response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-		}
-		LOGGER.info("UserController : getUserDetails : End");
-		return response;
+			} else {
+				response = new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+			}
+			LOGGER.info("UserController : getUserDetails : End");
+			return response;
+		});
 	}
 
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
@@ -21,4 +22,8 @@ public interface CategoryDAO {
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException;
 
 	public List<Category> getAllCategoryByUserId(String userId);
+
+	public List<Category> getCategoriesByIds(String userId, Collection<Integer> categoryIds);
+
+	public List<Integer> deleteCategoriesByUserId(String userId, int chunkSize);
 }
@@ -1,19 +1,28 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
-import javax.transaction.Transactional;
 
+import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
 import com.stackroute.keepnote.model.Category;
 
 /*
@@ -29,17 +38,36 @@ import com.stackroute.keepnote.model.Category;
 @Transactional
 public class CategoryDAOImpl implements CategoryDAO {
 
+	/*
+	 * Query cache region holding the result of getAllCategoryByUserId. Hibernate
+	 * invalidates it whenever the Category table is written through a session, so
+	 * create, update and delete below need no explicit eviction.
+	 */
+	private static final String QUERY_CACHE_REGION = "categoryQueries";
+
+	private static final String CATEGORY_IDS_OF_USER = "select categoryId from Category"
+			+ " where categoryCreatedBy = :userId";
+
+	private static final String DELETE_CATEGORIES = "delete from Category where categoryId in (:categoryIds)";
+
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
 	private SessionFactory sessionFactory;
 
+	private ChangeLogDAO changeLogDAO;
+
 	@Autowired
 	public CategoryDAOImpl(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
 
+	@Autowired(required = false)
+	public void setChangeLogDAO(ChangeLogDAO changeLogDAO) {
+		this.changeLogDAO = changeLogDAO;
+	}
+
 	public SessionFactory getSessionFactory() {
 		return this.sessionFactory;
 	}
@@ -52,6 +80,12 @@ public class CategoryDAOImpl implements CategoryDAO {
 		return sessionFactory.getCurrentSession();
 	}
 
+	private void changed(Category category, Operation operation) {
+		if (changeLogDAO != null) {
+			changeLogDAO.record(category.getCategoryCreatedBy(), EntityType.CATEGORY, category.getCategoryId(), operation);
+		}
+	}
+
 	/*
 	 * Create a new category
 	 */
@@ -60,6 +94,7 @@ public class CategoryDAOImpl implements CategoryDAO {
 		try {
 			getSession().save(category);
 			getSession().flush();
+			changed(category, Operation.SAVE);
 			result = true;
 		} catch (HibernateException e) {
 			result = false;
@@ -78,6 +113,7 @@ public class CategoryDAOImpl implements CategoryDAO {
 			if (category != null) {
 				getSession().delete(category);
 				getSession().flush();
+				changed(category, Operation.DELETE);
 				result = true;
 			}
 		} catch (Exception e) {
@@ -86,27 +122,47 @@ public class CategoryDAOImpl implements CategoryDAO {
 		return result;
 	}
 	/*
-	 * Update an existing category
+	 * Update an existing category. Categories are in the second-level cache, so
+	 * checking that it exists usually costs no query. The changes are merged into the cached
+	 * instance, and the flush writes a single UPDATE and refreshes the cache entry.
+	 * A bulk update statement would evict the whole cache region instead.
+	 * A category carrying a version older than the stored one is not updated, and
+	 * OptimisticLockingFailureException is thrown.
+	 * categoryCreatedBy is the user making the request; the category of another
+	 * user is not found.
 	 */
 
 	public boolean updateCategory(Category category) {
 		boolean status = false;
 		try {
-			if (getCategoryById(category.getCategoryId()) != null) {
-				getSession().update(category);
+			Category existing = getSession().get(Category.class, category.getCategoryId());
+			if (existing != null && Objects.equals(existing.getCategoryCreatedBy(), category.getCategoryCreatedBy())) {
+				if (category.getVersion() != null && !category.getVersion().equals(existing.getVersion())) {
+					throw new OptimisticLockingFailureException(
+							"Category " + category.getCategoryId() + " was updated by another request");
+				}
+				if (existing != category) {
+					category.setVersion(existing.getVersion());
+					existing = (Category) getSession().merge(category);
+				}
 				getSession().flush();
+				category.setVersion(existing.getVersion());
+				changed(existing, Operation.SAVE);
 				status = true;
 			}
-		} catch (HibernateException | CategoryNotFoundException e) {
+		} catch (StaleStateException e) {
+			throw new OptimisticLockingFailureException(
+					"Category " + category.getCategoryId() + " was updated by another request", e);
+		} catch (HibernateException e) {
 			status = false;
 		}
 		return status;
-
 	}
 	/*
 	 * Retrieve details of a specific category
 	 */
 
+	@Transactional(readOnly = true)
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException {
 		try {
 			Category category = getSession().get(Category.class, categoryId);
@@ -120,14 +176,57 @@ public class CategoryDAOImpl implements CategoryDAO {
 	}
 
 	/*
-	 * Retrieve details of all categories by userId
+	 * Retrieve details of all categories by userId, loaded read-only without a
+	 * flush, like NoteDAOImpl.getAllNotesByUserId.
 	 */
+	@Transactional(readOnly = true)
 	public List<Category> getAllCategoryByUserId(String userId) {
 		CriteriaBuilder builder = getSession().getCriteriaBuilder();
 		CriteriaQuery<Category> criteriaQuery = builder.createQuery(Category.class);
 		Root<Category> root = criteriaQuery.from(Category.class);
 		criteriaQuery.select(root).where(builder.equal(root.get("categoryCreatedBy"), userId));
-		return getSession().createQuery(criteriaQuery).getResultList();
+		return getSession().createQuery(criteriaQuery)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setCacheable(true)
+				.setCacheRegion(QUERY_CACHE_REGION)
+				.getResultList();
 
 	}
+
+	/*
+	 * Retrieve the categories of a user among the given ids, read by a single IN
+	 * query. Ids of categories that no longer exist or belong to another user are
+	 * skipped.
+	 */
+	@Transactional(readOnly = true)
+	public List<Category> getCategoriesByIds(String userId, Collection<Integer> categoryIds) {
+		List<Category> categories = new ArrayList<>();
+		if (categoryIds.isEmpty()) {
+			return categories;
+		}
+		for (Category category : getSession().byMultipleIds(Category.class).multiLoad(new ArrayList<>(categoryIds))) {
+			if (category != null && userId.equals(category.getCategoryCreatedBy())) {
+				categories.add(category);
+			}
+		}
+		return categories;
+	}
+
+	/*
+	 * Delete the next chunkSize categories of a user, in a transaction of its own,
+	 * and return their ids; an empty list once none is left. The notes of the user
+	 * must have been deleted first (see NoteDAOImpl.deleteNotesByUserId).
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public List<Integer> deleteCategoriesByUserId(String userId, int chunkSize) {
+		List<Integer> categoryIds = getSession().createQuery(CATEGORY_IDS_OF_USER, Integer.class)
+				.setParameter("userId", userId)
+				.setMaxResults(chunkSize)
+				.getResultList();
+		if (!categoryIds.isEmpty()) {
+			getSession().createQuery(DELETE_CATEGORIES).setParameterList("categoryIds", categoryIds).executeUpdate();
+		}
+		return categoryIds;
+	}
 }
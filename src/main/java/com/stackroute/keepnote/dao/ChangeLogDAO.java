@@ -0,0 +1,22 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+
+public interface ChangeLogDAO {
+
+	public void record(String userId, EntityType entityType, int entityId, Operation operation);
+
+	public List<ChangeLogEntry> getChangesSince(String userId, long afterChangeId, int limit);
+
+	public long getLastChangeId(String userId);
+
+	public long getLastChangeId(String userId, Date changedBefore);
+
+	public int deleteChangesByUserId(String userId, int chunkSize);
+
+}
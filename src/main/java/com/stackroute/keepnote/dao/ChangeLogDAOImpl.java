@@ -0,0 +1,192 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+
+/*
+ * Writes and reads the change log. record joins the transaction of the DAO making
+ * the write, so an entry is committed or rolled back together with it; a failure
+ * to log fails the write.
+ *
+ * Inside a transaction the entries are only inserted when it commits, just before
+ * the commit itself, so that the change id of an entry, allocated at insert, is
+ * handed out at most the duration of the commit before the entry becomes visible,
+ * however long the transaction ran (see SyncServiceImpl). Reading or deleting
+ * entries in the same transaction inserts the entries recorded so far first.
+ *
+ * The reads are not marked readOnly: a sync must not read the log from a replica
+ * that is behind the primary (see SyncServiceImpl). They join the transaction of
+ * their caller, so the tag of a list is read where the list is (see ListTags).
+ */
+@Repository
+@Transactional
+public class ChangeLogDAOImpl implements ChangeLogDAO {
+
+	private static final String CHANGES_SINCE = "from ChangeLogEntry where userId = :userId "
+			+ "and changeId > :afterChangeId order by changeId";
+
+	private static final String CHANGE_IDS_OF_USER = "select changeId from ChangeLogEntry where userId = :userId";
+
+	private static final String DELETE_CHANGES = "delete from ChangeLogEntry where changeId in (:changeIds)";
+
+	private static final String LAST_CHANGE_ID = "select max(changeId) from ChangeLogEntry where userId = :userId";
+
+	private static final String LAST_CHANGE_ID_BEFORE = "select max(changeId) from ChangeLogEntry where userId = :userId "
+			+ "and changedAt < :changedBefore";
+
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	public ChangeLogDAOImpl(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	private Session getSession() {
+		return sessionFactory.getCurrentSession();
+	}
+
+	/*
+	 * Log a write to an entity of a user, when the current transaction commits if
+	 * there is one.
+	 */
+	public void record(String userId, EntityType entityType, int entityId, Operation operation) {
+		ChangeLogEntry entry = new ChangeLogEntry(userId, entityType, entityId, operation, null);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			PendingEntries pending = pendingEntries();
+			if (pending == null) {
+				pending = new PendingEntries();
+				TransactionSynchronizationManager.registerSynchronization(pending);
+			}
+			pending.entries.add(entry);
+		} else {
+			insert(entry);
+		}
+	}
+
+	private void insert(ChangeLogEntry entry) {
+		entry.setChangedAt(new Date());
+		getSession().save(entry);
+	}
+
+	/*
+	 * Insert the entries recorded in the current transaction so far, so that a read
+	 * of the log sees them.
+	 */
+	private void insertPending() {
+		PendingEntries pending = pendingEntries();
+		if (pending != null) {
+			pending.insert();
+		}
+	}
+
+	/*
+	 * The entries this DAO recorded in the current transaction. They are kept by a
+	 * synchronization, which Spring suspends together with its transaction.
+	 */
+	private PendingEntries pendingEntries() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof PendingEntries && ((PendingEntries) synchronization).owner() == this) {
+				return (PendingEntries) synchronization;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * The entries of a user after a change id, oldest first, at most limit of them.
+	 * The entries are loaded read-only.
+	 */
+	public List<ChangeLogEntry> getChangesSince(String userId, long afterChangeId, int limit) {
+		insertPending();
+		return getSession().createQuery(CHANGES_SINCE, ChangeLogEntry.class)
+				.setParameter("userId", userId)
+				.setParameter("afterChangeId", afterChangeId)
+				.setMaxResults(limit)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+	}
+
+	/*
+	 * The id of the last entry of a user, or 0 if there is none: the ETag of the
+	 * list endpoints (see ListTags). It joins the transaction of the list, read-only
+	 * or not.
+	 */
+	public long getLastChangeId(String userId) {
+		insertPending();
+		Long changeId = getSession().createQuery(LAST_CHANGE_ID, Long.class)
+				.setParameter("userId", userId)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.uniqueResult();
+		return changeId == null ? 0 : changeId;
+	}
+
+	/*
+	 * The id of the last entry of a user logged before a date, or 0 if there is
+	 * none.
+	 */
+	public long getLastChangeId(String userId, Date changedBefore) {
+		insertPending();
+		Long changeId = getSession().createQuery(LAST_CHANGE_ID_BEFORE, Long.class)
+				.setParameter("userId", userId)
+				.setParameter("changedBefore", changedBefore)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.uniqueResult();
+		return changeId == null ? 0 : changeId;
+	}
+
+	/*
+	 * Delete the next chunkSize entries of a user, in a transaction of its own,
+	 * and return how many were deleted; 0 once none is left.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int deleteChangesByUserId(String userId, int chunkSize) {
+		insertPending();
+		List<Long> changeIds = getSession().createQuery(CHANGE_IDS_OF_USER, Long.class)
+				.setParameter("userId", userId)
+				.setMaxResults(chunkSize)
+				.getResultList();
+		if (changeIds.isEmpty()) {
+			return 0;
+		}
+		return getSession().createQuery(DELETE_CHANGES).setParameterList("changeIds", changeIds).executeUpdate();
+	}
+
+	private final class PendingEntries extends TransactionSynchronizationAdapter {
+
+		private final List<ChangeLogEntry> entries = new ArrayList<>();
+
+		private ChangeLogDAOImpl owner() {
+			return ChangeLogDAOImpl.this;
+		}
+
+		private void insert() {
+			entries.forEach(ChangeLogDAOImpl.this::insert);
+			entries.clear();
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			insert();
+		}
+	}
+}
@@ -1,9 +1,15 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.model.SyncedNote;
 
 public interface NoteDAO {
 
@@ -16,10 +22,38 @@ public interface NoteDAO {
 
 	public boolean deleteNote(int noteId)throws NoteNotFoundException;
 
+	public boolean deleteNote(String userId, int noteId) throws NoteNotFoundException;
+
 	public List<Note> getAllNotesByUserId(String userId);
 
+	public List<NoteSummary> getNoteSummariesByUserId(String userId);
+
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
+	public Note getNoteById(String userId, int noteId, NoteFetchProfile profile) throws NoteNotFoundException;
+
+	public List<Note> getAllNotesByUserId(String userId, NoteFetchProfile profile);
+
 	public boolean UpdateNote(Note note);
 
+	public boolean createNotes(List<Note> notes);
+
+	public List<Note> getNotesByUserId(String userId, int afterNoteId, int limit);
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer);
+
+	public void streamAllNotes(Consumer<Note> consumer);
+
+	public List<SyncedNote> getSyncedNotes(String userId, Collection<Integer> noteIds);
+
+	public List<Integer> deleteNotesByUserId(String userId, int chunkSize);
+
+	public int detachNotesFromCategory(int categoryId, int chunkSize);
+
+	public int detachNotesFromReminder(int reminderId, int chunkSize);
+
+	public int purgeDeletedNotes(Date deletedBefore, int limit);
+
+	public Date getOldestDeletedDate();
+
 }
@@ -1,20 +1,49 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.transaction.Transactional;
 
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncedNote;
+import com.stackroute.keepnote.search.NoteSearchIndex;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -23,23 +52,105 @@ import com.stackroute.keepnote.model.Note;
  * thus clarifying it's role.
  * @Transactional - The transactional annotation itself defines the scope of a single database 
  * 					transaction. The database transaction happens inside the scope of a persistence 
- * 					context.  
+ * 					context. Methods that only read are marked readOnly, which lets
+ * 					ReplicaRoutingDataSource send them to a read replica.
  * */
 @Repository
 @Transactional
 public class NoteDAOImpl implements NoteDAO {
 
+	/*
+	 * Rows fetched per round trip while streaming. With useCursorFetch=true in the
+	 * JDBC url MySQL Connector/J reads through a server-side cursor in blocks of
+	 * this size instead of buffering the whole result in memory.
+	 */
+	private static final int STREAM_FETCH_SIZE = 1000;
+
+	/*
+	 * JPA query hint applying an entity graph: its attributes are fetched with
+	 * joins by the query itself.
+	 */
+	private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+	private static final String UPDATE_NOTE = "update versioned Note set noteTitle = :noteTitle, noteContent = :noteContent, "
+			+ "noteStatus = :noteStatus, createdAt = :createdAt, category = :category, reminder = :reminder "
+			+ "where noteId = :noteId and createdBy = :createdBy and deletedDate is null";
+
+	private static final String CREATOR_OF_NOTE = "select createdBy from Note where noteId = :noteId";
+
+	/*
+	 * A tombstone keeps no link to a category or reminder, so that deleting those
+	 * never has to wait for the compactor.
+	 */
+	private static final String SOFT_DELETE_NOTE = "update versioned Note set deletedDate = :deletedDate, "
+			+ "category = null, reminder = null where noteId = :noteId and deletedDate is null";
+
+	private static final String SOFT_DELETE_OWN_NOTE = SOFT_DELETE_NOTE + " and createdBy = :userId";
+
+	/*
+	 * The statements below that have to see tombstones are SQL, as the @Where
+	 * clause of Note hides them from HQL.
+	 */
+	private static final String NOTE_IDS_OF_USER = "select note_id from Note where note_creator = :userId order by note_id";
+
+	private static final String DELETE_NOTES = "delete from Note where note_id in (:noteIds)";
+
+	private static final String DELETED_NOTE_IDS = "select note_id from Note where note_deleted_date <= :deletedBefore"
+			+ " order by note_deleted_date";
+
+	private static final String OLDEST_DELETED_DATE = "select min(note_deleted_date) from Note";
+
+	private static final String NOTES_OF_CATEGORY = "select noteId, createdBy from Note"
+			+ " where category.categoryId = :id order by noteId";
+
+	private static final String DETACH_CATEGORY = "update versioned Note set category = null where noteId in (:noteIds)";
+
+	private static final String NOTES_OF_REMINDER = "select noteId, createdBy from Note"
+			+ " where reminder.reminderId = :id order by noteId";
+
+	private static final String DETACH_REMINDER = "update versioned Note set reminder = null where noteId in (:noteIds)";
+
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
 	private SessionFactory sessionFactory;
+
+	/*
+	 * The search index and the change log are optional so that the DAO can
+	 * still be used on its own, e.g. in tests constructing it with just a
+	 * SessionFactory.
+	 */
+	private NoteSearchIndex noteSearchIndex;
+
+	private ChangeLogDAO changeLogDAO;
+
+	/*
+	 * Off unless keepnote.notes.soft-delete is set, so that a DAO constructed on
+	 * its own deletes rows as it always did.
+	 */
+	@Value("${keepnote.notes.soft-delete:false}")
+	private boolean softDelete;
 	
 	@Autowired
 	public NoteDAOImpl(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
+
+	@Autowired(required = false)
+	public void setNoteSearchIndex(NoteSearchIndex noteSearchIndex) {
+		this.noteSearchIndex = noteSearchIndex;
+	}
 	
+	@Autowired(required = false)
+	public void setChangeLogDAO(ChangeLogDAO changeLogDAO) {
+		this.changeLogDAO = changeLogDAO;
+	}
+
+	public void setSoftDelete(boolean softDelete) {
+		this.softDelete = softDelete;
+	}
+
 	public SessionFactory getSessionFactory() {
 		return this.sessionFactory;
 	}
@@ -53,7 +164,38 @@ public class NoteDAOImpl implements NoteDAO {
 	}
 
 	/*
-	 * Create a new note
+	 * Run an index update once the current transaction has committed, so that
+	 * rolled back writes never reach the search index.
+	 */
+	private void afterCommit(Runnable indexUpdate) {
+		if (noteSearchIndex == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					indexUpdate.run();
+				}
+			});
+		} else {
+			indexUpdate.run();
+		}
+	}
+
+	/*
+	 * Log a write to a note for the sync endpoint and the ETags of the lists.
+	 */
+	private void changed(Note note, Operation operation) {
+		if (changeLogDAO != null) {
+			changeLogDAO.record(note.getCreatedBy(), EntityType.NOTE, note.getNoteId(), operation);
+		}
+	}
+
+	/*
+	 * Create a new note. Its noteId is taken from the sequence, whatever the note
+	 * had, so it never conflicts with an existing note; false means the insert
+	 * failed.
 	 */
 	
 	public boolean createNote(Note note) {
@@ -61,6 +203,8 @@ public class NoteDAOImpl implements NoteDAO {
 		try {
 			getSession().save(note);
 			getSession().flush();
+			afterCommit(() -> noteSearchIndex.index(note));
+			changed(note, Operation.SAVE);
 			result =  true;
 		} catch (HibernateException e) {
 			result =  false;
@@ -70,43 +214,184 @@ public class NoteDAOImpl implements NoteDAO {
 	}
 
 	/*
-	 * Remove an existing note
+	 * Create a chunk of new notes. The inserts are sent as JDBC batches of
+	 * hibernate.jdbc.batch_size statements by the single flush at the end, and the
+	 * session is cleared afterwards so saved notes do not pile up in it.
+	 */
+
+	public boolean createNotes(List<Note> notes) {
+		boolean result = false;
+		try {
+			for (Note note : notes) {
+				getSession().save(note);
+			}
+			getSession().flush();
+			getSession().clear();
+			afterCommit(() -> notes.forEach(note -> noteSearchIndex.index(note)));
+			notes.forEach(note -> changed(note, Operation.SAVE));
+			result = true;
+		} catch (HibernateException e) {
+			result = false;
+		}
+		return result;
+	}
+
+	/*
+	 * Remove an existing note. In soft-delete mode the note is not read: a single
+	 * UPDATE by primary key turns it into a tombstone, preceded by a select of its
+	 * creator when the change log is kept. Otherwise the note is loaded and
+	 * deleted.
 	 */
 	
 	public boolean deleteNote(int noteId) throws NoteNotFoundException {
+		return removeNote(noteId, null);
+	}
+
+	/*
+	 * Remove an existing note of userId, as deleteNote(noteId) does. The note of
+	 * another user is not found; in soft-delete mode the UPDATE matches the
+	 * creator too, and the creator needs no select.
+	 */
+
+	public boolean deleteNote(String userId, int noteId) throws NoteNotFoundException {
+		if (userId == null) {
+			throw new NoteNotFoundException("Note not found");
+		}
+		return removeNote(noteId, userId);
+	}
+
+	private boolean removeNote(int noteId, String userId) throws NoteNotFoundException {
 		boolean result = false;
 		try {
-			Note note = getSession().get(Note.class, noteId);
-			if (note != null) {
-				getSession().delete(note);
-				getSession().flush();
-				result = true;
+			if (softDelete) {
+				result = softDeleteNote(noteId, userId);
 			} else {
-				throw new NoteNotFoundException("Note not found");
+				Note note = getSession().get(Note.class, noteId);
+				if (note != null && (userId == null || userId.equals(note.getCreatedBy()))) {
+					getSession().delete(note);
+					getSession().flush();
+					afterCommit(() -> noteSearchIndex.remove(noteId));
+					changed(note, Operation.DELETE);
+					result = true;
+				}
 			}
 		} catch (Exception e) {
 			throw new NoteNotFoundException("Note not found");
 		}
+		if (!result) {
+			throw new NoteNotFoundException("Note not found");
+		}
 		return result;
 	}
 
+	private boolean softDeleteNote(int noteId, String userId) {
+		String createdBy = userId;
+		if (createdBy == null && changeLogDAO != null) {
+			createdBy = getSession().createQuery(CREATOR_OF_NOTE, String.class)
+					.setParameter("noteId", noteId)
+					.uniqueResult();
+			if (createdBy == null) {
+				return false;
+			}
+		}
+		Query<?> query = getSession().createQuery(userId == null ? SOFT_DELETE_NOTE : SOFT_DELETE_OWN_NOTE)
+				.setParameter("deletedDate", new Date())
+				.setParameter("noteId", noteId);
+		if (userId != null) {
+			query.setParameter("userId", userId);
+		}
+		int deleted = query.executeUpdate();
+		if (deleted == 0) {
+			return false;
+		}
+		// a copy of the note loaded earlier in this session would still be returned by get()
+		getSession().detach(getSession().load(Note.class, noteId));
+		afterCommit(() -> noteSearchIndex.remove(noteId));
+		if (changeLogDAO != null) {
+			changeLogDAO.record(createdBy, EntityType.NOTE, noteId, Operation.DELETE);
+		}
+		return true;
+	}
+
 	/*
-	 * Retrieve details of all notes by userId
+	 * Retrieve details of all notes by userId. The notes are loaded read-only, so
+	 * Hibernate keeps no snapshot of them for dirty checking, and the query does
+	 * not flush the session first. This also holds when the call joins a
+	 * read-write transaction, where the readOnly flag of the method has no effect.
 	 */
 	
+	@Transactional(readOnly = true)
 	public List<Note> getAllNotesByUserId(String userId) {
 		CriteriaBuilder builder = getSession().getCriteriaBuilder();
 		CriteriaQuery<Note> criteriaQuery = builder.createQuery(Note.class);
 		Root<Note> root = criteriaQuery.from(Note.class);
 		criteriaQuery.select(root).where(builder.equal(root.get("createdBy"), userId));
-		return getSession().createQuery(criteriaQuery).getResultList();
+		return getSession().createQuery(criteriaQuery)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+
+	}
+
+	/*
+	 * Retrieve the list view of all notes by userId. A single query selects only
+	 * the columns of NoteSummary, left joining the category and reminder names, and
+	 * builds the summaries from them, so no Note entity is loaded at all.
+	 */
+
+	@Transactional(readOnly = true)
+	public List<NoteSummary> getNoteSummariesByUserId(String userId) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<NoteSummary> criteriaQuery = builder.createQuery(NoteSummary.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		Join<Note, Category> category = root.join("category", JoinType.LEFT);
+		Join<Note, Reminder> reminder = root.join("reminder", JoinType.LEFT);
+		criteriaQuery.select(builder.construct(NoteSummary.class, root.get("noteId"), root.get("noteTitle"),
+				root.get("noteStatus"), root.get("createdAt"), category.get("categoryId"),
+				category.get("categoryName"), reminder.get("reminderId"), reminder.get("reminderName")))
+				.where(builder.equal(root.get("createdBy"), userId))
+				.orderBy(builder.asc(root.get("noteId")));
+		return getSession().createQuery(criteriaQuery)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+	}
+
+	/*
+	 * Retrieve the sync state of notes of a user: all of them when noteIds is null,
+	 * otherwise only those among the given ids. Like the list view, the rows are
+	 * built by a single query from the columns, with the ids of the category and
+	 * reminder taken from the left joins.
+	 */
 
+	@Transactional(readOnly = true)
+	public List<SyncedNote> getSyncedNotes(String userId, Collection<Integer> noteIds) {
+		if (noteIds != null && noteIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<SyncedNote> criteriaQuery = builder.createQuery(SyncedNote.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		Join<Note, Category> category = root.join("category", JoinType.LEFT);
+		Join<Note, Reminder> reminder = root.join("reminder", JoinType.LEFT);
+		Predicate predicate = builder.equal(root.get("createdBy"), userId);
+		if (noteIds != null) {
+			predicate = builder.and(predicate, root.get("noteId").in(noteIds));
+		}
+		criteriaQuery.select(builder.construct(SyncedNote.class, root.get("noteId"), root.get("noteTitle"),
+				root.get("noteContent"), root.get("noteStatus"), root.get("createdAt"), category.get("categoryId"),
+				reminder.get("reminderId"), root.get("version")))
+				.where(predicate)
+				.orderBy(builder.asc(root.get("noteId")));
+		return getSession().createQuery(criteriaQuery)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
 	}
 
 	/*
 	 * Retrieve details of a specific note
 	 */
 	
+	@Transactional(readOnly = true)
 	public Note getNoteById(int noteId) throws NoteNotFoundException {
 		try {
 			Note note = getSession().get(Note.class, noteId);
@@ -120,22 +405,298 @@ public class NoteDAOImpl implements NoteDAO {
 	}
 
 	/*
-	 * Update an existing note
+	 * Retrieve details of a specific note of a userId together with the
+	 * associations of the fetch profile, in a single join query. A note of another
+	 * user is not found. Its version becomes the ETag sent back in If-Match, so it
+	 * is read from the primary rather than a replica that may be behind.
+	 */
+
+	@Transactional
+	public Note getNoteById(String userId, int noteId, NoteFetchProfile profile) throws NoteNotFoundException {
+		List<Note> notes = getNotes(profile, (builder, root) -> builder.and(
+				builder.equal(root.get("noteId"), noteId), builder.equal(root.get("createdBy"), userId)));
+		if (notes.isEmpty()) {
+			throw new NoteNotFoundException("Note not found");
+		}
+		return notes.get(0);
+	}
+
+	/*
+	 * Retrieve details of all notes by userId together with the associations of
+	 * the fetch profile, in a single join query.
+	 */
+
+	@Transactional(readOnly = true)
+	public List<Note> getAllNotesByUserId(String userId, NoteFetchProfile profile) {
+		return getNotes(profile, (builder, root) -> builder.equal(root.get("createdBy"), userId));
+	}
+
+	/*
+	 * Run a note query with the entity graph of the fetch profile, and return
+	 * detached copies of the notes: the associations of the profile are unproxied,
+	 * the others set to null, so the notes serialize without a session and
+	 * without further selects. The managed notes themselves are left untouched.
+	 */
+	private List<Note> getNotes(NoteFetchProfile profile,
+			BiFunction<CriteriaBuilder, Root<Note>, Predicate> restriction) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = builder.createQuery(Note.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery.select(root).where(restriction.apply(builder, root))
+				.orderBy(builder.asc(root.get("noteId")));
+		List<Note> notes = getSession().createQuery(criteriaQuery)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setHint(FETCH_GRAPH_HINT, getSession().getEntityGraph(profile.getGraphName()))
+				.getResultList();
+		List<Note> copies = new ArrayList<>(notes.size());
+		for (Note note : notes) {
+			Category category = profile == NoteFetchProfile.SUMMARY ? null
+					: (Category) Hibernate.unproxy(note.getCategory());
+			Reminder reminder = profile == NoteFetchProfile.FULL ? (Reminder) Hibernate.unproxy(note.getReminder())
+					: null;
+			Note copy = new Note(note.getNoteId(), note.getNoteTitle(), note.getNoteContent(), note.getNoteStatus(),
+					note.getNoteCreatedAt(), category, reminder, note.getCreatedBy());
+			copy.setVersion(note.getVersion());
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	/*
+	 * Update an existing note. A note read in this session is written by flushing
+	 * it. Any other note is written by a single UPDATE statement, without reading
+	 * the row first; the note does not exist when no row was updated. Either way
+	 * the version of the note is incremented.
+	 *
+	 * createdBy is the user making the request. The statement only matches a note
+	 * of that user and never changes its owner, so the note of another user is
+	 * not found.
+	 *
+	 * A note carrying a version is only updated if the row still has that version.
+	 * If another update got there first, OptimisticLockingFailureException is
+	 * thrown; telling it apart from a missing note costs one more select, on that
+	 * path only.
 	 */
 
 	public boolean UpdateNote(Note note) {
 		boolean status = false; 
 		try {
-			if(getNoteById(note.getNoteId()) != null){
-				getSession().update(note);
+			if (getSession().contains(note)) {
 				getSession().flush();
 				status = true;
+			} else {
+				Integer version = note.getVersion();
+				Query<?> query = getSession()
+						.createQuery(version == null ? UPDATE_NOTE : UPDATE_NOTE + " and version = :version")
+						.setParameter("noteTitle", note.getNoteTitle())
+						.setParameter("noteContent", note.getNoteContent())
+						.setParameter("noteStatus", note.getNoteStatus())
+						.setParameter("createdAt", note.getNoteCreatedAt())
+						.setParameter("category", note.getCategory())
+						.setParameter("reminder", note.getReminder())
+						.setParameter("createdBy", note.getCreatedBy())
+						.setParameter("noteId", note.getNoteId());
+				if (version != null) {
+					query.setParameter("version", version);
+				}
+				status = query.executeUpdate() == 1;
+				if (status && version != null) {
+					note.setVersion(version + 1);
+				} else if (!status && version != null && note.getCreatedBy() != null
+						&& note.getCreatedBy().equals(getSession().createQuery(CREATOR_OF_NOTE, String.class)
+								.setParameter("noteId", note.getNoteId())
+								.uniqueResult())) {
+					throw new OptimisticLockingFailureException(
+							"Note " + note.getNoteId() + " was updated by another request");
+				}
 			}
-		} catch (HibernateException | NoteNotFoundException e) {
+			if (status) {
+				afterCommit(() -> noteSearchIndex.index(note));
+				changed(note, Operation.SAVE);
+			}
+		} catch (StaleStateException e) {
+			throw new OptimisticLockingFailureException(
+					"Note " + note.getNoteId() + " was updated by another request", e);
+		} catch (HibernateException e) {
 			status = false;
 		}
 		return status;
 
 	}
 
+	/*
+	 * Retrieve one page of notes by userId using the noteId of the last note of the
+	 * previous page as the cursor, so every page is a single index range scan no
+	 * matter how deep the client has paged. Loaded read-only, like
+	 * getAllNotesByUserId.
+	 */
+
+	@Transactional(readOnly = true)
+	public List<Note> getNotesByUserId(String userId, int afterNoteId, int limit) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = builder.createQuery(Note.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		root.fetch("category", JoinType.LEFT);
+		root.fetch("reminder", JoinType.LEFT);
+		criteriaQuery.select(root)
+				.where(builder.equal(root.get("createdBy"), userId), builder.gt(root.get("noteId"), afterNoteId))
+				.orderBy(builder.asc(root.get("noteId")));
+		return getSession().createQuery(criteriaQuery)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setMaxResults(limit)
+				.getResultList();
+	}
+
+	/*
+	 * Stream all notes of a userId to the consumer one at a time. Each note is
+	 * detached once it has been consumed so the persistence context, and the heap,
+	 * stays flat regardless of how many notes the user has.
+	 */
+
+	@Transactional(readOnly = true)
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = builder.createQuery(Note.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		root.fetch("category", JoinType.LEFT);
+		root.fetch("reminder", JoinType.LEFT);
+		criteriaQuery.select(root).where(builder.equal(root.get("createdBy"), userId))
+				.orderBy(builder.asc(root.get("noteId")));
+		scroll(criteriaQuery, consumer);
+	}
+
+	/*
+	 * Stream every note in the table to the consumer, in the same flat-memory way
+	 * as streamNotesByUserId. Used to rebuild the search index.
+	 */
+
+	@Transactional(readOnly = true)
+	public void streamAllNotes(Consumer<Note> consumer) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = builder.createQuery(Note.class);
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery.select(root);
+		scroll(criteriaQuery, consumer);
+	}
+
+	/*
+	 * Scroll through the results of a query with a forward-only cursor, detaching
+	 * each note once the consumer is done with it.
+	 */
+	private void scroll(CriteriaQuery<Note> criteriaQuery, Consumer<Note> consumer) {
+		ScrollableResults results = getSession().createQuery(criteriaQuery)
+				.setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setCacheMode(CacheMode.IGNORE)
+				.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Note note = (Note) results.get(0);
+				consumer.accept(note);
+				getSession().detach(note);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Delete the next chunkSize notes of a user, oldest id first, and return their
+	 * ids; an empty list once the user has no note left. Each chunk is a select of
+	 * ids on the creator index and one DELETE statement, in a transaction of its
+	 * own even when called inside another one, so that purging a large account
+	 * holds row locks for one chunk at a time (see BulkDeleteServiceImpl). No
+	 * change is logged: the change log of the user goes with them.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public List<Integer> deleteNotesByUserId(String userId, int chunkSize) {
+		List<Integer> noteIds = selectNoteIds(getSession().createNativeQuery(NOTE_IDS_OF_USER)
+				.setParameter("userId", userId), chunkSize);
+		if (!noteIds.isEmpty()) {
+			deleteRows(noteIds);
+			afterCommit(() -> noteIds.forEach(noteSearchIndex::remove));
+		}
+		return noteIds;
+	}
+
+	/*
+	 * Remove the next chunkSize notes of a category from it, and return how many
+	 * were; 0 once the category has no note left, and can be deleted. Like
+	 * deleteNotesByUserId each chunk has a transaction of its own. The detached
+	 * notes get a new version and are logged as changed.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int detachNotesFromCategory(int categoryId, int chunkSize) {
+		return detachNotes(NOTES_OF_CATEGORY, DETACH_CATEGORY, categoryId, chunkSize);
+	}
+
+	/*
+	 * Remove the next chunkSize notes of a reminder from it, as
+	 * detachNotesFromCategory does for a category.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int detachNotesFromReminder(int reminderId, int chunkSize) {
+		return detachNotes(NOTES_OF_REMINDER, DETACH_REMINDER, reminderId, chunkSize);
+	}
+
+	private int detachNotes(String selectNotes, String detach, int id, int chunkSize) {
+		List<Object[]> notes = getSession().createQuery(selectNotes, Object[].class)
+				.setParameter("id", id)
+				.setMaxResults(chunkSize)
+				.getResultList();
+		if (notes.isEmpty()) {
+			return 0;
+		}
+		List<Integer> noteIds = new ArrayList<>(notes.size());
+		notes.forEach(note -> noteIds.add((Integer) note[0]));
+		getSession().createQuery(detach).setParameterList("noteIds", noteIds).executeUpdate();
+		if (changeLogDAO != null) {
+			for (Object[] note : notes) {
+				changeLogDAO.record((String) note[1], EntityType.NOTE, (Integer) note[0], Operation.SAVE);
+			}
+		}
+		return notes.size();
+	}
+
+	/*
+	 * Purge the next limit tombstones deleted at or before deletedBefore, oldest
+	 * first, and return how many were; fewer than limit once none is left. Like
+	 * deleteNotesByUserId each batch has a transaction of its own. The notes left
+	 * the search index and the change log when they were deleted.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int purgeDeletedNotes(Date deletedBefore, int limit) {
+		List<Integer> noteIds = selectNoteIds(getSession().createNativeQuery(DELETED_NOTE_IDS)
+				.setParameter("deletedBefore", deletedBefore), limit);
+		if (!noteIds.isEmpty()) {
+			deleteRows(noteIds);
+		}
+		return noteIds.size();
+	}
+
+	/*
+	 * Deletion date of the oldest tombstone, or null if there is none. The
+	 * minimum is read from the end of the deleted date index.
+	 */
+	public Date getOldestDeletedDate() {
+		return (Date) getSession().createNativeQuery(OLDEST_DELETED_DATE).uniqueResult();
+	}
+
+	private List<Integer> selectNoteIds(NativeQuery<?> query, int limit) {
+		List<Integer> noteIds = new ArrayList<>();
+		for (Object noteId : query.setMaxResults(limit).getResultList()) {
+			noteIds.add(((Number) noteId).intValue());
+		}
+		return noteIds;
+	}
+
+	private void deleteRows(List<Integer> noteIds) {
+		getSession().createNativeQuery(DELETE_NOTES)
+				.setParameterList("noteIds", noteIds)
+				.addSynchronizedEntityClass(Note.class)
+				.executeUpdate();
+	}
 }
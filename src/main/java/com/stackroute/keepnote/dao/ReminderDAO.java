@@ -1,8 +1,11 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.DueReminder;
 import com.stackroute.keepnote.model.Reminder;
 
 public interface ReminderDAO {
@@ -20,4 +23,16 @@ public interface ReminderDAO {
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException;
 
 	public List<Reminder> getAllReminderByUserId(String userId);
+
+	public List<Reminder> getRemindersByIds(String userId, Collection<Integer> reminderIds);
+
+	public List<DueReminder> getPendingReminders(Date dueAfter, int idAfter, Date dueUntil, int limit);
+
+	public List<DueReminder> getDueReminders(Collection<Integer> reminderIds);
+
+	public List<Integer> claimReminders(Collection<Integer> reminderIds, Date firedDate, String claim);
+
+	public int releaseReminders(Collection<Integer> reminderIds, String claim);
+
+	public List<Integer> deleteRemindersByUserId(String userId, int chunkSize);
 }
@@ -1,21 +1,40 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CompoundSelection;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.transaction.Transactional;
 
+import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.ObjectUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+import com.stackroute.keepnote.model.DueReminder;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.reminder.ReminderSchedule;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -29,17 +48,55 @@ import com.stackroute.keepnote.model.Reminder;
 @Repository
 @Transactional
 public class ReminderDAOImpl implements ReminderDAO {
+
+	/*
+	 * Query cache region holding the result of getAllReminderByUserId. Hibernate
+	 * invalidates it whenever the Reminder table is written through a session, so
+	 * create, update and delete below need no explicit eviction.
+	 */
+	private static final String QUERY_CACHE_REGION = "reminderQueries";
+
+	private static final String REMINDER_NOTE_IDS = "select note.reminder.reminderId, note.noteId from Note note"
+			+ " where note.reminder.reminderId in (:reminderIds) order by note.noteId";
+
+	private static final String REMINDER_IDS_OF_USER = "select reminderId from Reminder"
+			+ " where reminderCreatedBy = :userId";
+
+	private static final String DELETE_REMINDERS = "delete from Reminder where reminderId in (:reminderIds)";
+
+	private static final String CLAIM = "update Reminder set firedDate = :firedDate, firedBy = :claim"
+			+ " where reminderId in (:reminderIds) and firedDate is null and dueDate <= :firedDate";
+
+	private static final String CLAIMED_IDS = "select reminderId from Reminder"
+			+ " where reminderId in (:reminderIds) and firedBy = :claim order by dueDate, reminderId";
+
+	private static final String RELEASE = "update Reminder set firedDate = null, firedBy = null"
+			+ " where reminderId in (:reminderIds) and firedBy = :claim";
 	
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
 	private SessionFactory sessionFactory;
+
+	private ChangeLogDAO changeLogDAO;
+
+	private ReminderSchedule reminderSchedule;
 	
 	@Autowired
 	public ReminderDAOImpl(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
+
+	@Autowired(required = false)
+	public void setChangeLogDAO(ChangeLogDAO changeLogDAO) {
+		this.changeLogDAO = changeLogDAO;
+	}
+	
+	@Autowired(required = false)
+	public void setReminderSchedule(ReminderSchedule reminderSchedule) {
+		this.reminderSchedule = reminderSchedule;
+	}
 	
 	public SessionFactory getSessionFactory() {
 		return this.sessionFactory;
@@ -54,6 +111,32 @@ public class ReminderDAOImpl implements ReminderDAO {
 		return sessionFactory.getCurrentSession();
 	}
 
+	/*
+	 * Pass a written reminder to the ReminderSchedule once the transaction has
+	 * committed, so that a reminder is never fired for a rolled back write.
+	 */
+	private void afterCommit(Runnable scheduleUpdate) {
+		if (reminderSchedule == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					scheduleUpdate.run();
+				}
+			});
+		} else {
+			scheduleUpdate.run();
+		}
+	}
+
+	private void changed(Reminder reminder, Operation operation) {
+		if (changeLogDAO != null) {
+			changeLogDAO.record(reminder.getReminderCreatedBy(), EntityType.REMINDER, reminder.getReminderId(), operation);
+		}
+	}
+
 	/*
 	 * Create a new reminder
 	 */
@@ -63,6 +146,8 @@ public class ReminderDAOImpl implements ReminderDAO {
 		try {
 			getSession().save(reminder);
 			getSession().flush();
+			afterCommit(() -> reminderSchedule.schedule(reminder));
+			changed(reminder, Operation.SAVE);
 			result =  true;
 		} catch (HibernateException e) {
 			result =  false;
@@ -72,18 +157,45 @@ public class ReminderDAOImpl implements ReminderDAO {
 	}
 	
 	/*
-	 * Update an existing reminder
+	 * Update an existing reminder. Reminders are in the second-level cache, so
+	 * checking that it exists usually costs no query. The changes are merged into the cached
+	 * instance, and the flush writes a single UPDATE and refreshes the cache entry.
+	 * A bulk update statement would evict the whole cache region instead.
+	 * A reminder carrying a version older than the stored one is not updated, and
+	 * OptimisticLockingFailureException is thrown.
+	 * The fired date is kept from the stored reminder, unless the due date changed:
+	 * then the reminder fires again at its new due date.
+	 * reminderCreatedBy is the user making the request; the reminder of another
+	 * user is not found.
 	 */
 
 	public boolean updateReminder(Reminder reminder) {
-		boolean status = false; 
+		boolean status = false;
 		try {
-			if(getReminderById(reminder.getReminderId()) != null){
-				getSession().update(reminder);
+			Reminder existing = getSession().get(Reminder.class, reminder.getReminderId());
+			if (existing != null && Objects.equals(existing.getReminderCreatedBy(), reminder.getReminderCreatedBy())) {
+				if (reminder.getVersion() != null && !reminder.getVersion().equals(existing.getVersion())) {
+					throw new OptimisticLockingFailureException(
+							"Reminder " + reminder.getReminderId() + " was updated by another request");
+				}
+				if (existing != reminder) {
+					reminder.setVersion(existing.getVersion());
+					boolean sameDue = sameInstant(reminder.getDueDate(), existing.getDueDate());
+					reminder.setFiredDate(sameDue ? existing.getFiredDate() : null);
+					reminder.setFiredBy(sameDue ? existing.getFiredBy() : null);
+					existing = (Reminder) getSession().merge(reminder);
+				}
 				getSession().flush();
+				reminder.setVersion(existing.getVersion());
+				Reminder updated = existing;
+				afterCommit(() -> reminderSchedule.schedule(updated));
+				changed(existing, Operation.SAVE);
 				status = true;
 			}
-		} catch (HibernateException | ReminderNotFoundException e) {
+		} catch (StaleStateException e) {
+			throw new OptimisticLockingFailureException(
+					"Reminder " + reminder.getReminderId() + " was updated by another request", e);
+		} catch (HibernateException e) {
 			status = false;
 		}
 		return status;
@@ -100,6 +212,8 @@ public class ReminderDAOImpl implements ReminderDAO {
 			if (reminder != null) {
 				getSession().delete(reminder);
 				getSession().flush();
+				afterCommit(() -> reminderSchedule.cancel(reminderId));
+				changed(reminder, Operation.DELETE);
 				result = true;
 			}
 		} catch (Exception e) {
@@ -110,9 +224,12 @@ public class ReminderDAOImpl implements ReminderDAO {
 	}
 
 	/*
-	 * Retrieve details of a specific reminder
+	 * Retrieve details of a specific reminder. Its version becomes the ETag sent
+	 * back in If-Match, so it is read from the primary, like
+	 * NoteDAOImpl.getNoteById.
 	 */
 	
+	@Transactional
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException {
 		try {
 			Reminder reminder = getSession().get(Reminder.class, reminderId);
@@ -127,15 +244,171 @@ public class ReminderDAOImpl implements ReminderDAO {
 	}
 
 	/*
-	 * Retrieve details of all reminders by userId
+	 * Retrieve details of all reminders by userId, loaded read-only without a
+	 * flush, like NoteDAOImpl.getAllNotesByUserId.
 	 */
 	
+	@Transactional(readOnly = true)
 	public List<Reminder> getAllReminderByUserId(String userId) {
 		CriteriaBuilder builder = getSession().getCriteriaBuilder();
 		CriteriaQuery<Reminder> criteriaQuery = builder.createQuery(Reminder.class);
 		Root<Reminder> root = criteriaQuery.from(Reminder.class);
 		criteriaQuery.select(root).where(builder.equal(root.get("reminderCreatedBy"), userId));
-		return getSession().createQuery(criteriaQuery).getResultList();
+		return getSession().createQuery(criteriaQuery)
+				.setReadOnly(true)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setCacheable(true)
+				.setCacheRegion(QUERY_CACHE_REGION)
+				.getResultList();
 	}
 
+	/*
+	 * Retrieve the reminders of a user among the given ids, read by a single IN
+	 * query. Ids of reminders that no longer exist or belong to another user are
+	 * skipped.
+	 */
+	@Transactional(readOnly = true)
+	public List<Reminder> getRemindersByIds(String userId, Collection<Integer> reminderIds) {
+		List<Reminder> reminders = new ArrayList<>();
+		if (reminderIds.isEmpty()) {
+			return reminders;
+		}
+		for (Reminder reminder : getSession().byMultipleIds(Reminder.class).multiLoad(new ArrayList<>(reminderIds))) {
+			if (reminder != null && userId.equals(reminder.getReminderCreatedBy())) {
+				reminders.add(reminder);
+			}
+		}
+		return reminders;
+	}
+
+	/*
+	 * Retrieve the reminders not fired yet that are due up to dueUntil, in
+	 * (dueDate, reminderId) order, starting after (dueAfter, idAfter) when dueAfter
+	 * is given; limit reminders at most. The ReminderScheduler pages through a
+	 * window of due dates with it. The reminders are read from the primary
+	 * database: a replica may not have a reminder that was just created yet.
+	 */
+	public List<DueReminder> getPendingReminders(Date dueAfter, int idAfter, Date dueUntil, int limit) {
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<DueReminder> criteriaQuery = builder.createQuery(DueReminder.class);
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		Path<Date> dueDate = root.get("dueDate");
+		Path<Integer> reminderId = root.get("reminderId");
+		Predicate predicate = builder.and(builder.isNull(root.get("firedDate")),
+				builder.lessThanOrEqualTo(dueDate, dueUntil));
+		if (dueAfter != null) {
+			predicate = builder.and(predicate, builder.or(builder.greaterThan(dueDate, dueAfter),
+					builder.and(builder.equal(dueDate, dueAfter), builder.greaterThan(reminderId, idAfter))));
+		}
+		criteriaQuery.select(dueReminder(builder, root))
+				.where(predicate)
+				.orderBy(builder.asc(dueDate), builder.asc(reminderId));
+		return getSession().createQuery(criteriaQuery)
+				.setMaxResults(limit)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+	}
+
+	/*
+	 * Retrieve the reminders among the given ids that have a due date and are not
+	 * fired yet, with the ids of their notes: two queries for the whole batch.
+	 */
+	public List<DueReminder> getDueReminders(Collection<Integer> reminderIds) {
+		if (reminderIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		CriteriaBuilder builder = getSession().getCriteriaBuilder();
+		CriteriaQuery<DueReminder> criteriaQuery = builder.createQuery(DueReminder.class);
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		criteriaQuery.select(dueReminder(builder, root))
+				.where(root.get("reminderId").in(reminderIds), builder.isNull(root.get("firedDate")),
+						builder.isNotNull(root.get("dueDate")))
+				.orderBy(builder.asc(root.get("dueDate")), builder.asc(root.get("reminderId")));
+		List<DueReminder> reminders = getSession().createQuery(criteriaQuery)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+		if (reminders.isEmpty()) {
+			return reminders;
+		}
+		Map<Integer, DueReminder> byId = new HashMap<>();
+		reminders.forEach(reminder -> byId.put(reminder.getReminderId(), reminder));
+		List<Object[]> notes = getSession().createQuery(REMINDER_NOTE_IDS, Object[].class)
+				.setParameterList("reminderIds", byId.keySet())
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.getResultList();
+		for (Object[] note : notes) {
+			byId.get(note[0]).getNoteIds().add((Integer) note[1]);
+		}
+		return reminders;
+	}
+
+	/*
+	 * Claim the given reminders that are due at firedDate and not fired yet, by
+	 * setting their fired date and firedBy to claim, and return the ids of those
+	 * this claim got: a reminder claimed by another node in the meantime is not
+	 * updated again, as the UPDATE only takes reminders not fired yet and the
+	 * database lets one transaction update a row at a time. Being a
+	 * bulk statement, it evicts the Reminder region of the second-level cache, once
+	 * per batch. The version is not incremented: firing does not conflict with the
+	 * updates of the user.
+	 */
+	public List<Integer> claimReminders(Collection<Integer> reminderIds, Date firedDate, String claim) {
+		if (reminderIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		int claimed = getSession().createQuery(CLAIM)
+				.setParameter("firedDate", firedDate)
+				.setParameter("claim", claim)
+				.setParameterList("reminderIds", reminderIds)
+				.executeUpdate();
+		if (claimed == 0) {
+			return new ArrayList<>();
+		}
+		return getSession().createQuery(CLAIMED_IDS, Integer.class)
+				.setParameter("claim", claim)
+				.setParameterList("reminderIds", reminderIds)
+				.getResultList();
+	}
+
+	/*
+	 * Give back the given reminders still held by claim, when notifying them
+	 * failed, so that they can be claimed again. Returns how many were released.
+	 */
+	public int releaseReminders(Collection<Integer> reminderIds, String claim) {
+		if (reminderIds.isEmpty()) {
+			return 0;
+		}
+		return getSession().createQuery(RELEASE)
+				.setParameter("claim", claim)
+				.setParameterList("reminderIds", reminderIds)
+				.executeUpdate();
+	}
+
+	/*
+	 * Delete the next chunkSize reminders of a user, in a transaction of its own,
+	 * and return their ids; an empty list once none is left. The notes of the user
+	 * must have been deleted first. The reminders are taken out of the
+	 * ReminderSchedule once the chunk is committed.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public List<Integer> deleteRemindersByUserId(String userId, int chunkSize) {
+		List<Integer> reminderIds = getSession().createQuery(REMINDER_IDS_OF_USER, Integer.class)
+				.setParameter("userId", userId)
+				.setMaxResults(chunkSize)
+				.getResultList();
+		if (!reminderIds.isEmpty()) {
+			getSession().createQuery(DELETE_REMINDERS).setParameterList("reminderIds", reminderIds).executeUpdate();
+			afterCommit(() -> reminderIds.forEach(reminderSchedule::cancel));
+		}
+		return reminderIds;
+	}
+
+	private static CompoundSelection<DueReminder> dueReminder(CriteriaBuilder builder, Root<Reminder> root) {
+		return builder.construct(DueReminder.class, root.get("reminderId"), root.get("reminderName"),
+				root.get("reminderType"), root.get("reminderCreatedBy"), root.get("dueDate"));
+	}
+
+	private static boolean sameInstant(Date first, Date second) {
+		return first == null ? second == null : second != null && first.getTime() == second.getTime();
+	}
 }
@@ -1,15 +1,21 @@
 package com.stackroute.keepnote.dao;
 
-import javax.transaction.Transactional;
-
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.CredentialCache;
+import com.stackroute.keepnote.security.PasswordHasher;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -30,12 +36,36 @@ public class UserDaoImpl implements UserDAO {
 	 */
 
 	private SessionFactory sessionFactory;
+
+	private static final String UPDATE_USER = "update versioned User set userName = :userName, userPassword = :userPassword, "
+			+ "userMobile = :userMobile, userAddedDate = :userAddedDate where userId = :userId";
 	
 	@Autowired
 	public UserDaoImpl(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
 	
+	private PasswordHasher passwordHasher;
+
+	/*
+	 * Optional: without it passwords are compared as stored, in plaintext.
+	 */
+	@Autowired(required = false)
+	public void setPasswordHasher(PasswordHasher passwordHasher) {
+		this.passwordHasher = passwordHasher;
+	}
+
+	private CredentialCache credentialCache;
+
+	/*
+	 * Optional: when present, verified password hashes are cached for
+	 * UserServiceImpl.validateUser, and evicted whenever the user changes.
+	 */
+	@Autowired(required = false)
+	public void setCredentialCache(CredentialCache credentialCache) {
+		this.credentialCache = credentialCache;
+	}
+
 	public SessionFactory getSessionFactory() {
 		return this.sessionFactory;
 	}
@@ -49,6 +79,25 @@ public class UserDaoImpl implements UserDAO {
 		return sessionFactory.getCurrentSession();
 	}
 
+	/*
+	 * Drop the cached credentials of a user now, and once more when the transaction
+	 * ends, so that a login verified concurrently cannot cache the old password.
+	 */
+	private void evictCredentials(String userId) {
+		if (credentialCache == null) {
+			return;
+		}
+		credentialCache.evict(userId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					credentialCache.evict(userId);
+				}
+			});
+		}
+	}
+
 	/*
 	 * Create a new user
 	 */
@@ -67,17 +116,42 @@ public class UserDaoImpl implements UserDAO {
 	}
 
 	/*
-	 * Update an existing user
+	 * Update an existing user, like NoteDAOImpl.UpdateNote: with a single UPDATE
+	 * statement unless the user was read in this session, and only from the
+	 * current version when the user carries one. The userId is that of the user
+	 * making the request, so only their own row can match.
 	 */
 
 	public boolean updateUser(User user) {
 		boolean status = false; 
 		try {
-			if(getUserById(user.getUserId()) != null){
-				getSession().update(user);
+			evictCredentials(user.getUserId());
+			if (getSession().contains(user)) {
 				getSession().flush();
 				status = true;
+			} else {
+				Integer version = user.getVersion();
+				Query<?> query = getSession()
+						.createQuery(version == null ? UPDATE_USER : UPDATE_USER + " and version = :version")
+						.setParameter("userName", user.getUserName())
+						.setParameter("userPassword", user.getUserPassword())
+						.setParameter("userMobile", user.getUserMobile())
+						.setParameter("userAddedDate", user.getUserAddedDate())
+						.setParameter("userId", user.getUserId());
+				if (version != null) {
+					query.setParameter("version", version);
+				}
+				status = query.executeUpdate() == 1;
+				if (status && version != null) {
+					user.setVersion(version + 1);
+				} else if (!status && version != null && getSession().get(User.class, user.getUserId()) != null) {
+					throw new OptimisticLockingFailureException(
+							"User " + user.getUserId() + " was updated by another request");
+				}
 			}
+		} catch (StaleStateException e) {
+			throw new OptimisticLockingFailureException(
+					"User " + user.getUserId() + " was updated by another request", e);
 		} catch (HibernateException e) {
 			status = false;
 		}
@@ -88,13 +162,16 @@ public class UserDaoImpl implements UserDAO {
 	/*
 	 * Retrieve details of a specific user
 	 */
+	@Transactional(readOnly = true)
 	public User getUserById(String UserId) {
 
 		return getSession().load(User.class, UserId);
 	}
 
 	/*
-	 * validate an user
+	 * validate an user. A password still stored in plaintext, or hashed with fewer
+	 * iterations than configured, is replaced with a fresh hash once it has been
+	 * verified.
 	 */
 
 	public boolean validateUser(String userId, String password) throws UserNotFoundException {
@@ -102,8 +179,17 @@ public class UserDaoImpl implements UserDAO {
 		try {
 			User user = getSession().load(User.class, userId);
 			if (user != null) {
-				if (password.equals(user.getUserPassword())) {
+				if (passwordHasher == null) {
+					result = password.equals(user.getUserPassword());
+				} else if (passwordHasher.matches(password, user.getUserPassword())) {
+					if (passwordHasher.needsRehash(user.getUserPassword())) {
+						user.setUserPassword(passwordHasher.hash(password));
+						getSession().flush();
+					}
 					result = true;
+					if (credentialCache != null) {
+						credentialCache.put(userId, user.getUserPassword());
+					}
 				}
 			} else {
 				throw new UserNotFoundException("User Not Found");
@@ -122,6 +208,7 @@ public class UserDaoImpl implements UserDAO {
 		try {
 			User user = getSession().load(User.class, userId);
 			if (user != null) {
+				evictCredentials(userId);
 				getSession().delete(user);
 				getSession().flush();
 				result = true;
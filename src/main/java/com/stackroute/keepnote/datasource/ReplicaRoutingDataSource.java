@@ -0,0 +1,242 @@
+package com.stackroute.keepnote.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/*
+ * Sends the connections of read-only transactions (@Transactional(readOnly = true))
+ * to one of the read replicas, round robin, and everything else to the primary.
+ *
+ * The read-only flag of a transaction is only known once the transaction has
+ * started, so this DataSource has to be wrapped in a LazyConnectionDataSourceProxy,
+ * which fetches the real connection at the first statement.
+ *
+ * Every lagCheckIntervalMs each replica runs lagQuery. The query returns the
+ * replication delay in seconds, either in a Seconds_Behind_Master column
+ * (MySQL's SHOW SLAVE STATUS) or in its first column. A replica is skipped while
+ * that delay is above maxLagSeconds, unknown or cannot be read. When no replica is
+ * usable, reads fall back to the primary.
+ *
+ * Metrics: datasource.route.<primary|replica name> meters count the connections
+ * handed out per route, datasource.route.fallback the reads that went to the
+ * primary for lack of a replica, and datasource.<replica name>.lag-seconds gauges
+ * the last measured delay (-1 when unknown).
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+	public static final String PRIMARY = "primary";
+
+	private static final String LAG_COLUMN = "Seconds_Behind_Master";
+
+	private Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	private final DataSource primary;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private final Map<String, Meter> routeMeters = new HashMap<>();
+
+	private final Meter fallbackMeter;
+
+	private final AtomicInteger nextReplica = new AtomicInteger();
+
+	private volatile Replica[] usableReplicas = new Replica[0];
+
+	private String lagQuery;
+
+	private long maxLagSeconds = 5;
+
+	private long lagCheckIntervalMs = 2000;
+
+	private ScheduledExecutorService lagChecker;
+
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+			MetricRegistry metricRegistry) {
+		this.primary = primary;
+		MetricRegistry registry = metricRegistry == null ? new MetricRegistry() : metricRegistry;
+		Map<Object, Object> targets = new LinkedHashMap<>();
+		targets.put(PRIMARY, primary);
+		routeMeters.put(PRIMARY, registry.meter(MetricRegistry.name("datasource", "route", PRIMARY)));
+		for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+			Replica replica = new Replica(entry.getKey(), entry.getValue());
+			this.replicas.add(replica);
+			targets.put(replica.name, replica.dataSource);
+			routeMeters.put(replica.name,
+					registry.meter(MetricRegistry.name("datasource", "route", replica.name)));
+			registry.register(MetricRegistry.name("datasource", replica.name, "lag-seconds"),
+					(Gauge<Long>) () -> replica.lagSeconds);
+		}
+		this.fallbackMeter = registry.meter(MetricRegistry.name("datasource", "route", "fallback"));
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+	}
+
+	/*
+	 * Query returning the replication delay of a replica in seconds. When it is
+	 * empty, the delay is not checked and every replica is always used.
+	 */
+	public void setLagQuery(String lagQuery) {
+		this.lagQuery = lagQuery;
+	}
+
+	public void setMaxLagSeconds(long maxLagSeconds) {
+		this.maxLagSeconds = maxLagSeconds;
+	}
+
+	/*
+	 * Interval between two checks of the replicas; 0 disables the periodic check
+	 * (checkReplicas() can still be called).
+	 */
+	public void setLagCheckIntervalMs(long lagCheckIntervalMs) {
+		this.lagCheckIntervalMs = lagCheckIntervalMs;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+		checkReplicas();
+		if (!replicas.isEmpty() && hasLagQuery() && lagCheckIntervalMs > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keepnote-replica-lag-");
+			threadFactory.setDaemon(true);
+			lagChecker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			lagChecker.scheduleWithFixedDelay(this::checkReplicas, lagCheckIntervalMs, lagCheckIntervalMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		String route = PRIMARY;
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !replicas.isEmpty()) {
+			Replica[] candidates = usableReplicas;
+			if (candidates.length == 0) {
+				fallbackMeter.mark();
+			} else {
+				route = candidates[Math.floorMod(nextReplica.getAndIncrement(), candidates.length)].name;
+			}
+		}
+		routeMeters.get(route).mark();
+		return route;
+	}
+
+	/*
+	 * Measure the delay of every replica and update the set of replicas reads can
+	 * be sent to.
+	 */
+	public void checkReplicas() {
+		List<Replica> usable = new ArrayList<>(replicas.size());
+		for (Replica replica : replicas) {
+			boolean wasUsable = replica.usable;
+			if (hasLagQuery()) {
+				replica.lagSeconds = measureLag(replica);
+				replica.usable = replica.lagSeconds >= 0 && replica.lagSeconds <= maxLagSeconds;
+			} else {
+				replica.usable = true;
+			}
+			if (replica.usable) {
+				usable.add(replica);
+			}
+			if (wasUsable != replica.usable) {
+				LOGGER.warn("ReplicaRoutingDataSource : replica {} {} (lag {} s)", replica.name,
+						replica.usable ? "back in use" : "taken out of use", replica.lagSeconds);
+			}
+		}
+		usableReplicas = usable.toArray(new Replica[0]);
+	}
+
+	private boolean hasLagQuery() {
+		return lagQuery != null && !lagQuery.trim().isEmpty();
+	}
+
+	private long measureLag(Replica replica) {
+		try (Connection connection = replica.dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.setQueryTimeout(Math.max(1, (int) (lagCheckIntervalMs / 1000)));
+			try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+				if (!resultSet.next()) {
+					return -1;
+				}
+				long lag = resultSet.getLong(lagColumn(resultSet.getMetaData()));
+				return resultSet.wasNull() ? -1 : lag;
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("ReplicaRoutingDataSource : lag check of {} failed : {}", replica.name, e.getMessage());
+			return -1;
+		}
+	}
+
+	private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+		for (int column = 1; column <= metaData.getColumnCount(); column++) {
+			if (LAG_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+				return column;
+			}
+		}
+		return 1;
+	}
+
+	/*
+	 * Stop the lag checks and close the pools of the primary and the replicas.
+	 */
+	@Override
+	public void destroy() throws Exception {
+		if (lagChecker != null) {
+			lagChecker.shutdownNow();
+		}
+		close(primary);
+		for (Replica replica : replicas) {
+			close(replica.dataSource);
+		}
+	}
+
+	private static void close(DataSource dataSource) throws Exception {
+		if (dataSource instanceof AutoCloseable) {
+			((AutoCloseable) dataSource).close();
+		} else if (dataSource instanceof BasicDataSource) {
+			((BasicDataSource) dataSource).close();
+		}
+	}
+
+	private static final class Replica {
+
+		private final String name;
+
+		private final DataSource dataSource;
+
+		private volatile long lagSeconds = -1;
+
+		private volatile boolean usable = true;
+
+		private Replica(String name, DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+
+	}
+
+}
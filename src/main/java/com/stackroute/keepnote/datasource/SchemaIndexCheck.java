@@ -0,0 +1,135 @@
+package com.stackroute.keepnote.datasource;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/*
+ * Checks at startup that the database has the indexes declared in the @Table
+ * annotations of the entities, and logs a warning for each one that is missing.
+ * The schema is created by the migrations in db/migration, so a missing index
+ * means a migration did not run or was changed by hand.
+ *
+ * An index is present when some index of the table starts with the same columns,
+ * whatever its name. The number of missing indexes is published as the
+ * schema.missing-indexes gauge.
+ */
+public class SchemaIndexCheck implements InitializingBean {
+
+	private Logger LOGGER = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+	private final DataSource dataSource;
+
+	private final List<Class<?>> entities;
+
+	private volatile List<String> missingIndexes = Collections.emptyList();
+
+	public SchemaIndexCheck(DataSource dataSource, MetricRegistry metricRegistry, Class<?>... entities) {
+		this.dataSource = dataSource;
+		this.entities = Arrays.asList(entities);
+		if (metricRegistry != null) {
+			metricRegistry.register(MetricRegistry.name("schema", "missing-indexes"),
+					(Gauge<Integer>) () -> missingIndexes.size());
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		check();
+	}
+
+	/*
+	 * Compare the declared indexes with those of the database, and return the
+	 * names of the missing ones.
+	 */
+	public List<String> check() {
+		List<String> missing = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection()) {
+			DatabaseMetaData metaData = connection.getMetaData();
+			for (Class<?> entity : entities) {
+				Table table = entity.getAnnotation(Table.class);
+				if (table == null || table.indexes().length == 0) {
+					continue;
+				}
+				Map<String, List<String>> existing = indexColumns(metaData, connection.getCatalog(), table.name());
+				for (Index index : table.indexes()) {
+					if (!isCovered(columns(index), existing)) {
+						LOGGER.warn("SchemaIndexCheck : missing index {} on {} ({})", index.name(), table.name(),
+								index.columnList());
+						missing.add(index.name());
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.warn("SchemaIndexCheck : indexes could not be checked : {}", e.getMessage());
+		}
+		missingIndexes = Collections.unmodifiableList(missing);
+		return missingIndexes;
+	}
+
+	private static boolean isCovered(List<String> columns, Map<String, List<String>> existing) {
+		for (List<String> indexColumns : existing.values()) {
+			if (indexColumns.size() >= columns.size() && indexColumns.subList(0, columns.size()).equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<String> columns(Index index) {
+		List<String> columns = new ArrayList<>();
+		for (String column : index.columnList().split(",")) {
+			columns.add(column.trim().toLowerCase(Locale.ROOT));
+		}
+		return columns;
+	}
+
+	/*
+	 * Columns of every index of a table of the current catalog, in index order.
+	 * Databases that store unquoted identifiers in upper or lower case are looked
+	 * up in that case.
+	 */
+	private static Map<String, List<String>> indexColumns(DatabaseMetaData metaData, String catalog, String table)
+			throws SQLException {
+		String tableName = table;
+		if (metaData.storesUpperCaseIdentifiers()) {
+			tableName = table.toUpperCase(Locale.ROOT);
+		} else if (metaData.storesLowerCaseIdentifiers()) {
+			tableName = table.toLowerCase(Locale.ROOT);
+		}
+		Map<String, Map<Short, String>> positions = new TreeMap<>();
+		try (ResultSet resultSet = metaData.getIndexInfo(catalog, null, tableName, false, true)) {
+			while (resultSet.next()) {
+				String indexName = resultSet.getString("INDEX_NAME");
+				String columnName = resultSet.getString("COLUMN_NAME");
+				if (indexName != null && columnName != null) {
+					positions.computeIfAbsent(indexName, name -> new TreeMap<>())
+							.put(resultSet.getShort("ORDINAL_POSITION"), columnName.toLowerCase(Locale.ROOT));
+				}
+			}
+		}
+		Map<String, List<String>> indexes = new TreeMap<>();
+		positions.forEach((name, columns) -> indexes.put(name, new ArrayList<>(columns.values())));
+		return indexes;
+	}
+
+}
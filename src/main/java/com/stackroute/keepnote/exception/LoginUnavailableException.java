@@ -0,0 +1,19 @@
+package com.stackroute.keepnote.exception;
+
+/*
+ * Thrown when a login cannot be verified right now because the password
+ * verification pool is saturated or did not answer in time. Unlike the other
+ * exceptions of the application it is unchecked: it reports a capacity problem
+ * (HTTP 503), not a business outcome.
+ */
+public class LoginUnavailableException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public LoginUnavailableException(String message) {
+		super(message);
+	}
+}
@@ -3,12 +3,18 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -18,9 +24,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Hibernate will scan all package for any Java objects annotated with the @Entity annotation. 
  * If it finds any, then it will begin the process of looking through that particular 
  * Java object to recreate it as a table in your database.
+ * Categories are read on every note write but rarely change, so they are kept in the
+ * Hibernate second-level cache (see ehcache.xml for the region size and time-to-live).
  */
 @Entity
-@Table(name="Category")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name="Category", indexes = @Index(name="idx_category_creator_date", columnList="category_creator, category_creation_date"))
 public class Category {
 	/*
 	 * This class should have six fields
@@ -48,6 +58,10 @@ public class Category {
 	
 	@Column( name ="category_creator")
 	private String categoryCreatedBy;
+
+	@Version
+	@Column( name ="category_version")
+	private Integer version;
 	
 	@OneToMany(fetch = FetchType.LAZY, mappedBy="category")
 	@JsonIgnore
@@ -115,6 +129,14 @@ public class Category {
 		return this.notes;
 	}
 	
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	public String toString() {
 		return "categoryId : "+getCategoryId()+" "
 				+"categoryName : "+getCategoryName()+" "
@@ -0,0 +1,132 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/*
+ * The class "ChangeLogEntry" is one row of the change log: a note, category or
+ * reminder of a user was saved or deleted. The DAOs add an entry in the same
+ * transaction as the write itself, inserted as it commits, so the log holds
+ * exactly the committed writes.
+ *
+ * changeId comes from an AUTO_INCREMENT column and orders the entries of a user;
+ * it is the sync token handed to clients (see SyncServiceImpl). Only the identity
+ * of the entity is logged: a sync reads its current state.
+ */
+@Entity
+@Table(name="change_log", indexes = @Index(name="idx_change_log_user_id", columnList="user_id, change_id"))
+public class ChangeLogEntry {
+
+	public enum EntityType {
+		NOTE, CATEGORY, REMINDER
+	}
+
+	public enum Operation {
+		SAVE, DELETE
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name="change_id")
+	private long changeId;
+
+	@Column(name="user_id")
+	private String userId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name="entity_type")
+	private EntityType entityType;
+
+	@Column(name="entity_id")
+	private int entityId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name="operation")
+	private Operation operation;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="changed_at")
+	private Date changedAt;
+
+	public ChangeLogEntry() {
+		// Default Constructor
+	}
+
+	public ChangeLogEntry(String userId, EntityType entityType, int entityId, Operation operation, Date changedAt) {
+		this.userId = userId;
+		this.entityType = entityType;
+		this.entityId = entityId;
+		this.operation = operation;
+		this.changedAt = changedAt;
+	}
+
+	public long getChangeId() {
+		return this.changeId;
+	}
+
+	public void setChangeId(long changeId) {
+		this.changeId = changeId;
+	}
+
+	public String getUserId() {
+		return this.userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public EntityType getEntityType() {
+		return this.entityType;
+	}
+
+	public void setEntityType(EntityType entityType) {
+		this.entityType = entityType;
+	}
+
+	public int getEntityId() {
+		return this.entityId;
+	}
+
+	public void setEntityId(int entityId) {
+		this.entityId = entityId;
+	}
+
+	public Operation getOperation() {
+		return this.operation;
+	}
+
+	public void setOperation(Operation operation) {
+		this.operation = operation;
+	}
+
+	public Date getChangedAt() {
+		return this.changedAt;
+	}
+
+	public void setChangedAt(Date changedAt) {
+		this.changedAt = changedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "changeId : "+getChangeId()+" "
+				+"userId : "+getUserId()+" "
+				+"entityType : "+getEntityType()+" "
+				+"entityId : "+getEntityId()+" "
+				+"operation : "+getOperation()+" "
+				+"changedAt : "+getChangedAt();
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * The class "DueReminder" is a reminder as handed to the ReminderNotifier when it
+ * is due: its columns, built by a single query without entities like
+ * SyncedNote, and the ids of the notes it is linked to, read for a whole batch
+ * of reminders at once.
+ */
+public class DueReminder {
+
+	private final int reminderId;
+
+	private final String reminderName;
+
+	private final String reminderType;
+
+	private final String reminderCreatedBy;
+
+	private final Date dueDate;
+
+	private final List<Integer> noteIds = new ArrayList<>();
+
+	public DueReminder(int reminderId, String reminderName, String reminderType, String reminderCreatedBy,
+			Date dueDate) {
+		this.reminderId = reminderId;
+		this.reminderName = reminderName;
+		this.reminderType = reminderType;
+		this.reminderCreatedBy = reminderCreatedBy;
+		this.dueDate = dueDate;
+	}
+
+	public int getReminderId() {
+		return this.reminderId;
+	}
+
+	public String getReminderName() {
+		return this.reminderName;
+	}
+
+	public String getReminderType() {
+		return this.reminderType;
+	}
+
+	public String getReminderCreatedBy() {
+		return this.reminderCreatedBy;
+	}
+
+	public Date getDueDate() {
+		return this.dueDate;
+	}
+
+	public List<Integer> getNoteIds() {
+		return this.noteIds;
+	}
+
+	@Override
+	public String toString() {
+		return "reminderId : "+getReminderId()+" "
+				+"reminderName : "+getReminderName()+" "
+				+"reminderCreatedBy : "+getReminderCreatedBy()+" "
+				+"dueDate : "+getDueDate()+" "
+				+"noteIds : "+getNoteIds();
+	}
+
+}
@@ -5,10 +5,22 @@ import java.util.Date;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.Where;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /*
  * The class "Note" will be acting as the data model for the Note Table in the database. 
@@ -16,9 +28,25 @@ import javax.persistence.Table;
  * Hibernate will scan all package for any Java objects annotated with the @Entity annotation. 
  * If it finds any, then it will begin the process of looking through that particular 
  * Java object to recreate it as a table in your database.
+ * 
+ * The named entity graphs are the fetch profiles of NoteFetchProfile: the lazy
+ * associations each profile loads together with the note.
+ * 
+ * A note deleted in soft-delete mode stays in the table as a tombstone until the
+ * NoteCompactor purges it; the @Where clause keeps tombstones out of every load
+ * and query of the entity.
  */
 @Entity
-@Table(name="Note")
+@Table(name="Note", indexes = {
+		@Index(name="idx_note_creator_date", columnList="note_creator, note_creation_date"),
+		@Index(name="idx_note_creator_id", columnList="note_creator, note_id"),
+		@Index(name="idx_note_deleted_date", columnList="note_deleted_date") })
+@NamedEntityGraphs({
+		@NamedEntityGraph(name="Note.summary"),
+		@NamedEntityGraph(name="Note.withCategory", attributeNodes = @NamedAttributeNode("category")),
+		@NamedEntityGraph(name="Note.full", attributeNodes = { @NamedAttributeNode("category"),
+				@NamedAttributeNode("reminder") }) })
+@Where(clause="note_deleted_date is null")
 public class Note {
 	/*
 	 * This class should have eight fields
@@ -29,8 +57,18 @@ public class Note {
 	 * constructor and toString method. The value of createdAt should not be
 	 * accepted from the user but should be always initialized with the system date.
 	 * annotate category and reminder field with @ManyToOne.
+	 * 
+	 * noteId is generated from a pooled sequence (a single-row table on MySQL) that
+	 * hands out blocks of 50 ids per round trip. Unlike IDENTITY columns this lets
+	 * Hibernate batch the inserts.
 	 */
 	@Id
+	@GeneratedValue(generator="note_id_generator")
+	@GenericGenerator(name="note_id_generator", strategy="enhanced-sequence", parameters = {
+			@Parameter(name="sequence_name", value="note_id_seq"),
+			@Parameter(name="initial_value", value="1"),
+			@Parameter(name="increment_size", value="50"),
+			@Parameter(name="optimizer", value="pooled-lo") })
 	@Column(name="note_id")
 	private int noteId;
 	
@@ -57,6 +95,22 @@ public class Note {
 	@Column(name="note_creator")
 	private String createdBy;
 
+	/*
+	 * Incremented by every update. An update made from an older version fails, so
+	 * concurrent updates cannot silently overwrite each other. Null until the
+	 * note is saved, or when a client sends no version.
+	 */
+	@Version
+	@Column(name="note_version")
+	private Integer version;
+
+	/*
+	 * When the note was deleted, if it was soft deleted; null for a live note.
+	 */
+	@JsonIgnore
+	@Column(name="note_deleted_date")
+	private Date deletedDate;
+
 	public Note() {
 		// Default Constructor
 	}
@@ -137,6 +191,22 @@ public class Note {
 		this.category = category;
 	}
 
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	public Date getDeletedDate() {
+		return this.deletedDate;
+	}
+
+	public void setDeletedDate(Date deletedDate) {
+		this.deletedDate = deletedDate;
+	}
+
 	@Override
 	public String toString() {
 		return "noteId : "+getNoteId()+" "
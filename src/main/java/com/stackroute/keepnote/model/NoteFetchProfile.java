@@ -0,0 +1,48 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The fetch profiles a note can be read with, selected by the "fetch" request
+ * parameter. Each one names an entity graph declared on Note, listing the lazy
+ * associations that are loaded together with the note by the same join query:
+ * summary loads none of them, withCategory the category and full both the
+ * category and the reminder. Associations outside the profile are returned as
+ * null.
+ */
+public enum NoteFetchProfile {
+
+	SUMMARY("summary", "Note.summary"),
+
+	WITH_CATEGORY("withCategory", "Note.withCategory"),
+
+	FULL("full", "Note.full");
+
+	private final String param;
+
+	private final String graphName;
+
+	private NoteFetchProfile(String param, String graphName) {
+		this.param = param;
+		this.graphName = graphName;
+	}
+
+	public String getParam() {
+		return this.param;
+	}
+
+	public String getGraphName() {
+		return this.graphName;
+	}
+
+	/*
+	 * The profile selected by a request parameter value.
+	 */
+	public static NoteFetchProfile fromParam(String param) {
+		for (NoteFetchProfile profile : values()) {
+			if (profile.param.equalsIgnoreCase(param)) {
+				return profile;
+			}
+		}
+		throw new IllegalArgumentException("Unknown fetch profile : " + param);
+	}
+
+}
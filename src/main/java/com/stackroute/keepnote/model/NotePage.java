@@ -0,0 +1,48 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+
+/*
+ * The class "NotePage" holds one keyset-paginated slice of a user's notes. It is not
+ * an entity; it is only used as the response body of the paginated note listing.
+ * nextCursor is the noteId to pass as "after" to fetch the following page, and is
+ * null once the last page has been returned.
+ */
+public class NotePage {
+
+	private List<Note> notes;
+
+	private Integer nextCursor;
+
+	public NotePage() {
+		// Default Constructor
+	}
+
+	public NotePage(List<Note> notes, Integer nextCursor) {
+		this.notes = notes;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Note> getNotes() {
+		return this.notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public Integer getNextCursor() {
+		return this.nextCursor;
+	}
+
+	public void setNextCursor(Integer nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "notes : "+(getNotes() == null ? 0 : getNotes().size())+" "
+				+"nextCursor : "+getNextCursor();
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * The class "NoteSummary" is one row of the note list view: the columns of a note
+ * the list shows, with the name of its category and of its reminder. It is not an
+ * entity; it is built directly from the columns of a single query joining the Note,
+ * Category and Reminder tables, so no entity, proxy or lazy association is involved
+ * when it is serialized. categoryId, categoryName, reminderId and reminderName are
+ * null when the note has no category or reminder. Summaries are immutable.
+ */
+public class NoteSummary {
+
+	private final int noteId;
+
+	private final String noteTitle;
+
+	private final String noteStatus;
+
+	private final Date createdAt;
+
+	private final Integer categoryId;
+
+	private final String categoryName;
+
+	private final Integer reminderId;
+
+	private final String reminderName;
+
+	public NoteSummary(int noteId, String noteTitle, String noteStatus, Date createdAt, Integer categoryId,
+			String categoryName, Integer reminderId, String reminderName) {
+		this.noteId = noteId;
+		this.noteTitle = noteTitle;
+		this.noteStatus = noteStatus;
+		this.createdAt = createdAt;
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+		this.reminderId = reminderId;
+		this.reminderName = reminderName;
+	}
+
+	public int getNoteId() {
+		return this.noteId;
+	}
+
+	public String getNoteTitle() {
+		return this.noteTitle;
+	}
+
+	public String getNoteStatus() {
+		return this.noteStatus;
+	}
+
+	public Date getNoteCreatedAt() {
+		return this.createdAt;
+	}
+
+	public Integer getCategoryId() {
+		return this.categoryId;
+	}
+
+	public String getCategoryName() {
+		return this.categoryName;
+	}
+
+	public Integer getReminderId() {
+		return this.reminderId;
+	}
+
+	public String getReminderName() {
+		return this.reminderName;
+	}
+
+	@Override
+	public String toString() {
+		return "noteId : "+getNoteId()+" "
+				+"noteTitle : "+getNoteTitle()+" "
+				+"noteStatus : "+getNoteStatus()+" "
+				+"noteCreatedAt : "+getNoteCreatedAt()+" "
+				+"categoryName : "+getCategoryName()+" "
+				+"reminderName : "+getReminderName();
+	}
+
+}
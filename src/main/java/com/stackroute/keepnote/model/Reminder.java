@@ -3,14 +3,22 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
 
 /*
  * The class "Reminder" will be acting as the data model for the Reminder Table in the database. 
@@ -18,9 +26,18 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Hibernate will scan all package for any Java objects annotated with the @Entity annotation. 
  * If it finds any, then it will begin the process of looking through that particular 
  * Java object to recreate it as a table in your database.
+ * Reminders are read on every note write but rarely change, so they are kept in the
+ * Hibernate second-level cache (see ehcache.xml for the region size and time-to-live).
+ * A reminder with a dueDate is fired by the ReminderScheduler when it is due, which
+ * sets its firedDate, and firedBy to the claim of the node that fires it; changing
+ * the dueDate of a fired reminder sets it again.
  */
 @Entity
-@Table(name="Reminder")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name="Reminder", indexes = {
+		@Index(name="idx_reminder_creator_date", columnList="reminder_creator, reminder_creation_date"),
+		@Index(name="idx_reminder_pending", columnList="reminder_fired_date, reminder_due_date") })
 public class Reminder {
 	/*
 	 * This class should have seven fields
@@ -52,6 +69,21 @@ public class Reminder {
 	
 	@Column( name = "reminder_creation_date")
 	private Date reminderCreationDate;
+
+	@Column( name = "reminder_due_date")
+	private Date dueDate;
+
+	@Column( name = "reminder_fired_date")
+	@JsonProperty(access = Access.READ_ONLY)
+	private Date firedDate;
+
+	@Column( name = "reminder_fired_by")
+	@JsonIgnore
+	private String firedBy;
+
+	@Version
+	@Column( name = "reminder_version")
+	private Integer version;
 	
 	@OneToMany(fetch = FetchType.LAZY, mappedBy="reminder")
 	@JsonIgnore
@@ -130,13 +162,46 @@ public class Reminder {
 		this.notes = notes;
 	}
 	
+	public Date getDueDate() {
+		return this.dueDate;
+	}
+
+	public void setDueDate(Date dueDate) {
+		this.dueDate = dueDate;
+	}
+
+	public Date getFiredDate() {
+		return this.firedDate;
+	}
+
+	public void setFiredDate(Date firedDate) {
+		this.firedDate = firedDate;
+	}
+
+	public String getFiredBy() {
+		return this.firedBy;
+	}
+
+	public void setFiredBy(String firedBy) {
+		this.firedBy = firedBy;
+	}
+
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	public String toString() {
 		return "reminderId : "+getReminderId()+" "
 				+"reminderName : "+getReminderName()+" "
 				+"reminderDescription : "+getReminderDescription()+" "
 				+"reminderType : "+getReminderType()+" "
 				+"reminderCreationDate : "+getReminderCreationDate()+" "
-				+"reminderCreatedBy : "+getReminderCreatedBy();
+				+"reminderCreatedBy : "+getReminderCreatedBy()+" "
+				+"dueDate : "+getDueDate();
 	}
 
 }
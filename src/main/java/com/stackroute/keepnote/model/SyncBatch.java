@@ -0,0 +1,106 @@
+package com.stackroute.keepnote.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * The class "SyncBatch" is the response of the sync endpoint: the notes,
+ * categories and reminders saved since the client's token, in their current state,
+ * and the ids of those deleted since. Each entity appears at most once, however
+ * often it changed. Empty lists are left out of the JSON.
+ *
+ * The client stores token and sends it back as "since" on the next sync. When
+ * hasMore is true, more changes are waiting and the client should sync again
+ * right away.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class SyncBatch {
+
+	private String token;
+
+	private boolean hasMore;
+
+	private List<SyncedNote> notes = new ArrayList<>();
+
+	private List<Category> categories = new ArrayList<>();
+
+	private List<Reminder> reminders = new ArrayList<>();
+
+	private List<Integer> deletedNotes = new ArrayList<>();
+
+	private List<Integer> deletedCategories = new ArrayList<>();
+
+	private List<Integer> deletedReminders = new ArrayList<>();
+
+	public String getToken() {
+		return this.token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	/*
+	 * Always written, even when false, so that clients need not know the
+	 * default.
+	 */
+	@JsonInclude(JsonInclude.Include.ALWAYS)
+	public boolean isHasMore() {
+		return this.hasMore;
+	}
+
+	public void setHasMore(boolean hasMore) {
+		this.hasMore = hasMore;
+	}
+
+	public List<SyncedNote> getNotes() {
+		return this.notes;
+	}
+
+	public void setNotes(List<SyncedNote> notes) {
+		this.notes = notes;
+	}
+
+	public List<Category> getCategories() {
+		return this.categories;
+	}
+
+	public void setCategories(List<Category> categories) {
+		this.categories = categories;
+	}
+
+	public List<Reminder> getReminders() {
+		return this.reminders;
+	}
+
+	public void setReminders(List<Reminder> reminders) {
+		this.reminders = reminders;
+	}
+
+	public List<Integer> getDeletedNotes() {
+		return this.deletedNotes;
+	}
+
+	public void setDeletedNotes(List<Integer> deletedNotes) {
+		this.deletedNotes = deletedNotes;
+	}
+
+	public List<Integer> getDeletedCategories() {
+		return this.deletedCategories;
+	}
+
+	public void setDeletedCategories(List<Integer> deletedCategories) {
+		this.deletedCategories = deletedCategories;
+	}
+
+	public List<Integer> getDeletedReminders() {
+		return this.deletedReminders;
+	}
+
+	public void setDeletedReminders(List<Integer> deletedReminders) {
+		this.deletedReminders = deletedReminders;
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * The class "SyncedNote" is the state of a note sent by the sync endpoint: the
+ * columns of the note with the ids of its category and reminder, which the client
+ * receives separately. Like NoteSummary it is built by a single query from the
+ * columns, without entities or proxies, and is immutable.
+ */
+public class SyncedNote {
+
+	private final int noteId;
+
+	private final String noteTitle;
+
+	private final String noteContent;
+
+	private final String noteStatus;
+
+	private final Date createdAt;
+
+	private final Integer categoryId;
+
+	private final Integer reminderId;
+
+	private final Integer version;
+
+	public SyncedNote(int noteId, String noteTitle, String noteContent, String noteStatus, Date createdAt,
+			Integer categoryId, Integer reminderId, Integer version) {
+		this.noteId = noteId;
+		this.noteTitle = noteTitle;
+		this.noteContent = noteContent;
+		this.noteStatus = noteStatus;
+		this.createdAt = createdAt;
+		this.categoryId = categoryId;
+		this.reminderId = reminderId;
+		this.version = version;
+	}
+
+	public int getNoteId() {
+		return this.noteId;
+	}
+
+	public String getNoteTitle() {
+		return this.noteTitle;
+	}
+
+	public String getNoteContent() {
+		return this.noteContent;
+	}
+
+	public String getNoteStatus() {
+		return this.noteStatus;
+	}
+
+	public Date getNoteCreatedAt() {
+		return this.createdAt;
+	}
+
+	public Integer getCategoryId() {
+		return this.categoryId;
+	}
+
+	public Integer getReminderId() {
+		return this.reminderId;
+	}
+
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	@Override
+	public String toString() {
+		return "noteId : "+getNoteId()+" "
+				+"noteTitle : "+getNoteTitle()+" "
+				+"noteStatus : "+getNoteStatus()+" "
+				+"version : "+getVersion();
+	}
+
+}
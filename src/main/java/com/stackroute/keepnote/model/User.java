@@ -6,6 +6,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 /*
  * The class "User" will be acting as the data model for the User Table in the database. 
@@ -44,6 +45,10 @@ public class User {
 	@Column( name = "user_added_date")
 	private Date userAddedDate;
 
+	@Version
+	@Column( name = "user_version")
+	private Integer version;
+
 	public User() {
 
 	}
@@ -97,6 +102,14 @@ public class User {
 		this.userAddedDate = date;
 	}
 	
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	public String toString() {
 		return "userId : "+getUserId()+" "
 				+ "userName : "+getUserName()+" "
@@ -0,0 +1,25 @@
+package com.stackroute.keepnote.reminder;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stackroute.keepnote.model.DueReminder;
+
+/*
+ * The ReminderNotifier used when the context defines none: it only logs the due
+ * reminders.
+ */
+public class LoggingReminderNotifier implements ReminderNotifier {
+
+	private Logger LOGGER = LoggerFactory.getLogger(LoggingReminderNotifier.class);
+
+	@Override
+	public void notify(List<DueReminder> reminders) {
+		for (DueReminder reminder : reminders) {
+			LOGGER.info("LoggingReminderNotifier : notify : {}", reminder);
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.stackroute.keepnote.reminder;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.DueReminder;
+
+/*
+ * Delivers due reminders, for example by mail or push notification. The
+ * ReminderScheduler uses the ReminderNotifier bean of the context if there is
+ * one, and LoggingReminderNotifier otherwise.
+ *
+ * notify() is called from the scheduler thread with up to
+ * keepnote.reminders.batch-size reminders at a time. The reminders are marked as
+ * fired once it returns; if it throws, the whole batch is tried again later, so
+ * a reminder can be delivered more than once.
+ */
+public interface ReminderNotifier {
+
+	void notify(List<DueReminder> reminders);
+
+}
@@ -0,0 +1,117 @@
+package com.stackroute.keepnote.reminder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * The reminders waiting to fire, in a TimingWheel keyed on their due date, with
+ * the timeout of every reminder by id so that rescheduling and cancelling are
+ * O(1). Only the reminders due up to the loaded-until time are held: the
+ * ReminderScheduler loads the next window of due dates from the Reminder table
+ * before reaching it, and ReminderDAOImpl passes every committed write of a
+ * reminder due inside the loaded window. Reminders due later stay in the table
+ * until their window is loaded, so memory is bounded by the window, not by the
+ * number of pending reminders.
+ */
+@Component
+public class ReminderSchedule {
+
+	private static final int LEVELS = 3;
+
+	private final long tickMillis;
+
+	private final TimingWheel<Integer> wheel;
+
+	private final Map<Integer, TimingWheel.Timeout<Integer>> timeouts = new HashMap<>();
+
+	private long loadedUntil = Long.MIN_VALUE;
+
+	@Autowired
+	public ReminderSchedule(@Value("${keepnote.reminders.tick-millis:1000}") long tickMillis,
+			@Value("${keepnote.reminders.wheel-size:512}") int wheelSize) {
+		this(tickMillis, wheelSize, System.currentTimeMillis());
+	}
+
+	public ReminderSchedule(long tickMillis, int wheelSize, long nowMillis) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+		}
+		this.tickMillis = tickMillis;
+		this.wheel = new TimingWheel<>(wheelSize, LEVELS, Math.floorDiv(nowMillis, tickMillis));
+	}
+
+	/*
+	 * Bring the schedule in line with a reminder that was written: schedule it if
+	 * it is due inside the loaded window and not fired yet, otherwise drop any
+	 * timeout it had.
+	 */
+	public void schedule(Reminder reminder) {
+		if (reminder.getFiredDate() != null) {
+			cancel(reminder.getReminderId());
+		} else {
+			schedule(reminder.getReminderId(), reminder.getDueDate());
+		}
+	}
+
+	public synchronized void schedule(int reminderId, Date dueDate) {
+		if (dueDate == null || dueDate.getTime() > loadedUntil) {
+			cancel(reminderId);
+			return;
+		}
+		TimingWheel.Timeout<Integer> previous = timeouts.put(reminderId,
+				wheel.add(reminderId, Math.floorDiv(dueDate.getTime() + tickMillis - 1, tickMillis)));
+		if (previous != null) {
+			wheel.cancel(previous);
+		}
+	}
+
+	public synchronized void cancel(int reminderId) {
+		TimingWheel.Timeout<Integer> timeout = timeouts.remove(reminderId);
+		if (timeout != null) {
+			wheel.cancel(timeout);
+		}
+	}
+
+	/*
+	 * Move the end of the loaded window to until and return its previous end, or
+	 * null if nothing was loaded yet. The window is extended before the reminders
+	 * of the new part are read, so that a reminder committed while they are read
+	 * is scheduled by its write if the read misses it.
+	 */
+	public synchronized Date extendWindow(long until) {
+		long previous = loadedUntil;
+		loadedUntil = Math.max(loadedUntil, until);
+		return previous == Long.MIN_VALUE ? null : new Date(previous);
+	}
+
+	public synchronized long getLoadedUntil() {
+		return loadedUntil;
+	}
+
+	/*
+	 * Advance to nowMillis and return the ids of the reminders that became due, in
+	 * due order.
+	 */
+	public synchronized List<Integer> advance(long nowMillis) {
+		List<Integer> due = new ArrayList<>();
+		wheel.advance(Math.floorDiv(nowMillis, tickMillis), due);
+		for (Integer reminderId : due) {
+			timeouts.remove(reminderId);
+		}
+		return due;
+	}
+
+	public synchronized int size() {
+		return timeouts.size();
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.stackroute.keepnote.reminder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.DueReminder;
+
+/*
+ * Fires the reminders whose due date is reached. A single thread ticks every
+ * keepnote.reminders.tick-millis: it turns the ReminderSchedule to the current
+ * time and hands the reminders that became due to the ReminderNotifier, in
+ * batches of batch-size read with their notes by two queries each. No query is
+ * made while nothing is due, except that every half horizon the reminders due
+ * in the next horizon-minutes are read into the schedule, page by page; the
+ * first read also takes the reminders that were due while the application was
+ * down.
+ *
+ * Every node of the application runs a scheduler, so before notifying a batch
+ * the scheduler claims it in the table (see ReminderDAO.claimReminders) with a
+ * token of its own, and only notifies the reminders it got: each reminder is
+ * notified by one node, and a reminder deleted, fired or moved to a later date
+ * since it was scheduled is skipped. A batch whose notification fails is
+ * released and tried again retry-seconds later. A node that stops between the
+ * claim and the notification loses the reminders it claimed: they are notified
+ * at most once, rather than once per node.
+ *
+ * Metrics: reminders.scheduled (gauge), reminders.fired and
+ * reminders.notify-failures (meters).
+ */
+@Component("reminderScheduler")
+public class ReminderScheduler implements DisposableBean {
+
+	private Logger LOGGER = LoggerFactory.getLogger(ReminderScheduler.class);
+
+	private final ReminderDAO reminderDAO;
+
+	private final ReminderSchedule reminderSchedule;
+
+	private final boolean enabled;
+
+	private final long tickMillis;
+
+	private final long horizonMillis;
+
+	private final int batchSize;
+
+	private final long retryMillis;
+
+	private final Meter firedMeter;
+
+	private final Meter failureMeter;
+
+	private ReminderNotifier reminderNotifier = new LoggingReminderNotifier();
+
+	private ScheduledExecutorService ticker;
+
+	@Autowired
+	public ReminderScheduler(ReminderDAO reminderDAO, ReminderSchedule reminderSchedule,
+			MetricRegistry metricRegistry,
+			@Value("${keepnote.reminders.enabled:true}") boolean enabled,
+			@Value("${keepnote.reminders.tick-millis:1000}") long tickMillis,
+			@Value("${keepnote.reminders.horizon-minutes:60}") long horizonMinutes,
+			@Value("${keepnote.reminders.batch-size:500}") int batchSize,
+			@Value("${keepnote.reminders.retry-seconds:60}") long retrySeconds) {
+		this.reminderDAO = reminderDAO;
+		this.reminderSchedule = reminderSchedule;
+		this.enabled = enabled;
+		this.tickMillis = tickMillis;
+		this.horizonMillis = TimeUnit.MINUTES.toMillis(horizonMinutes);
+		this.batchSize = Math.max(batchSize, 1);
+		this.retryMillis = TimeUnit.SECONDS.toMillis(retrySeconds);
+		this.firedMeter = metricRegistry.meter(MetricRegistry.name("reminders", "fired"));
+		this.failureMeter = metricRegistry.meter(MetricRegistry.name("reminders", "notify-failures"));
+		metricRegistry.register(MetricRegistry.name("reminders", "scheduled"),
+				(Gauge<Integer>) reminderSchedule::size);
+	}
+
+	@Autowired(required = false)
+	public void setReminderNotifier(ReminderNotifier reminderNotifier) {
+		this.reminderNotifier = reminderNotifier;
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public synchronized void start() {
+		if (enabled && ticker == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keepnote-reminders-");
+			threadFactory.setDaemon(true);
+			ticker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			ticker.scheduleWithFixedDelay(this::tickSafely, 0, tickMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (ticker != null) {
+			ticker.shutdownNow();
+			ticker = null;
+		}
+	}
+
+	private void tickSafely() {
+		try {
+			tick(System.currentTimeMillis());
+		} catch (RuntimeException e) {
+			LOGGER.error("ReminderScheduler : tick : failed", e);
+		}
+	}
+
+	/*
+	 * Load the next window if half of the current one has passed, then fire what
+	 * is due at nowMillis. Returns the number of reminders notified.
+	 */
+	public int tick(long nowMillis) {
+		if (nowMillis + horizonMillis / 2 >= reminderSchedule.getLoadedUntil()) {
+			load(nowMillis + horizonMillis);
+		}
+		List<Integer> due = reminderSchedule.advance(nowMillis);
+		int fired = 0;
+		for (int from = 0; from < due.size(); from += batchSize) {
+			fired += fire(due.subList(from, Math.min(from + batchSize, due.size())), nowMillis);
+		}
+		return fired;
+	}
+
+	private void load(long until) {
+		Date dueAfter = reminderSchedule.extendWindow(until);
+		Date dueUntil = new Date(until);
+		int idAfter = Integer.MAX_VALUE;
+		int loaded = 0;
+		List<DueReminder> page;
+		do {
+			page = reminderDAO.getPendingReminders(dueAfter, idAfter, dueUntil, batchSize);
+			for (DueReminder reminder : page) {
+				reminderSchedule.schedule(reminder.getReminderId(), reminder.getDueDate());
+			}
+			if (!page.isEmpty()) {
+				DueReminder last = page.get(page.size() - 1);
+				dueAfter = last.getDueDate();
+				idAfter = last.getReminderId();
+				loaded += page.size();
+			}
+		} while (page.size() == batchSize);
+		LOGGER.debug("ReminderScheduler : load : {} reminders due until {}", loaded, dueUntil);
+	}
+
+	private int fire(List<Integer> reminderIds, long nowMillis) {
+		List<DueReminder> batch = new ArrayList<>(reminderIds.size());
+		for (DueReminder reminder : reminderDAO.getDueReminders(reminderIds)) {
+			if (reminder.getDueDate().getTime() <= nowMillis) {
+				batch.add(reminder);
+			} else {
+				reminderSchedule.schedule(reminder.getReminderId(), reminder.getDueDate());
+			}
+		}
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		List<Integer> dueIds = new ArrayList<>(batch.size());
+		batch.forEach(reminder -> dueIds.add(reminder.getReminderId()));
+		String claim = UUID.randomUUID().toString();
+		Set<Integer> claimedIds = new HashSet<>(reminderDAO.claimReminders(dueIds, new Date(nowMillis), claim));
+		batch.removeIf(reminder -> !claimedIds.contains(reminder.getReminderId()));
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		try {
+			reminderNotifier.notify(batch);
+		} catch (RuntimeException e) {
+			LOGGER.warn("ReminderScheduler : fire : notifying {} reminders failed, retrying in {} ms : {}",
+					batch.size(), retryMillis, e.toString());
+			failureMeter.mark();
+			reminderDAO.releaseReminders(claimedIds, claim);
+			Date retry = new Date(nowMillis + retryMillis);
+			claimedIds.forEach(reminderId -> reminderSchedule.schedule(reminderId, retry));
+			return 0;
+		}
+		firedMeter.mark(batch.size());
+		return batch.size();
+	}
+
+}
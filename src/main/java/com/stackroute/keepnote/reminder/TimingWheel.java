@@ -0,0 +1,206 @@
+package com.stackroute.keepnote.reminder;
+
+import java.util.List;
+
+/*
+ * A hierarchical timing wheel: levels wheels of wheelSize slots each, a slot of
+ * level 0 spanning one tick and a slot of level n spanning wheelSize^n ticks. A
+ * timeout is put in the slot of the lowest level whose span reaches its
+ * deadline, and moves down a level each time the wheel above it turns to its
+ * slot, until it expires from level 0. Adding and cancelling a timeout are O(1)
+ * (a slot is a doubly linked list), and advancing by a tick costs one slot,
+ * whatever the number of timeouts.
+ *
+ * Deadlines are in ticks (millis / tick duration, as counted by the caller).
+ * Deadlines beyond the span of the top level wait in its furthest slot and are
+ * placed again when it is reached. The class is not thread-safe.
+ */
+public class TimingWheel<T> {
+
+	private final int bits;
+
+	private final int mask;
+
+	private final Slot<T>[][] slots;
+
+	private long currentTick;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	public TimingWheel(int wheelSize, int levels, long startTick) {
+		if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+		}
+		if (levels < 1 || (long) Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+			throw new IllegalArgumentException("Unsupported number of levels: " + levels);
+		}
+		this.bits = Integer.numberOfTrailingZeros(wheelSize);
+		this.mask = wheelSize - 1;
+		this.slots = new Slot[levels][wheelSize];
+		for (Slot<T>[] level : slots) {
+			for (int i = 0; i < wheelSize; i++) {
+				level[i] = new Slot<>();
+			}
+		}
+		this.currentTick = startTick;
+	}
+
+	/*
+	 * Add a timeout expiring at deadlineTick. A deadline that has already passed
+	 * expires on the next advance.
+	 */
+	public Timeout<T> add(T value, long deadlineTick) {
+		Timeout<T> timeout = new Timeout<>(value, deadlineTick);
+		place(timeout, currentTick + 1);
+		size++;
+		return timeout;
+	}
+
+	/*
+	 * Remove a timeout that has not expired yet; returns false if it already
+	 * expired or was cancelled.
+	 */
+	public boolean cancel(Timeout<T> timeout) {
+		if (timeout.slot == null) {
+			return false;
+		}
+		timeout.unlink();
+		size--;
+		return true;
+	}
+
+	/*
+	 * Turn the wheels up to nowTick, adding the values of the timeouts expired on
+	 * the way to expired, in deadline order tick by tick.
+	 */
+	public void advance(long nowTick, List<T> expired) {
+		while (currentTick < nowTick) {
+			currentTick++;
+			cascade(1);
+			expire(slots[0][(int) (currentTick & mask)], expired);
+		}
+	}
+
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * When a level turns over to slot 0, the slot of the level above that now
+	 * comes into its span is spread over the lower levels.
+	 */
+	private void cascade(int level) {
+		if (level >= slots.length || ((currentTick >>> (bits * (level - 1))) & mask) != 0) {
+			return;
+		}
+		cascade(level + 1);
+		Slot<T> slot = slots[level][(int) ((currentTick >>> (bits * level)) & mask)];
+		Timeout<T> timeout = slot.first();
+		while (timeout != null) {
+			Timeout<T> next = timeout.next == slot.head ? null : timeout.next;
+			timeout.unlink();
+			place(timeout, currentTick);
+			timeout = next;
+		}
+	}
+
+	private void expire(Slot<T> slot, List<T> expired) {
+		Timeout<T> timeout = slot.first();
+		while (timeout != null) {
+			Timeout<T> next = timeout.next == slot.head ? null : timeout.next;
+			if (timeout.deadlineTick <= currentTick) {
+				timeout.unlink();
+				size--;
+				expired.add(timeout.value);
+			}
+			timeout = next;
+		}
+	}
+
+	/*
+	 * The current tick has already expired when a timeout is added, not when it
+	 * cascades; earliest is the first tick its slot may be.
+	 */
+	private void place(Timeout<T> timeout, long earliest) {
+		long deadline = Math.max(timeout.deadlineTick, earliest);
+		long delta = deadline - currentTick;
+		for (int level = 0; level < slots.length; level++) {
+			if (delta < (1L << (bits * (level + 1))) || level == slots.length - 1) {
+				if (level == slots.length - 1 && delta >= (1L << (bits * (level + 1)))) {
+					deadline = currentTick + (1L << (bits * (level + 1))) - 1;
+				}
+				slots[level][(int) ((deadline >>> (bits * level)) & mask)].append(timeout);
+				return;
+			}
+		}
+	}
+
+	/*
+	 * A pending timeout, as returned by add(), to cancel it.
+	 */
+	public static final class Timeout<T> {
+
+		private final T value;
+
+		private final long deadlineTick;
+
+		private Slot<T> slot;
+
+		private Timeout<T> previous;
+
+		private Timeout<T> next;
+
+		private Timeout(T value, long deadlineTick) {
+			this.value = value;
+			this.deadlineTick = deadlineTick;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		public long getDeadlineTick() {
+			return deadlineTick;
+		}
+
+		public boolean isPending() {
+			return slot != null;
+		}
+
+		private void unlink() {
+			previous.next = next;
+			next.previous = previous;
+			previous = null;
+			next = null;
+			slot = null;
+		}
+	}
+
+	private static final class Slot<T> {
+
+		private final Timeout<T> head = new Timeout<>(null, 0);
+
+		private Slot() {
+			head.previous = head;
+			head.next = head;
+		}
+
+		private Timeout<T> first() {
+			return head.next == head ? null : head.next;
+		}
+
+		private void append(Timeout<T> timeout) {
+			timeout.slot = this;
+			timeout.previous = head.previous;
+			timeout.next = head;
+			head.previous.next = timeout;
+			head.previous = timeout;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.search;
+
+/*
+ * The class "NoteSearchHit" is one ranked result of a note search: the note's id and
+ * title together with its BM25 score for the query. Hits are immutable.
+ */
+public class NoteSearchHit {
+
+	private final int noteId;
+
+	private final String noteTitle;
+
+	private final double score;
+
+	public NoteSearchHit(int noteId, String noteTitle, double score) {
+		this.noteId = noteId;
+		this.noteTitle = noteTitle;
+		this.score = score;
+	}
+
+	public int getNoteId() {
+		return this.noteId;
+	}
+
+	public String getNoteTitle() {
+		return this.noteTitle;
+	}
+
+	public double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public String toString() {
+		return "noteId : "+getNoteId()+" "
+				+"noteTitle : "+getNoteTitle()+" "
+				+"score : "+getScore();
+	}
+
+}
@@ -0,0 +1,289 @@
+package com.stackroute.keepnote.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * In-process inverted index over the title and content of the notes. Every user has
+ * an index of their own, holding a sorted postings map (term -> noteId -> term
+ * frequency) and the length of each note. The sorted map answers prefix queries
+ * ("spri*") with a range scan. Results are ranked with Okapi BM25, and title terms
+ * count TITLE_WEIGHT times so that a match in the title outranks one in the body.
+ *
+ * The index is kept up to date by NoteDAOImpl after every committed write and is
+ * rebuilt from the Note table at startup (see NoteSearchServiceImpl).
+ */
+@Component
+public class NoteSearchIndex {
+
+	private static final double K1 = 1.2;
+
+	private static final double B = 0.75;
+
+	private static final int TITLE_WEIGHT = 2;
+
+	/* Upper bound on the number of index terms a single prefix expands to */
+	public static final int MAX_PREFIX_EXPANSIONS = 64;
+
+	private final ConcurrentMap<String, UserIndex> users = new ConcurrentHashMap<>();
+
+	/* noteId -> userId, needed because notes are deleted by id only */
+	private final ConcurrentMap<Integer, String> owners = new ConcurrentHashMap<>();
+
+	/*
+	 * Add a note to the index, replacing any previously indexed version of it.
+	 */
+	public void index(Note note) {
+		if (note == null || note.getCreatedBy() == null) {
+			return;
+		}
+		String previousOwner = owners.put(note.getNoteId(), note.getCreatedBy());
+		if (previousOwner != null && !previousOwner.equals(note.getCreatedBy())) {
+			UserIndex previous = users.get(previousOwner);
+			if (previous != null) {
+				previous.remove(note.getNoteId());
+			}
+		}
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (String term : tokenize(note.getNoteTitle())) {
+			frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+		}
+		for (String term : tokenize(note.getNoteContent())) {
+			frequencies.merge(term, 1, Integer::sum);
+		}
+		users.computeIfAbsent(note.getCreatedBy(), userId -> new UserIndex())
+				.add(note.getNoteId(), note.getNoteTitle(), frequencies);
+	}
+
+	/*
+	 * Remove a note from the index. Removing a note that is not indexed is a no-op.
+	 */
+	public void remove(int noteId) {
+		String owner = owners.remove(noteId);
+		if (owner != null) {
+			UserIndex index = users.get(owner);
+			if (index != null) {
+				index.remove(noteId);
+			}
+		}
+	}
+
+	/*
+	 * Search the notes of a user. The query is split into terms the same way the
+	 * notes are; a term ending with '*' matches every indexed term starting with it.
+	 * A note matches when it contains any of the terms, and the best limit matches
+	 * are returned in descending score order.
+	 */
+	public List<NoteSearchHit> search(String userId, String query, int limit) {
+		UserIndex index = users.get(userId);
+		if (index == null || query == null || limit <= 0) {
+			return Collections.emptyList();
+		}
+		List<String> exactTerms = new ArrayList<>();
+		List<String> prefixes = new ArrayList<>();
+		for (String part : query.trim().split("\\s+")) {
+			boolean prefix = part.endsWith("*");
+			List<String> terms = tokenize(prefix ? part.substring(0, part.length() - 1) : part);
+			if (terms.isEmpty()) {
+				continue;
+			}
+			if (prefix) {
+				exactTerms.addAll(terms.subList(0, terms.size() - 1));
+				prefixes.add(terms.get(terms.size() - 1));
+			} else {
+				exactTerms.addAll(terms);
+			}
+		}
+		return index.search(exactTerms, prefixes, limit);
+	}
+
+	/*
+	 * Remove every note from the index.
+	 */
+	public void clear() {
+		users.clear();
+		owners.clear();
+	}
+
+	/*
+	 * Number of notes currently in the index.
+	 */
+	public int size() {
+		return owners.size();
+	}
+
+	/*
+	 * Split a text into lower-cased terms made of letters and digits.
+	 */
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	private static final class Document {
+
+		private final String title;
+
+		private final Map<String, Integer> frequencies;
+
+		private final int length;
+
+		private Document(String title, Map<String, Integer> frequencies) {
+			this.title = title;
+			this.frequencies = frequencies;
+			int total = 0;
+			for (int frequency : frequencies.values()) {
+				total += frequency;
+			}
+			this.length = total;
+		}
+
+	}
+
+	private static final class UserIndex {
+
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+
+		private final Map<Integer, Document> documents = new HashMap<>();
+
+		private long totalLength;
+
+		private void add(int noteId, String title, Map<String, Integer> frequencies) {
+			lock.writeLock().lock();
+			try {
+				removeLocked(noteId);
+				Document document = new Document(title, frequencies);
+				documents.put(noteId, document);
+				totalLength += document.length;
+				for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+					postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(noteId, entry.getValue());
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void remove(int noteId) {
+			lock.writeLock().lock();
+			try {
+				removeLocked(noteId);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void removeLocked(int noteId) {
+			Document document = documents.remove(noteId);
+			if (document == null) {
+				return;
+			}
+			totalLength -= document.length;
+			for (String term : document.frequencies.keySet()) {
+				Map<Integer, Integer> posting = postings.get(term);
+				if (posting != null) {
+					posting.remove(noteId);
+					if (posting.isEmpty()) {
+						postings.remove(term);
+					}
+				}
+			}
+		}
+
+		private List<NoteSearchHit> search(List<String> exactTerms, List<String> prefixes, int limit) {
+			lock.readLock().lock();
+			try {
+				if (documents.isEmpty()) {
+					return Collections.emptyList();
+				}
+				Map<Integer, Double> scores = new HashMap<>();
+				double averageLength = (double) totalLength / documents.size();
+				for (String term : exactTerms) {
+					score(term, postings.get(term), averageLength, scores);
+				}
+				for (String prefix : prefixes) {
+					int expansions = 0;
+					for (Map.Entry<String, Map<Integer, Integer>> entry : postings
+							.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+						if (++expansions > MAX_PREFIX_EXPANSIONS) {
+							break;
+						}
+						score(entry.getKey(), entry.getValue(), averageLength, scores);
+					}
+				}
+				return topHits(scores, limit);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private void score(String term, Map<Integer, Integer> posting, double averageLength,
+				Map<Integer, Double> scores) {
+			if (posting == null) {
+				return;
+			}
+			int documentCount = documents.size();
+			int documentFrequency = posting.size();
+			double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+			for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+				double frequency = entry.getValue();
+				double length = documents.get(entry.getKey()).length;
+				double termScore = idf * frequency * (K1 + 1)
+						/ (frequency + K1 * (1 - B + B * length / averageLength));
+				scores.merge(entry.getKey(), termScore, Double::sum);
+			}
+		}
+
+		private List<NoteSearchHit> topHits(Map<Integer, Double> scores, int limit) {
+			Comparator<Map.Entry<Integer, Double>> byScore = Comparator
+					.comparing((Map.Entry<Integer, Double> entry) -> entry.getValue())
+					.thenComparing(entry -> -entry.getKey());
+			PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(byScore);
+			for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+				best.offer(entry);
+				if (best.size() > limit) {
+					best.poll();
+				}
+			}
+			List<NoteSearchHit> hits = new ArrayList<>(best.size());
+			while (!best.isEmpty()) {
+				Map.Entry<Integer, Double> entry = best.poll();
+				hits.add(new NoteSearchHit(entry.getKey(), documents.get(entry.getKey()).title, entry.getValue()));
+			}
+			Collections.reverse(hits);
+			return hits;
+		}
+
+	}
+
+}
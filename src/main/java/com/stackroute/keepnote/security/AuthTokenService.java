@@ -0,0 +1,201 @@
+package com.stackroute.keepnote.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Issues and verifies the signed tokens used when keepnote.auth.mode=token. A token
+ * carries everything needed to authenticate a request, so any node holding the
+ * shared secret can verify it without a session store.
+ *
+ * The token is the URL-safe base64 (no padding) of a compact binary record:
+ * [version : 1 byte][expiry, epoch seconds : 4 bytes][userId : UTF-8][HMAC-SHA256 : 32 bytes]
+ * where the HMAC covers everything before it.
+ *
+ * Verifying means decoding the token and recomputing the HMAC, so tokens that
+ * passed verification are kept in a bounded cache until they expire: the filter
+ * sees the same token on every request of a client.
+ *
+ * Tokens cannot be revoked individually; they stop working at their expiry
+ * (keepnote.auth.token-ttl-seconds) or when the secret is changed. Logging out,
+ * changing the password or deleting the user leaves the tokens already issued
+ * valid until then, so the TTL should be kept short.
+ *
+ * In token mode keepnote.auth.token-secret must be set, to the same value on
+ * every node; startup fails otherwise.
+ */
+@Component("authTokenService")
+public class AuthTokenService {
+
+	public static final String MODE_SESSION = "session";
+
+	public static final String MODE_TOKEN = "token";
+
+	private static final byte VERSION = 1;
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private static final int MAC_LENGTH = 32;
+
+	private static final int HEADER_LENGTH = 1 + 4;
+
+	private Logger LOGGER = LoggerFactory.getLogger(AuthTokenService.class);
+
+	private final boolean tokenMode;
+
+	private final SecretKeySpec key;
+
+	private final long ttlSeconds;
+
+	private final int cacheSize;
+
+	private final ConcurrentMap<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+	/* Mac instances are not thread-safe and costly to look up, so each thread keeps one */
+	private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+	@Autowired
+	public AuthTokenService(@Value("${keepnote.auth.mode:session}") String mode,
+			@Value("${keepnote.auth.token-secret:}") String secret,
+			@Value("${keepnote.auth.token-ttl-seconds:3600}") long ttlSeconds,
+			@Value("${keepnote.auth.token-cache-size:10000}") int cacheSize) {
+		this.tokenMode = MODE_TOKEN.equalsIgnoreCase(mode.trim());
+		this.ttlSeconds = ttlSeconds;
+		this.cacheSize = cacheSize;
+		byte[] secretBytes;
+		if (secret == null || secret.trim().isEmpty()) {
+			if (tokenMode) {
+				throw new IllegalStateException("keepnote.auth.token-secret must be set when keepnote.auth.mode="
+						+ MODE_TOKEN + ", to the same value on every node");
+			}
+			// never used to issue tokens: session mode only
+			secretBytes = new byte[MAC_LENGTH];
+			new SecureRandom().nextBytes(secretBytes);
+		} else {
+			secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+		}
+		this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+		newMac();
+	}
+
+	/*
+	 * Whether requests are authenticated with tokens instead of the HttpSession.
+	 */
+	public boolean isTokenMode() {
+		return tokenMode;
+	}
+
+	/*
+	 * Issue a token for a user who has just been authenticated.
+	 */
+	public String issueToken(String userId) {
+		byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+		long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + user.length + MAC_LENGTH);
+		buffer.put(VERSION).putInt((int) expiresAt).put(user);
+		Mac mac = macs.get();
+		mac.update(buffer.array(), 0, buffer.position());
+		buffer.put(mac.doFinal());
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+
+	/*
+	 * Return the userId a token was issued for, or null if the token is malformed,
+	 * has been tampered with or has expired.
+	 */
+	public String verifyToken(String token) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		VerifiedToken cached = verified.get(token);
+		if (cached != null) {
+			if (now < cached.expiresAtMillis) {
+				return cached.userId;
+			}
+			verified.remove(token);
+			return null;
+		}
+		byte[] decoded;
+		try {
+			decoded = Base64.getUrlDecoder().decode(token);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		int payloadLength = decoded.length - MAC_LENGTH;
+		if (payloadLength <= HEADER_LENGTH || decoded[0] != VERSION) {
+			return null;
+		}
+		Mac mac = macs.get();
+		mac.update(decoded, 0, payloadLength);
+		byte[] expected = mac.doFinal();
+		byte[] actual = new byte[MAC_LENGTH];
+		System.arraycopy(decoded, payloadLength, actual, 0, MAC_LENGTH);
+		if (!MessageDigest.isEqual(expected, actual)) {
+			return null;
+		}
+		long expiresAtMillis = (ByteBuffer.wrap(decoded, 1, 4).getInt() & 0xFFFFFFFFL) * 1000;
+		if (now >= expiresAtMillis) {
+			return null;
+		}
+		String userId = new String(decoded, HEADER_LENGTH, payloadLength - HEADER_LENGTH, StandardCharsets.UTF_8);
+		remember(token, new VerifiedToken(userId, expiresAtMillis), now);
+		return userId;
+	}
+
+	private void remember(String token, VerifiedToken verifiedToken, long now) {
+		if (verified.size() >= cacheSize) {
+			for (Iterator<Map.Entry<String, VerifiedToken>> entries = verified.entrySet().iterator(); entries
+					.hasNext();) {
+				if (now >= entries.next().getValue().expiresAtMillis) {
+					entries.remove();
+				}
+			}
+			if (verified.size() >= cacheSize) {
+				verified.clear();
+			}
+		}
+		verified.put(token, verifiedToken);
+	}
+
+	private Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+		}
+	}
+
+	private static final class VerifiedToken {
+
+		private final String userId;
+
+		private final long expiresAtMillis;
+
+		private VerifiedToken(String userId, long expiresAtMillis) {
+			this.userId = userId;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+	}
+
+}
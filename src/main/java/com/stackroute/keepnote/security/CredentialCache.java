@@ -0,0 +1,89 @@
+package com.stackroute.keepnote.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Bounded, least-recently-used cache of userId -> stored password hash, so that a
+ * user logging in again is verified without reading the User table. Entries are
+ * added by UserDaoImpl.validateUser after a successful check and removed by
+ * UserDaoImpl.updateUser and deleteUser.
+ *
+ * The cache is local to a node and eviction only happens on the node that ran
+ * the update: another node keeps accepting the old password of a user until its
+ * entry expires, keepnote.auth.credential-cache-ttl-seconds after the login that
+ * cached it. The default TTL is therefore short, and is only safe to raise where
+ * a single node serves the application. A size or TTL of 0 disables the cache.
+ */
+@Component("credentialCache")
+public class CredentialCache {
+
+	private final int maximumSize;
+
+	private final long ttlMillis;
+
+	private final Map<String, Entry> entries;
+
+	@Autowired
+	public CredentialCache(@Value("${keepnote.auth.credential-cache-size:10000}") int maximumSize,
+			@Value("${keepnote.auth.credential-cache-ttl-seconds:30}") long ttlSeconds) {
+		this.maximumSize = maximumSize;
+		this.ttlMillis = ttlSeconds * 1000;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > CredentialCache.this.maximumSize;
+			}
+		};
+	}
+
+	/*
+	 * The cached password hash of a user, or null if it is not cached or expired.
+	 */
+	public synchronized String get(String userId) {
+		Entry entry = entries.get(userId);
+		if (entry == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() >= entry.expiresAtMillis) {
+			entries.remove(userId);
+			return null;
+		}
+		return entry.passwordHash;
+	}
+
+	public synchronized void put(String userId, String passwordHash) {
+		if (maximumSize > 0 && ttlMillis > 0) {
+			entries.put(userId, new Entry(passwordHash, System.currentTimeMillis() + ttlMillis));
+		}
+	}
+
+	public synchronized void evict(String userId) {
+		entries.remove(userId);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+
+		private final String passwordHash;
+
+		private final long expiresAtMillis;
+
+		private Entry(String passwordHash, long expiresAtMillis) {
+			this.passwordHash = passwordHash;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.stackroute.keepnote.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Hashes passwords with PBKDF2 (HMAC-SHA512, random 16 byte salt) and checks them.
+ * The stored form records the iteration count, so it can be raised later without
+ * invalidating existing hashes:
+ *
+ *   pbkdf2-sha512$<iterations>$<salt, base64>$<hash, base64>
+ *
+ * Anything not in that form is a password stored in plaintext before hashing was
+ * introduced. It is still accepted, and needsRehash() tells the caller to replace
+ * it with a hash after the next successful login.
+ */
+@Component("passwordHasher")
+public class PasswordHasher {
+
+	public static final String PREFIX = "pbkdf2-sha512$";
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+
+	private static final int SALT_LENGTH = 16;
+
+	private static final int HASH_BITS = 512;
+
+	private final int iterations;
+
+	private final SecureRandom random = new SecureRandom();
+
+	@Autowired
+	public PasswordHasher(@Value("${keepnote.auth.password-hash-iterations:210000}") int iterations) {
+		this.iterations = iterations;
+	}
+
+	/*
+	 * Hash a password with a new salt.
+	 */
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_LENGTH];
+		random.nextBytes(salt);
+		byte[] hash = pbkdf2(password, salt, iterations);
+		Base64.Encoder encoder = Base64.getEncoder();
+		return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+
+	/*
+	 * Check a password against its stored form. The comparison takes the same time
+	 * wherever the first differing byte is.
+	 */
+	public boolean matches(String password, String stored) {
+		if (password == null || stored == null) {
+			return false;
+		}
+		if (!isHashed(stored)) {
+			return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+					stored.getBytes(StandardCharsets.UTF_8));
+		}
+		String[] parts = stored.substring(PREFIX.length()).split("\\$");
+		if (parts.length != 3) {
+			return false;
+		}
+		try {
+			Base64.Decoder decoder = Base64.getDecoder();
+			byte[] expected = decoder.decode(parts[2]);
+			byte[] actual = pbkdf2(password, decoder.decode(parts[1]), Integer.parseInt(parts[0]));
+			return MessageDigest.isEqual(expected, actual);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Whether a stored password is a hash produced by this class.
+	 */
+	public boolean isHashed(String stored) {
+		return stored != null && stored.startsWith(PREFIX);
+	}
+
+	/*
+	 * Whether a stored password should be replaced: it is still plaintext, or was
+	 * hashed with fewer iterations than are configured now.
+	 */
+	public boolean needsRehash(String stored) {
+		if (!isHashed(stored)) {
+			return true;
+		}
+		int end = stored.indexOf('$', PREFIX.length());
+		try {
+			return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Cannot compute " + ALGORITHM, e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.stackroute.keepnote.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*
+ * Authenticates requests carrying an "Authorization: Bearer <token>" header when
+ * keepnote.auth.mode=token. It is registered in front of the DispatcherServlet by
+ * WebApplicationInitializer.
+ *
+ * The request is passed on wrapped, so that getSession() returns a TokenHttpSession
+ * holding the loggedInUserId of the verified token (or nothing, if the token is
+ * missing or invalid). The controllers keep reading the user from the session as
+ * before, but no container session is ever created, and a request can be served
+ * by any node.
+ *
+ * In session mode the filter does nothing.
+ */
+@Component("tokenAuthenticationFilter")
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+	public static final String LOGGEDIN_USERID = "loggedInUserId";
+
+	public static final String BEARER_PREFIX = "Bearer ";
+
+	private AuthTokenService authTokenService;
+
+	@Autowired
+	public TokenAuthenticationFilter(AuthTokenService authTokenService) {
+		this.authTokenService = authTokenService;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!authTokenService.isTokenMode()) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String userId = null;
+		String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+		if (header != null && header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+			userId = authTokenService.verifyToken(header.substring(BEARER_PREFIX.length()).trim());
+		}
+		chain.doFilter(new TokenSessionRequest(request, userId), response);
+	}
+
+	private static final class TokenSessionRequest extends HttpServletRequestWrapper {
+
+		private final String userId;
+
+		private TokenHttpSession session;
+
+		private TokenSessionRequest(HttpServletRequest request, String userId) {
+			super(request);
+			this.userId = userId;
+		}
+
+		@Override
+		public HttpSession getSession() {
+			return getSession(true);
+		}
+
+		@Override
+		public HttpSession getSession(boolean create) {
+			if (session == null && (create || userId != null)) {
+				session = new TokenHttpSession(getServletContext(), userId);
+			}
+			return session;
+		}
+
+		@Override
+		public boolean isRequestedSessionIdValid() {
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.stackroute.keepnote.security;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+/*
+ * A session that lives only for the duration of one request. In token mode the
+ * controllers are handed this instead of a container session: it is created by
+ * TokenAuthenticationFilter from the verified token, so nothing is stored on the
+ * server between requests and any node can serve any request.
+ */
+class TokenHttpSession implements HttpSession {
+
+	private final ServletContext servletContext;
+
+	private final long creationTime = System.currentTimeMillis();
+
+	private final Map<String, Object> attributes = new HashMap<>(4);
+
+	TokenHttpSession(ServletContext servletContext, String userId) {
+		this.servletContext = servletContext;
+		if (userId != null) {
+			attributes.put(TokenAuthenticationFilter.LOGGEDIN_USERID, userId);
+		}
+	}
+
+	@Override
+	public long getCreationTime() {
+		return creationTime;
+	}
+
+	@Override
+	public String getId() {
+		return "token-" + Integer.toHexString(System.identityHashCode(this));
+	}
+
+	@Override
+	public long getLastAccessedTime() {
+		return creationTime;
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return servletContext;
+	}
+
+	@Override
+	public void setMaxInactiveInterval(int interval) {
+		// The session ends with the request
+	}
+
+	@Override
+	public int getMaxInactiveInterval() {
+		return 0;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public javax.servlet.http.HttpSessionContext getSessionContext() {
+		return null;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public Object getValue(String name) {
+		return getAttribute(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		return Collections.enumeration(attributes.keySet());
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] getValueNames() {
+		return attributes.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public void putValue(String name, Object value) {
+		setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public void removeValue(String name) {
+		removeAttribute(name);
+	}
+
+	@Override
+	public void invalidate() {
+		attributes.clear();
+	}
+
+	@Override
+	public boolean isNew() {
+		return true;
+	}
+
+}
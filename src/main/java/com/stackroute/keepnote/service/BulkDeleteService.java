@@ -0,0 +1,23 @@
+package com.stackroute.keepnote.service;
+
+public interface BulkDeleteService {
+
+	/*
+	 * Delete all the notes, categories, reminders and change log entries of a
+	 * user, but not the user itself, and return the number of rows deleted.
+	 */
+	public int deleteUserData(String userId);
+
+	/*
+	 * Remove the notes of a category from it, so that the category can be
+	 * deleted, and return how many notes were detached.
+	 */
+	public int detachCategoryNotes(int categoryId);
+
+	/*
+	 * Remove the notes of a reminder from it, so that the reminder can be
+	 * deleted, and return how many notes were detached.
+	 */
+	public int detachReminderNotes(int reminderId);
+
+}
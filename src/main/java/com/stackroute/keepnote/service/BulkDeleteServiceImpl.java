@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.service;
+
+import java.util.function.IntUnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+
+/*
+ * Deletes and detaches rows by the set, keepnote.bulk-delete.chunk-size rows per
+ * statement. Every chunk is a DAO call with a transaction of its own, and this
+ * service is deliberately not transactional: a purge of a hundred thousand
+ * notes is a series of short transactions, each holding its row locks for one
+ * chunk only, instead of one transaction locking the whole account for minutes.
+ *
+ * A purge that fails half way leaves the chunks already committed deleted;
+ * running it again finishes it. Notes go first, since they refer to the
+ * categories and reminders.
+ */
+@Service("bulkDeleteService")
+public class BulkDeleteServiceImpl implements BulkDeleteService {
+
+	private Logger LOGGER = LoggerFactory.getLogger(BulkDeleteServiceImpl.class);
+
+	private NoteDAO noteDAO;
+
+	private CategoryDAO categoryDAO;
+
+	private ReminderDAO reminderDAO;
+
+	private ChangeLogDAO changeLogDAO;
+
+	private int chunkSize;
+
+	@Autowired
+	public BulkDeleteServiceImpl(NoteDAO noteDAO, CategoryDAO categoryDAO, ReminderDAO reminderDAO,
+			ChangeLogDAO changeLogDAO, @Value("${keepnote.bulk-delete.chunk-size:1000}") int chunkSize) {
+		this.noteDAO = noteDAO;
+		this.categoryDAO = categoryDAO;
+		this.reminderDAO = reminderDAO;
+		this.changeLogDAO = changeLogDAO;
+		this.chunkSize = Math.max(chunkSize, 1);
+	}
+
+	public int deleteUserData(String userId) {
+		long start = System.currentTimeMillis();
+		int notes = inChunks(size -> noteDAO.deleteNotesByUserId(userId, size).size());
+		int categories = inChunks(size -> categoryDAO.deleteCategoriesByUserId(userId, size).size());
+		int reminders = inChunks(size -> reminderDAO.deleteRemindersByUserId(userId, size).size());
+		int changes = inChunks(size -> changeLogDAO.deleteChangesByUserId(userId, size));
+		LOGGER.info("BulkDeleteServiceImpl : deleteUserData : {} : {} notes, {} categories, {} reminders, "
+				+ "{} change log entries in {} ms", userId, notes, categories, reminders, changes,
+				System.currentTimeMillis() - start);
+		return notes + categories + reminders + changes;
+	}
+
+	public int detachCategoryNotes(int categoryId) {
+		return inChunks(size -> noteDAO.detachNotesFromCategory(categoryId, size));
+	}
+
+	public int detachReminderNotes(int reminderId) {
+		return inChunks(size -> noteDAO.detachNotesFromReminder(reminderId, size));
+	}
+
+	/*
+	 * Run a chunk operation, returning the number of rows it handled, until a
+	 * chunk comes back short.
+	 */
+	private int inChunks(IntUnaryOperator chunk) {
+		int total = 0;
+		int handled;
+		do {
+			handled = chunk.applyAsInt(chunkSize);
+			total += handled;
+		} while (handled == chunkSize);
+		return total;
+	}
+
+}
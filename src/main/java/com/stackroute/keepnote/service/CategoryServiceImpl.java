@@ -27,11 +27,18 @@ public class CategoryServiceImpl implements CategoryService {
 	 */
 	private CategoryDAO categoryDAO;
 
+	private BulkDeleteService bulkDeleteService;
+
 	@Autowired
 	public CategoryServiceImpl(CategoryDAO categoryDAO) {
 		this.categoryDAO = categoryDAO;
 	}
 
+	@Autowired(required = false)
+	public void setBulkDeleteService(BulkDeleteService bulkDeleteService) {
+		this.bulkDeleteService = bulkDeleteService;
+	}
+
 	/*
 	 * This method should be used to save a new category.
 	 */
@@ -40,8 +47,14 @@ public class CategoryServiceImpl implements CategoryService {
 
 	}
 
-	/* This method should be used to delete an existing category. */
+	/*
+	 * This method should be used to delete an existing category. Its notes are
+	 * kept, without a category; they are detached in chunks first.
+	 */
 	public boolean deleteCategory(int categoryId) {
+		if (bulkDeleteService != null) {
+			bulkDeleteService.detachCategoryNotes(categoryId);
+		}
 		return categoryDAO.deleteCategory(categoryId);
 
 	}
@@ -52,10 +65,9 @@ public class CategoryServiceImpl implements CategoryService {
 
 	public Category updateCategory(Category category, int id) throws CategoryNotFoundException {
 		Category cate = categoryDAO.getCategoryById(id);
-		if (cate == null) {
+		category.setCategoryId(id);
+		if (cate == null || !categoryDAO.updateCategory(category)) {
 			throw new CategoryNotFoundException("Category Not Found");
-		} else {
-			categoryDAO.updateCategory(category);
 		}
 		return category;
 
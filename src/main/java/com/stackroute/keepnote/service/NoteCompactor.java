@@ -0,0 +1,141 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.web.HandlerExecutor;
+
+/*
+ * Purges the tombstones left by soft-deleted notes. Every
+ * keepnote.notes.compactor.interval-seconds a background thread deletes the
+ * tombstones older than grace-seconds, batch-size rows per transaction, oldest
+ * first, until none is left. It only does so while the application is quiet:
+ * before each batch it checks that no more than max-busy-handlers requests are in
+ * flight in the HandlerExecutor, and otherwise leaves the rest to a later run.
+ *
+ * Metrics: notes.compactor.purged (meter, the purge throughput),
+ * notes.compactor.deferred (meter, runs cut short by load) and
+ * notes.compactor.lag-seconds (gauge, age of the oldest tombstone left by the
+ * last run).
+ */
+@Component("noteCompactor")
+public class NoteCompactor implements DisposableBean {
+
+	private Logger LOGGER = LoggerFactory.getLogger(NoteCompactor.class);
+
+	private final NoteDAO noteDAO;
+
+	private final HandlerExecutor handlerExecutor;
+
+	private final boolean enabled;
+
+	private final long intervalSeconds;
+
+	private final long graceMillis;
+
+	private final int batchSize;
+
+	private final int maxBusyHandlers;
+
+	private final Meter purgedMeter;
+
+	private final Meter deferredMeter;
+
+	private volatile long lagMillis;
+
+	private ScheduledExecutorService runner;
+
+	@Autowired
+	public NoteCompactor(NoteDAO noteDAO, HandlerExecutor handlerExecutor, MetricRegistry metricRegistry,
+			@Value("${keepnote.notes.compactor.enabled:true}") boolean enabled,
+			@Value("${keepnote.notes.compactor.interval-seconds:60}") long intervalSeconds,
+			@Value("${keepnote.notes.compactor.grace-seconds:300}") long graceSeconds,
+			@Value("${keepnote.notes.compactor.batch-size:500}") int batchSize,
+			@Value("${keepnote.notes.compactor.max-busy-handlers:4}") int maxBusyHandlers) {
+		this.noteDAO = noteDAO;
+		this.handlerExecutor = handlerExecutor;
+		this.enabled = enabled;
+		this.intervalSeconds = intervalSeconds;
+		this.graceMillis = TimeUnit.SECONDS.toMillis(graceSeconds);
+		this.batchSize = Math.max(batchSize, 1);
+		this.maxBusyHandlers = maxBusyHandlers;
+		this.purgedMeter = metricRegistry.meter(MetricRegistry.name("notes", "compactor", "purged"));
+		this.deferredMeter = metricRegistry.meter(MetricRegistry.name("notes", "compactor", "deferred"));
+		metricRegistry.register(MetricRegistry.name("notes", "compactor", "lag-seconds"),
+				(Gauge<Long>) () -> TimeUnit.MILLISECONDS.toSeconds(lagMillis));
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public synchronized void start() {
+		if (enabled && runner == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keepnote-compactor-");
+			threadFactory.setDaemon(true);
+			runner = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			runner.scheduleWithFixedDelay(this::compactSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (runner != null) {
+			runner.shutdownNow();
+			runner = null;
+		}
+	}
+
+	private void compactSafely() {
+		try {
+			compact(System.currentTimeMillis());
+		} catch (RuntimeException e) {
+			LOGGER.error("NoteCompactor : compact : failed", e);
+		}
+	}
+
+	/*
+	 * Purge the tombstones deleted grace-seconds before nowMillis or earlier, as
+	 * long as the load allows, and return how many were purged.
+	 */
+	public int compact(long nowMillis) {
+		Date deletedBefore = new Date(nowMillis - graceMillis);
+		int purged = 0;
+		int batch;
+		do {
+			if (handlerExecutor.getInFlight() > maxBusyHandlers) {
+				deferredMeter.mark();
+				LOGGER.debug("NoteCompactor : compact : deferred, {} requests in flight",
+						handlerExecutor.getInFlight());
+				break;
+			}
+			batch = noteDAO.purgeDeletedNotes(deletedBefore, batchSize);
+			purgedMeter.mark(batch);
+			purged += batch;
+		} while (batch == batchSize);
+		Date oldest = noteDAO.getOldestDeletedDate();
+		lagMillis = oldest == null ? 0 : Math.max(nowMillis - oldest.getTime(), 0);
+		if (purged > 0) {
+			LOGGER.info("NoteCompactor : compact : {} notes purged", purged);
+		}
+		return purged;
+	}
+
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+}
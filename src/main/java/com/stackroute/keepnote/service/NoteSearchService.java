@@ -0,0 +1,13 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.search.NoteSearchHit;
+
+public interface NoteSearchService {
+
+	public List<NoteSearchHit> searchNotes(String userId, String query, int limit);
+
+	public int rebuildIndex();
+
+}
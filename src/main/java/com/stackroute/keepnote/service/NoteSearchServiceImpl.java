@@ -0,0 +1,84 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.search.NoteSearchHit;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+
+/*
+* Service classes are used here to implement additional business logic/validation 
+* This class has to be annotated with @Service annotation.
+* This service answers note searches from the in-process NoteSearchIndex and
+* repopulates that index from the Note table.
+* */
+@Service("noteSearchService")
+public class NoteSearchServiceImpl implements NoteSearchService {
+
+	public static final int DEFAULT_LIMIT = 20;
+
+	public static final int MAX_LIMIT = 100;
+
+	private Logger LOGGER = LoggerFactory.getLogger(NoteSearchServiceImpl.class);
+
+	private NoteDAO noteDAO;
+
+	private NoteSearchIndex noteSearchIndex;
+
+	@Value("${keepnote.search.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup = true;
+
+	@Autowired
+	public NoteSearchServiceImpl(NoteDAO noteDAO, NoteSearchIndex noteSearchIndex) {
+		this.noteDAO = noteDAO;
+		this.noteSearchIndex = noteSearchIndex;
+	}
+
+	/*
+	 * This method should be used to search the notes of a userId. The number of
+	 * hits is clamped to MAX_LIMIT.
+	 */
+	public List<NoteSearchHit> searchNotes(String userId, String query, int limit) {
+		int hits = (limit <= 0) ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+		return noteSearchIndex.search(userId, query, hits);
+	}
+
+	/*
+	 * This method should be used to repopulate the search index from the Note
+	 * table. The table is streamed, so the rebuild does not hold all notes in
+	 * memory at once. Returns the number of notes indexed.
+	 */
+	public int rebuildIndex() {
+		AtomicInteger indexed = new AtomicInteger();
+		noteSearchIndex.clear();
+		noteDAO.streamAllNotes(note -> {
+			noteSearchIndex.index(note);
+			indexed.incrementAndGet();
+		});
+		return indexed.get();
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void rebuildIndexOnStartup() {
+		if (rebuildOnStartup) {
+			long start = System.currentTimeMillis();
+			try {
+				int indexed = rebuildIndex();
+				LOGGER.info("NoteSearchServiceImpl : rebuildIndex : {} notes indexed in {} ms", indexed,
+						System.currentTimeMillis() - start);
+			} catch (RuntimeException e) {
+				LOGGER.error("NoteSearchServiceImpl : rebuildIndex : failed, search results will be incomplete", e);
+			}
+		}
+	}
+
+}
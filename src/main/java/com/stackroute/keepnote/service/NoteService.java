@@ -1,11 +1,15 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSummary;
 
 public interface NoteService {
 	/*
@@ -14,12 +18,26 @@ public interface NoteService {
 	 */
 	public boolean createNote(Note note) throws ReminderNotFoundException, CategoryNotFoundException;
 
+	public int createNotes(List<Note> notes) throws ReminderNotFoundException, CategoryNotFoundException;
+
 	public boolean deleteNote(int noteId)throws NoteNotFoundException;
 
+	public boolean deleteNote(String userId, int noteId) throws NoteNotFoundException;
+
 	public List<Note> getAllNotesByUserId(String userId);
 
+	public List<NoteSummary> getNoteSummariesByUserId(String userId);
+
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
+	public Note getNoteById(String userId, int noteId, NoteFetchProfile profile) throws NoteNotFoundException;
+
+	public List<Note> getAllNotesByUserId(String userId, NoteFetchProfile profile);
+
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException;
+
+	public NotePage getNotesByUserId(String userId, int afterNoteId, int limit);
+
+	public void streamAllNotesByUserId(String userId, Consumer<Note> consumer);
 }
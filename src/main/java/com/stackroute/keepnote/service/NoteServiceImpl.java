@@ -1,8 +1,12 @@
 package com.stackroute.keepnote.service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
@@ -14,6 +18,9 @@ import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.model.Reminder;
 
 /*
@@ -28,6 +35,15 @@ import com.stackroute.keepnote.model.Reminder;
 @Service("noteService")
 public class NoteServiceImpl implements NoteService {
 
+	public static final int DEFAULT_PAGE_SIZE = 50;
+
+	public static final int MAX_PAGE_SIZE = 500;
+
+	public static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+
+	@Value("${keepnote.import.chunk-size:500}")
+	private int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+
 	/*
 	 * Autowiring should be implemented for the NoteDAO,CategoryDAO,ReminderDAO.
 	 * (Use Constructor-based autowiring) Please note that we should not create any
@@ -63,12 +79,61 @@ private NoteDAO noteDAO;
 
 	}
 
+	/*
+	 * This method should be used to save a list of new notes, e.g. for an import.
+	 * The notes are saved in chunks of keepnote.import.chunk-size, each chunk in
+	 * its own transaction, and the method returns how many notes were saved before
+	 * the first chunk that failed. Each category and reminder is looked up only
+	 * once per call.
+	 */
+
+	public int createNotes(List<Note> notes) throws ReminderNotFoundException, CategoryNotFoundException {
+		Map<Integer, Category> categories = new HashMap<>();
+		Map<Integer, Reminder> reminders = new HashMap<>();
+		for (Note note : notes) {
+			if(!ObjectUtils.isEmpty(note.getCategory())) {
+				int categoryId = note.getCategory().getCategoryId();
+				Category category = categories.get(categoryId);
+				if (category == null) {
+					category = categoryDAO.getCategoryById(categoryId);
+					categories.put(categoryId, category);
+				}
+				note.setCategory(category);
+			}
+			if(!ObjectUtils.isEmpty(note.getReminder())) {
+				int reminderId = note.getReminder().getReminderId();
+				Reminder reminder = reminders.get(reminderId);
+				if (reminder == null) {
+					reminder = reminderDAO.getReminderById(reminderId);
+					reminders.put(reminderId, reminder);
+				}
+				note.setReminder(reminder);
+			}
+		}
+		int created = 0;
+		int chunkSize = Math.max(1, importChunkSize);
+		for (int from = 0; from < notes.size(); from += chunkSize) {
+			List<Note> chunk = notes.subList(from, Math.min(from + chunkSize, notes.size()));
+			if (!noteDAO.createNotes(chunk)) {
+				break;
+			}
+			created += chunk.size();
+		}
+		return created;
+	}
+
 	/* This method should be used to delete an existing note. */
 
 	public boolean deleteNote(int noteId) throws NoteNotFoundException {
 		return noteDAO.deleteNote(noteId);
 
 	}
+
+	/* This method should be used to delete an existing note of a userId. */
+
+	public boolean deleteNote(String userId, int noteId) throws NoteNotFoundException {
+		return noteDAO.deleteNote(userId, noteId);
+	}
 	/*
 	 * This method should be used to get a note by userId.
 	 */
@@ -78,6 +143,14 @@ private NoteDAO noteDAO;
 
 	}
 
+	/*
+	 * This method should be used to get the list view of the notes of a userId.
+	 */
+
+	public List<NoteSummary> getNoteSummariesByUserId(String userId) {
+		return noteDAO.getNoteSummariesByUserId(userId);
+	}
+
 	/*
 	 * This method should be used to get a note by noteId.
 	 */
@@ -91,27 +164,66 @@ private NoteDAO noteDAO;
 	}
 
 	/*
-	 * This method should be used to update a existing note.
+	 * This method should be used to get a note of a userId by noteId with the
+	 * associations of a fetch profile.
+	 */
+	public Note getNoteById(String userId, int noteId, NoteFetchProfile profile) throws NoteNotFoundException {
+		return noteDAO.getNoteById(userId, noteId, profile);
+	}
+
+	/*
+	 * This method should be used to get the notes of a userId with the
+	 * associations of a fetch profile.
+	 */
+	public List<Note> getAllNotesByUserId(String userId, NoteFetchProfile profile) {
+		return noteDAO.getAllNotesByUserId(userId, profile);
+	}
+
+	/*
+	 * This method should be used to update a existing note. The note is not read
+	 * first: the update itself tells whether the note with this id exists.
 	 */
 
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
-		Note fnote = noteDAO.getNoteById(id);
-		if(fnote == null) {
+		note.setNoteId(id);
+		if(!ObjectUtils.isEmpty(note.getCategory())) {
+			Category category = categoryDAO.getCategoryById(note.getCategory().getCategoryId());
+			note.setCategory(category);
+		}
+		if(!ObjectUtils.isEmpty(note.getReminder())) {
+			Reminder reminder = reminderDAO.getReminderById(note.getReminder().getReminderId());
+			note.setReminder(reminder);
+		}
+		if(!noteDAO.UpdateNote(note)) {
 			throw new NoteNotFoundException("Note not found");
-		} else {
-			if(!ObjectUtils.isEmpty(note.getCategory())) {
-				Category category = categoryDAO.getCategoryById(note.getCategory().getCategoryId());
-				note.setCategory(category);
-			}
-			if(!ObjectUtils.isEmpty(note.getReminder())) {
-				Reminder reminder = reminderDAO.getReminderById(note.getReminder().getReminderId());
-				note.setReminder(reminder);
-			}
-			noteDAO.UpdateNote(note);
 		}
 		return note;
 
 	}
 
+	/*
+	 * This method should be used to get one page of notes by userId. The page size
+	 * is clamped to MAX_PAGE_SIZE, and the cursor for the next page is only set
+	 * when the page came back full.
+	 */
+
+	public NotePage getNotesByUserId(String userId, int afterNoteId, int limit) {
+		int pageSize = (limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+		List<Note> notes = noteDAO.getNotesByUserId(userId, afterNoteId, pageSize);
+		Integer nextCursor = null;
+		if (notes.size() == pageSize) {
+			nextCursor = notes.get(notes.size() - 1).getNoteId();
+		}
+		return new NotePage(notes, nextCursor);
+	}
+
+	/*
+	 * This method should be used to stream all notes of a userId to the consumer.
+	 */
+
+	public void streamAllNotesByUserId(String userId, Consumer<Note> consumer) {
+		noteDAO.streamNotesByUserId(userId, consumer);
+	}
+
 }
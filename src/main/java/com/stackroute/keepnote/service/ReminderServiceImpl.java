@@ -28,11 +28,18 @@ public class ReminderServiceImpl implements ReminderService {
 	 */
 	private ReminderDAO reminderDAO;
 
+	private BulkDeleteService bulkDeleteService;
+
 	@Autowired
 	public ReminderServiceImpl(ReminderDAO reminderDAO) {
 		this.reminderDAO = reminderDAO;
 	}
 
+	@Autowired(required = false)
+	public void setBulkDeleteService(BulkDeleteService bulkDeleteService) {
+		this.bulkDeleteService = bulkDeleteService;
+	}
+
 	/*
 	 * This method should be used to save a new reminder.
 	 */
@@ -47,17 +54,22 @@ public class ReminderServiceImpl implements ReminderService {
 
 	public Reminder updateReminder(Reminder reminder, int id) throws ReminderNotFoundException {
 		Reminder freminder = reminderDAO.getReminderById(id);
-		if (freminder == null) {
+		reminder.setReminderId(id);
+		if (freminder == null || !reminderDAO.updateReminder(reminder)) {
 			throw new ReminderNotFoundException("Reminder Not Found");
-		} else {
-			reminderDAO.updateReminder(reminder);
 		}
 		return reminder;
 	}
 
-	/* This method should be used to delete an existing reminder. */
+	/*
+	 * This method should be used to delete an existing reminder. Its notes are
+	 * kept, without a reminder; they are detached in chunks first.
+	 */
 
 	public boolean deleteReminder(int reminderId) {
+		if (bulkDeleteService != null) {
+			bulkDeleteService.detachReminderNotes(reminderId);
+		}
 		return reminderDAO.deleteReminder(reminderId);
 	}
 
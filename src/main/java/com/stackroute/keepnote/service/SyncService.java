@@ -0,0 +1,14 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.SyncBatch;
+
+public interface SyncService {
+
+	/*
+	 * The changes of a user since a sync token, at most limit change log entries
+	 * of them, or all of the user's data when since is null. Throws
+	 * IllegalArgumentException when since is not a token.
+	 */
+	public SyncBatch getChanges(String userId, String since, int limit);
+
+}
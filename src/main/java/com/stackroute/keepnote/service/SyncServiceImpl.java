@@ -0,0 +1,147 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+import com.stackroute.keepnote.model.SyncBatch;
+
+/*
+ * Builds the sync batches from the change log. A token is the id of the last
+ * change log entry the client has received, in base 36.
+ *
+ * Without a token the client gets all of its data, with the token of the last
+ * entry logged before the data was read. With a token it gets the entries logged
+ * after it, collapsed to the last operation of each entity: saved entities are
+ * read in their current state, deleted ones become tombstones. Entities saved
+ * and then deleted in the same batch are only sent as tombstones.
+ *
+ * Change ids are allocated when an entry is inserted, not when it commits, so an
+ * entry with a smaller id can become visible after one with a larger id. The
+ * entries of a transaction are inserted as it commits (see ChangeLogDAOImpl), so
+ * that gap is the duration of a commit, not of the transaction: a long import or
+ * bulk operation does not widen it. The token only moves past entries older than
+ * keepnote.sync.settle-millis; younger ones are sent but sent again on the next
+ * sync, which is harmless as applying a change twice gives the same state. The
+ * window has to cover the slowest commit plus the difference between the clocks
+ * of the nodes: an entry whose commit takes longer than that after its insert can
+ * still end up behind a token and be missed by that client.
+ *
+ * The batch is read in one read-write transaction so that the log and the
+ * entities come from the same database, the primary, and not from a replica
+ * behind it.
+ */
+@Service("syncService")
+@Transactional
+public class SyncServiceImpl implements SyncService {
+
+	public static final int MAX_LIMIT = 1000;
+
+	private ChangeLogDAO changeLogDAO;
+
+	private NoteDAO noteDAO;
+
+	private CategoryDAO categoryDAO;
+
+	private ReminderDAO reminderDAO;
+
+	private long settleMillis;
+
+	@Autowired
+	public SyncServiceImpl(ChangeLogDAO changeLogDAO, NoteDAO noteDAO, CategoryDAO categoryDAO,
+			ReminderDAO reminderDAO, @Value("${keepnote.sync.settle-millis:2000}") long settleMillis) {
+		this.changeLogDAO = changeLogDAO;
+		this.noteDAO = noteDAO;
+		this.categoryDAO = categoryDAO;
+		this.reminderDAO = reminderDAO;
+		this.settleMillis = settleMillis;
+	}
+
+	public SyncBatch getChanges(String userId, String since, int limit) {
+		Date settled = new Date(System.currentTimeMillis() - settleMillis);
+		SyncBatch batch = new SyncBatch();
+		if (since == null) {
+			batch.setToken(toToken(changeLogDAO.getLastChangeId(userId, settled)));
+			batch.getNotes().addAll(noteDAO.getSyncedNotes(userId, null));
+			batch.getCategories().addAll(categoryDAO.getAllCategoryByUserId(userId));
+			batch.getReminders().addAll(reminderDAO.getAllReminderByUserId(userId));
+			return batch;
+		}
+		long afterChangeId = fromToken(since);
+		int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+		List<ChangeLogEntry> entries = changeLogDAO.getChangesSince(userId, afterChangeId, size + 1);
+		boolean more = entries.size() > size;
+		if (more) {
+			entries = entries.subList(0, size);
+		}
+
+		long token = afterChangeId;
+		boolean settledSoFar = true;
+		Map<EntityType, Map<Integer, Operation>> operations = new EnumMap<>(EntityType.class);
+		for (EntityType entityType : EntityType.values()) {
+			operations.put(entityType, new LinkedHashMap<>());
+		}
+		for (ChangeLogEntry entry : entries) {
+			operations.get(entry.getEntityType()).put(entry.getEntityId(), entry.getOperation());
+			settledSoFar = settledSoFar && entry.getChangedAt().before(settled);
+			if (settledSoFar) {
+				token = entry.getChangeId();
+			}
+		}
+		batch.setToken(toToken(token));
+		batch.setHasMore(more && token > afterChangeId);
+
+		Map<Integer, Operation> notes = operations.get(EntityType.NOTE);
+		batch.getNotes().addAll(noteDAO.getSyncedNotes(userId, idsOf(notes, Operation.SAVE)));
+		batch.getDeletedNotes().addAll(idsOf(notes, Operation.DELETE));
+		Map<Integer, Operation> categories = operations.get(EntityType.CATEGORY);
+		batch.getCategories().addAll(categoryDAO.getCategoriesByIds(userId, idsOf(categories, Operation.SAVE)));
+		batch.getDeletedCategories().addAll(idsOf(categories, Operation.DELETE));
+		Map<Integer, Operation> reminders = operations.get(EntityType.REMINDER);
+		batch.getReminders().addAll(reminderDAO.getRemindersByIds(userId, idsOf(reminders, Operation.SAVE)));
+		batch.getDeletedReminders().addAll(idsOf(reminders, Operation.DELETE));
+		return batch;
+	}
+
+	private static List<Integer> idsOf(Map<Integer, Operation> operations, Operation operation) {
+		List<Integer> ids = new ArrayList<>();
+		operations.forEach((id, last) -> {
+			if (last == operation) {
+				ids.add(id);
+			}
+		});
+		return ids;
+	}
+
+	private static String toToken(long changeId) {
+		return Long.toString(changeId, Character.MAX_RADIX);
+	}
+
+	/*
+	 * The change id of a token. NumberFormatException is an
+	 * IllegalArgumentException.
+	 */
+	private static long fromToken(String token) {
+		long changeId = Long.parseLong(token, Character.MAX_RADIX);
+		if (changeId < 0) {
+			throw new IllegalArgumentException("Invalid sync token : " + token);
+		}
+		return changeId;
+	}
+
+}
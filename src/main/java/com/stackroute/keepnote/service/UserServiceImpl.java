@@ -1,13 +1,28 @@
 package com.stackroute.keepnote.service;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.exception.LoginUnavailableException;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.CredentialCache;
+import com.stackroute.keepnote.security.PasswordHasher;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -33,6 +48,63 @@ private UserDAO userDAO;
 		this.userDAO = userDAO;
 	}
 
+	/*
+	 * Password hashing and verification are optional collaborators so that the
+	 * service can be built with the DAO alone. Without a hasher passwords are
+	 * stored as given; without the executor logins are verified on the calling
+	 * thread.
+	 */
+	private PasswordHasher passwordHasher;
+
+	private ExecutorService passwordVerificationExecutor;
+
+	private CredentialCache credentialCache;
+
+	private BulkDeleteService bulkDeleteService;
+
+	private Meter loginMeter;
+
+	private Meter rejectedLoginMeter;
+
+	private Timer verificationTimer;
+
+	private Meter credentialCacheHitMeter;
+
+	@Value("${keepnote.auth.verification-timeout-ms:5000}")
+	private long verificationTimeoutMs = 5000;
+
+	/*
+	 * Without it, deleting a user leaves their notes, categories and reminders.
+	 */
+	@Autowired(required = false)
+	public void setBulkDeleteService(BulkDeleteService bulkDeleteService) {
+		this.bulkDeleteService = bulkDeleteService;
+	}
+
+	@Autowired(required = false)
+	public void setPasswordHasher(PasswordHasher passwordHasher) {
+		this.passwordHasher = passwordHasher;
+	}
+
+	@Autowired(required = false)
+	public void setPasswordVerificationExecutor(
+			@Qualifier("passwordVerificationExecutor") ExecutorService passwordVerificationExecutor) {
+		this.passwordVerificationExecutor = passwordVerificationExecutor;
+	}
+
+	@Autowired(required = false)
+	public void setCredentialCache(CredentialCache credentialCache) {
+		this.credentialCache = credentialCache;
+	}
+
+	@Autowired(required = false)
+	public void setMetricRegistry(MetricRegistry metricRegistry) {
+		this.loginMeter = metricRegistry.meter(MetricRegistry.name("login", "attempts"));
+		this.rejectedLoginMeter = metricRegistry.meter(MetricRegistry.name("login", "rejected"));
+		this.verificationTimer = metricRegistry.timer(MetricRegistry.name("login", "verification"));
+		this.credentialCacheHitMeter = metricRegistry.meter(MetricRegistry.name("login", "credential-cache-hits"));
+	}
+
 	/*
 	 * This method should be used to save a new user.
 	 */
@@ -44,6 +116,7 @@ private UserDAO userDAO;
 			if (!ObjectUtils.isEmpty(fuser)) {
 				throw new UserAlreadyExistException("User Already Exist");
 			}
+			hashPassword(user);
 			status = userDAO.registerUser(user);
 			if(!status) {
 				throw new UserAlreadyExistException("User Already Exist");
@@ -64,8 +137,11 @@ private UserDAO userDAO;
 		User fuser = userDAO.getUserById(userId);
 		if(fuser == null) {
 			throw new UserNotFoundException("User Not Found");
-		} else {
-			userDAO.updateUser(user);
+		}
+		user.setUserId(userId);
+		hashPassword(user);
+		if(!userDAO.updateUser(user)) {
+			throw new UserNotFoundException("User Not Found");
 		}
 		return user;
 
@@ -86,19 +162,110 @@ private UserDAO userDAO;
 
 	/*
 	 * This method should be used to validate a user using userId and password.
+	 * 
+	 * Hashing a password is deliberately slow, so the check runs on the bounded
+	 * passwordVerificationExecutor rather than on the request thread pool. When its
+	 * queue is full, or the check does not finish within
+	 * keepnote.auth.verification-timeout-ms, the login is refused at once with
+	 * LoginUnavailableException: a burst of logins is shed instead of occupying the
+	 * threads that serve the notes. Repeat logins are checked against the
+	 * CredentialCache and do not reach the database.
 	 */
 
 	public boolean validateUser(String userId, String password) throws UserNotFoundException {
 		boolean result = false;
-		result = userDAO.validateUser(userId, password);
+		if (loginMeter != null) {
+			loginMeter.mark();
+		}
+		if (passwordVerificationExecutor == null) {
+			result = verifyPassword(userId, password);
+		} else {
+			result = validateUserOnExecutor(userId, password);
+		}
 		if(!result) {
 			throw new UserNotFoundException("User Not Found");
 		}
 		return result;
 	}
 
-	/* This method should be used to delete an existing user. */
+	private boolean validateUserOnExecutor(String userId, String password) throws UserNotFoundException {
+		Future<Boolean> verification;
+		try {
+			verification = passwordVerificationExecutor.submit(() -> {
+				Timer.Context timing = verificationTimer == null ? null : verificationTimer.time();
+				try {
+					return verifyPassword(userId, password);
+				} finally {
+					if (timing != null) {
+						timing.stop();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			throw loginUnavailable("Too many logins in progress");
+		}
+		try {
+			return verification.get(verificationTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UserNotFoundException) {
+				throw (UserNotFoundException) e.getCause();
+			}
+			throw new UserNotFoundException("User Not Found");
+		} catch (TimeoutException e) {
+			verification.cancel(true);
+			throw loginUnavailable("Login verification timed out");
+		} catch (InterruptedException e) {
+			verification.cancel(true);
+			Thread.currentThread().interrupt();
+			throw loginUnavailable("Login verification interrupted");
+		}
+	}
+
+	/*
+	 * A user whose hash is in the credential cache is verified against it without
+	 * reading the User table; anyone else is verified by the DAO, which caches the
+	 * hash once the password has been checked.
+	 */
+	private boolean verifyPassword(String userId, String password) throws UserNotFoundException {
+		if (credentialCache != null && passwordHasher != null) {
+			String cached = credentialCache.get(userId);
+			if (cached != null) {
+				if (credentialCacheHitMeter != null) {
+					credentialCacheHitMeter.mark();
+				}
+				return passwordHasher.matches(password, cached);
+			}
+		}
+		return userDAO.validateUser(userId, password);
+	}
+
+	private LoginUnavailableException loginUnavailable(String message) {
+		if (rejectedLoginMeter != null) {
+			rejectedLoginMeter.mark();
+		}
+		return new LoginUnavailableException(message);
+	}
+
+	/*
+	 * Whatever the client sends is a password, even if it looks like a hash:
+	 * storing it as it is would let a client choose its own hash, and its
+	 * iteration count.
+	 */
+	private void hashPassword(User user) {
+		if (passwordHasher != null && user.getUserPassword() != null) {
+			user.setUserPassword(passwordHasher.hash(user.getUserPassword()));
+		}
+	}
+
+	/*
+	 * This method should be used to delete an existing user, with all of their
+	 * data. The data is deleted first, in chunks; the user row goes last, so a
+	 * purge that failed can be run again by deleting the user again.
+	 */
 	public boolean deleteUser(String userId) {
+		if (bulkDeleteService != null) {
+			bulkDeleteService.deleteUserData(userId);
+		}
 		return userDAO.deleteUser(userId);
 
 	}
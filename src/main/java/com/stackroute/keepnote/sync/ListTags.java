@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.sync;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+
+/*
+ * ETags of the list endpoints. The tag of the lists of a user is the id of the
+ * last change log entry of the user, so it changes with every committed write to
+ * the notes, categories and reminders of the user, on whichever node it was made.
+ * A client polling a list with If-None-Match gets 304 Not Modified for the cost of
+ * one index lookup when nothing changed.
+ *
+ * The tag is read first, then the list, in the same transaction. It is not
+ * readOnly, so both come from the primary: a replica that is behind would hand
+ * out a tag, and a list, older than the client's own last write. The list is
+ * never older than its tag, and a write committed in between only makes the
+ * client fetch the list once more.
+ */
+@Component
+public class ListTags {
+
+	private final ChangeLogDAO changeLogDAO;
+
+	@Autowired
+	public ListTags(ChangeLogDAO changeLogDAO) {
+		this.changeLogDAO = changeLogDAO;
+	}
+
+	/*
+	 * Read the tag of the lists of a user, then the list with reader unless
+	 * notModified holds for the tag.
+	 */
+	@Transactional
+	public <T> Tagged<T> read(String userId, Predicate<String> notModified, Supplier<T> reader) {
+		String tag = tag(changeLogDAO.getLastChangeId(userId));
+		if (notModified.test(tag)) {
+			return new Tagged<>(tag, false, null);
+		}
+		return new Tagged<>(tag, true, reader.get());
+	}
+
+	/*
+	 * The tag is weak because it covers every list endpoint and representation of
+	 * the user's data.
+	 */
+	private static String tag(long lastChangeId) {
+		return "W/\"" + Long.toString(lastChangeId, Character.MAX_RADIX) + "\"";
+	}
+
+	/*
+	 * A tag with its list, or with no list when the client's copy is current.
+	 */
+	public static final class Tagged<T> {
+
+		private final String tag;
+
+		private final boolean modified;
+
+		private final T list;
+
+		private Tagged(String tag, boolean modified, T list) {
+			this.tag = tag;
+			this.modified = modified;
+			this.list = list;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		public T getList() {
+			return list;
+		}
+
+		public boolean isModified() {
+			return modified;
+		}
+	}
+
+}
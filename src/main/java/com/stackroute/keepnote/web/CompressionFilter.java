@@ -0,0 +1,468 @@
+package com.stackroute.keepnote.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/*
+ * Compresses responses with gzip or deflate, whichever the client prefers in its
+ * Accept-Encoding header (gzip on a tie). It is registered in front of the
+ * DispatcherServlet by WebApplicationInitializer.
+ *
+ * The body is held back until min-size bytes have been written. A response that
+ * ends before that is sent as is, with its Content-Length, since compressing a
+ * few hundred bytes costs more than it saves. Past min-size the body is
+ * compressed as it is written, if its content type is one of mime-types and the
+ * application did not set a Content-Encoding itself. Flushes made while the body
+ * is held back are ignored, so that small responses keep their Content-Length.
+ *
+ * Every response gets "Vary: Accept-Encoding", so that caches keep compressed
+ * and plain copies apart. A strong ETag of a compressed response gets the
+ * encoding appended ("3-full-json" becomes "3-full-json-gzip"), as its bytes
+ * differ from the plain ones; ETags.parseIfMatch still reads the version from
+ * it. Weak tags are left as they are.
+ */
+@Component("compressionFilter")
+public class CompressionFilter extends OncePerRequestFilter {
+
+	public static final String GZIP = "gzip";
+
+	public static final String DEFLATE = "deflate";
+
+	private final boolean enabled;
+
+	private final int minSize;
+
+	private final List<MimeType> mimeTypes;
+
+	private final int level;
+
+	@Autowired
+	public CompressionFilter(@Value("${keepnote.compression.enabled:true}") boolean enabled,
+			@Value("${keepnote.compression.min-size:1024}") int minSize,
+			@Value("${keepnote.compression.mime-types:application/json,application/x-jackson-smile,application/cbor,text/*}") String mimeTypes,
+			@Value("${keepnote.compression.level:6}") int level) {
+		this.enabled = enabled;
+		this.minSize = Math.max(minSize, 0);
+		this.mimeTypes = MimeTypeUtils.parseMimeTypes(mimeTypes);
+		this.level = level;
+	}
+
+	/*
+	 * Async dispatches go through the filter too, so that a response completed on
+	 * an async dispatch is finished as well.
+	 */
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		CompressingResponse compressing = WebUtils.getNativeResponse(response, CompressingResponse.class);
+		if (compressing == null) {
+			String encoding = enabled ? negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) : null;
+			if (enabled) {
+				response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			}
+			if (encoding == null || "HEAD".equals(request.getMethod())) {
+				chain.doFilter(request, response);
+				return;
+			}
+			compressing = new CompressingResponse(response, encoding);
+			response = compressing;
+		}
+		chain.doFilter(request, response);
+		if (!request.isAsyncStarted()) {
+			compressing.finish();
+		}
+	}
+
+	/*
+	 * The encoding with the highest quality in an Accept-Encoding header, or null
+	 * if the client accepts neither gzip nor deflate.
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		float gzip = 0;
+		float deflate = 0;
+		float any = 0;
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim().toLowerCase(Locale.ROOT);
+			float quality = 1;
+			for (int i = 1; i < params.length; i++) {
+				String param = params[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(param.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+				gzip = quality > 0 ? quality : -1;
+			} else if (DEFLATE.equals(coding)) {
+				deflate = quality > 0 ? quality : -1;
+			} else if ("*".equals(coding)) {
+				any = quality;
+			}
+		}
+		gzip = gzip == 0 ? any : gzip;
+		deflate = deflate == 0 ? any : deflate;
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return deflate > 0 ? DEFLATE : null;
+	}
+
+	private boolean isCompressible(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		MimeType mimeType;
+		try {
+			mimeType = MimeTypeUtils.parseMimeType(contentType);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		for (MimeType compressible : mimeTypes) {
+			if (compressible.includes(mimeType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * The response while its body is held back (buffer != null), then either
+	 * compressed (compressor != null) or passed through.
+	 */
+	private final class CompressingResponse extends HttpServletResponseWrapper {
+
+		private final String encoding;
+
+		private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private DeflaterOutputStream compressor;
+
+		private long contentLength = -1;
+
+		private boolean passThrough;
+
+		private ServletOutputStream outputStream;
+
+		private PrintWriter writer;
+
+		private CompressingResponse(HttpServletResponse response, String encoding) {
+			super(response);
+			this.encoding = encoding;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (writer != null) {
+				throw new IllegalStateException("getWriter() has already been called");
+			}
+			if (outputStream == null) {
+				outputStream = new CompressingOutputStream();
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (outputStream != null && writer == null) {
+				throw new IllegalStateException("getOutputStream() has already been called");
+			}
+			if (writer == null) {
+				outputStream = new CompressingOutputStream();
+				writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		@Override
+		public void setContentLength(int length) {
+			setContentLengthLong(length);
+		}
+
+		@Override
+		public void setContentLengthLong(long length) {
+			if (passThrough) {
+				super.setContentLengthLong(length);
+			} else {
+				contentLength = length;
+			}
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (!interceptHeader(name, value)) {
+				super.setHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!interceptHeader(name, value)) {
+				super.addHeader(name, value);
+			}
+		}
+
+		/*
+		 * Content-Length is only known once the body is, and a Content-Encoding set
+		 * by the application means the body is already encoded.
+		 */
+		private boolean interceptHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !passThrough) {
+				contentLength = Long.parseLong(value.trim());
+				return true;
+			}
+			if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) && buffer != null) {
+				passThroughBuffer();
+			}
+			return false;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (buffer == null) {
+				flushStreams();
+				super.flushBuffer();
+			}
+		}
+
+		@Override
+		public boolean isCommitted() {
+			return buffer == null || super.isCommitted();
+		}
+
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			if (buffer != null) {
+				buffer.reset();
+			}
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			if (buffer != null) {
+				buffer.reset();
+				contentLength = -1;
+			}
+		}
+
+		@Override
+		public void sendError(int status) throws IOException {
+			discard();
+			super.sendError(status);
+		}
+
+		@Override
+		public void sendError(int status, String message) throws IOException {
+			discard();
+			super.sendError(status, message);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			discard();
+			super.sendRedirect(location);
+		}
+
+		private void discard() {
+			if (buffer != null) {
+				buffer = null;
+				passThrough = true;
+			}
+		}
+
+		private void flushStreams() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			if (compressor != null) {
+				compressor.flush();
+			}
+		}
+
+		private void write(byte[] bytes, int offset, int length) throws IOException {
+			if (buffer != null) {
+				buffer.write(bytes, offset, length);
+				if (buffer.size() < minSize) {
+					return;
+				}
+				byte[] held = buffer.toByteArray();
+				if (isCompressible(getContentType()) && getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+					startCompression();
+				} else {
+					passThroughBuffer();
+					return;
+				}
+				buffer = null;
+				compressor.write(held);
+				return;
+			}
+			if (compressor != null) {
+				compressor.write(bytes, offset, length);
+			} else {
+				getResponse().getOutputStream().write(bytes, offset, length);
+			}
+		}
+
+		private void startCompression() throws IOException {
+			super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+			String etag = getHeader(HttpHeaders.ETAG);
+			if (etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")) {
+				super.setHeader(HttpHeaders.ETAG, etag.substring(0, etag.length() - 1) + "-" + encoding + "\"");
+			}
+			OutputStream target = getResponse().getOutputStream();
+			if (GZIP.equals(encoding)) {
+				compressor = new GZIPOutputStream(target, 8192, true) {
+					{
+						def.setLevel(level);
+					}
+				};
+			} else {
+				compressor = new DeflaterOutputStream(target, new Deflater(level), 8192, true);
+			}
+		}
+
+		/*
+		 * Give up holding the body back: write what was held, uncompressed, and
+		 * everything after it directly.
+		 */
+		private void passThroughBuffer() {
+			byte[] held = buffer.toByteArray();
+			buffer = null;
+			passThrough = true;
+			if (contentLength >= 0) {
+				super.setContentLengthLong(contentLength);
+			}
+			try {
+				getResponse().getOutputStream().write(held);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/*
+		 * Write the end of the body: what was held back, with its length, or the
+		 * trailer of the compressed stream.
+		 */
+		private void finish() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			if (buffer != null) {
+				byte[] held = buffer.toByteArray();
+				buffer = null;
+				passThrough = true;
+				if (held.length > 0) {
+					super.setContentLengthLong(held.length);
+					getResponse().getOutputStream().write(held);
+				} else if (contentLength >= 0) {
+					super.setContentLengthLong(contentLength);
+				}
+			} else if (compressor != null) {
+				DeflaterOutputStream finishing = compressor;
+				compressor = null;
+				finishing.finish();
+				passThrough = true;
+			}
+		}
+
+		private final class CompressingOutputStream extends ServletOutputStream {
+
+			private final byte[] single = new byte[1];
+
+			private boolean closed;
+
+			@Override
+			public void write(int b) throws IOException {
+				single[0] = (byte) b;
+				write(single, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				if (closed) {
+					throw new IOException("Stream closed");
+				}
+				CompressingResponse.this.write(bytes, offset, length);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				if (buffer == null) {
+					if (compressor != null) {
+						compressor.flush();
+					}
+					getResponse().getOutputStream().flush();
+				}
+			}
+
+			/*
+			 * Closing ends the body, as it does for the container's stream.
+			 */
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					finish();
+					getResponse().getOutputStream().close();
+				}
+			}
+
+			@Override
+			public boolean isReady() {
+				try {
+					return getResponse().getOutputStream().isReady();
+				} catch (IOException e) {
+					return false;
+				}
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener) {
+				try {
+					getResponse().getOutputStream().setWriteListener(listener);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.stackroute.keepnote.web;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.codahale.metrics.MetricRegistry;
+
+/*
+ * Runs the work of the controller handlers. With keepnote.async.enabled the work
+ * runs on the handlerThreadPool and the handler returns at once with a pending
+ * future, so the container thread is free while the database is queried; the
+ * response is written when the future completes. Otherwise the work runs on the
+ * container thread, as it always did, and the future is already complete.
+ *
+ * Each endpoint (named after its handler method) can be limited to
+ * keepnote.async.limit.<endpoint> concurrent executions, default
+ * keepnote.async.default-limit; 0 means no limit other than the pool. Work beyond
+ * the limit, or that the pool rejects because its queue is full, is answered
+ * with 503 and Retry-After at once, and counted in the
+ * handlers.<endpoint>.rejected meter.
+ *
+ * Handlers that stream their body go through stream() instead: Spring MVC
+ * always writes a StreamingResponseBody on the handlerThreadPool, and the
+ * endpoint holds its permit until the response is complete.
+ *
+ * The number of handlers accepted and not finished yet, queued or running, is
+ * kept as a measure of the load (see NoteCompactor).
+ */
+@Component("handlerExecutor")
+public class HandlerExecutor {
+
+	private Logger LOGGER = LoggerFactory.getLogger(HandlerExecutor.class);
+
+	private final Executor executor;
+
+	private final Environment environment;
+
+	private final MetricRegistry metricRegistry;
+
+	private final int defaultLimit;
+
+	private final long streamTimeoutMillis;
+
+	private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/*
+	 * Runs every handler on the calling thread, without limits.
+	 */
+	public HandlerExecutor() {
+		this.executor = null;
+		this.environment = null;
+		this.metricRegistry = null;
+		this.defaultLimit = 0;
+		this.streamTimeoutMillis = 0;
+	}
+
+	@Autowired
+	public HandlerExecutor(@Qualifier("handlerThreadPool") Executor executor, Environment environment,
+			MetricRegistry metricRegistry) {
+		this.executor = environment.getProperty("keepnote.async.enabled", Boolean.class, false) ? executor : null;
+		this.environment = environment;
+		this.metricRegistry = metricRegistry;
+		this.defaultLimit = environment.getProperty("keepnote.async.default-limit", Integer.class, 0);
+		this.streamTimeoutMillis = environment.getProperty("keepnote.async.stream-timeout-ms", Long.class, 0L);
+	}
+
+	public CompletableFuture<ResponseEntity<?>> submit(String endpoint, Supplier<ResponseEntity<?>> handler) {
+		Semaphore semaphore = permits.computeIfAbsent(endpoint, this::newSemaphore);
+		if (!semaphore.tryAcquire()) {
+			return CompletableFuture.completedFuture(rejected(endpoint));
+		}
+		inFlight.incrementAndGet();
+		if (executor == null) {
+			try {
+				return CompletableFuture.completedFuture(handler.get());
+			} finally {
+				inFlight.decrementAndGet();
+				semaphore.release();
+			}
+		}
+		CompletableFuture<ResponseEntity<?>> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(handler.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				} finally {
+					inFlight.decrementAndGet();
+					semaphore.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			inFlight.decrementAndGet();
+			semaphore.release();
+			return CompletableFuture.completedFuture(rejected(endpoint));
+		}
+		return future;
+	}
+
+	/*
+	 * Run a handler whose response body is a StreamingResponseBody. The handler
+	 * runs on the calling thread and should only check the request; the body is
+	 * written later on the handlerThreadPool (see
+	 * ApplicationContextConfig.configureAsyncSupport), for up to
+	 * keepnote.async.stream-timeout-ms. The permit is released when the response
+	 * is complete, or at the end of the request if no body is streamed.
+	 */
+	public ResponseEntity<StreamingResponseBody> stream(String endpoint,
+			Supplier<ResponseEntity<StreamingResponseBody>> handler) {
+		Semaphore semaphore = permits.computeIfAbsent(endpoint, this::newSemaphore);
+		if (!semaphore.tryAcquire()) {
+			return rejected(endpoint);
+		}
+		inFlight.incrementAndGet();
+		ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+		Release release = new Release(semaphore);
+		attributes.registerDestructionCallback(HandlerExecutor.class.getName() + ".release",
+				() -> release.afterRequest(attributes.getRequest()), RequestAttributes.SCOPE_REQUEST);
+		return handler.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private Semaphore newSemaphore(String endpoint) {
+		int limit = defaultLimit;
+		if (environment != null) {
+			limit = environment.getProperty("keepnote.async.limit." + endpoint, Integer.class, defaultLimit);
+		}
+		return new Semaphore(limit > 0 ? limit : Integer.MAX_VALUE);
+	}
+
+	private <T> ResponseEntity<T> rejected(String endpoint) {
+		LOGGER.warn("HandlerExecutor : rejected : {}", endpoint);
+		if (metricRegistry != null) {
+			metricRegistry.meter(MetricRegistry.name("handlers", endpoint, "rejected")).mark();
+		}
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+	}
+
+	/*
+	 * Gives the permit of a stream back once, at the end of the request that
+	 * started it or, if that request went async, when the response is complete.
+	 */
+	private final class Release implements AsyncListener {
+
+		private final Semaphore semaphore;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Release(Semaphore semaphore) {
+			this.semaphore = semaphore;
+		}
+
+		private void afterRequest(HttpServletRequest request) {
+			if (request.isAsyncStarted()) {
+				AsyncContext asyncContext = request.getAsyncContext();
+				asyncContext.setTimeout(streamTimeoutMillis);
+				asyncContext.addListener(this);
+			} else {
+				run();
+			}
+		}
+
+		private void run() {
+			if (released.compareAndSet(false, true)) {
+				inFlight.decrementAndGet();
+				semaphore.release();
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this);
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.stackroute.keepnote.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.security.TokenAuthenticationFilter;
+
+/*
+ * Protects the application from clients sending more than their share of
+ * requests. It is registered in front of the DispatcherServlet by
+ * WebApplicationInitializer, after the token filter so that the user is known.
+ *
+ * Every user has a token bucket (see TokenBuckets) of requests-per-second
+ * requests per second with bursts of up to burst requests; a request finding
+ * the bucket of its user empty is answered with 429 and the Retry-After of the
+ * next token. Requests without a logged in user are counted against the address
+ * of the client. Behind a load balancer the remote address is that of the
+ * balancer for every client, so with client-address-header set (for instance to
+ * X-Forwarded-For) the address is the last one of that header instead, the one
+ * the balancer added. Only set it when a proxy in front always sets the header,
+ * as clients can send it too.
+ *
+ * Past the buckets, no more than max-concurrent requests are served at once; a
+ * request beyond that is shed with 503 and Retry-After, so that a burst from
+ * many users at once queues nowhere. A request whose handler went async counts
+ * until its response is complete. 0 means no limit.
+ *
+ * Metrics: ratelimit.rejected and ratelimit.shed (meters, the 429 and 503
+ * answers), ratelimit.in-flight and ratelimit.buckets (gauges).
+ */
+@Component("rateLimitFilter")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private Logger LOGGER = LoggerFactory.getLogger(RateLimitFilter.class);
+
+	private final boolean enabled;
+
+	private final TokenBuckets buckets;
+
+	private final String clientAddressHeader;
+
+	private final int maxConcurrent;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final long startNanos = System.nanoTime();
+
+	private final Meter rejectedMeter;
+
+	private final Meter shedMeter;
+
+	@Autowired
+	public RateLimitFilter(MetricRegistry metricRegistry,
+			@Value("${keepnote.ratelimit.enabled:true}") boolean enabled,
+			@Value("${keepnote.ratelimit.requests-per-second:20}") double requestsPerSecond,
+			@Value("${keepnote.ratelimit.burst:40}") int burst,
+			@Value("${keepnote.ratelimit.max-buckets:100000}") int maxBuckets,
+			@Value("${keepnote.ratelimit.client-address-header:}") String clientAddressHeader,
+			@Value("${keepnote.ratelimit.max-concurrent:200}") int maxConcurrent) {
+		this.enabled = enabled;
+		this.buckets = new TokenBuckets(requestsPerSecond, burst, maxBuckets);
+		this.clientAddressHeader = clientAddressHeader.isEmpty() ? null : clientAddressHeader;
+		this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Integer.MAX_VALUE;
+		this.rejectedMeter = metricRegistry.meter(MetricRegistry.name("ratelimit", "rejected"));
+		this.shedMeter = metricRegistry.meter(MetricRegistry.name("ratelimit", "shed"));
+		metricRegistry.register(MetricRegistry.name("ratelimit", "in-flight"), (Gauge<Integer>) inFlight::get);
+		metricRegistry.register(MetricRegistry.name("ratelimit", "buckets"), (Gauge<Integer>) buckets::size);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!enabled) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String key = clientKey(request);
+		long waitNanos = buckets.tryAcquire(key, System.nanoTime() - startNanos);
+		if (waitNanos > 0) {
+			LOGGER.debug("RateLimitFilter : rejected : {}", key);
+			rejectedMeter.mark();
+			reject(response, HttpStatus.TOO_MANY_REQUESTS, (waitNanos + SECOND_NANOS - 1) / SECOND_NANOS);
+			return;
+		}
+		if (inFlight.incrementAndGet() > maxConcurrent) {
+			inFlight.decrementAndGet();
+			LOGGER.warn("RateLimitFilter : shed : {} {}", request.getMethod(), request.getRequestURI());
+			shedMeter.mark();
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+			return;
+		}
+		Release release = new Release();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(release);
+			} else {
+				release.run();
+			}
+		}
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/*
+	 * Users and addresses are kept apart, so that no user id can share the bucket
+	 * of an address.
+	 */
+	private String clientKey(HttpServletRequest request) {
+		HttpSession session = request.getSession(false);
+		Object userId = session == null ? null : session.getAttribute(TokenAuthenticationFilter.LOGGEDIN_USERID);
+		return userId != null ? "user:" + userId : "address:" + clientAddress(request);
+	}
+
+	private String clientAddress(HttpServletRequest request) {
+		String forwarded = clientAddressHeader == null ? null : request.getHeader(clientAddressHeader);
+		if (forwarded == null || forwarded.trim().isEmpty()) {
+			return request.getRemoteAddr();
+		}
+		return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+	}
+
+	private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+	}
+
+	/*
+	 * Gives the slot of a request back once, whichever of the end of the filter
+	 * or the async events comes first.
+	 */
+	private final class Release implements AsyncListener {
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private void run() {
+			if (released.compareAndSet(false, true)) {
+				inFlight.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			run();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this);
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.stackroute.keepnote.web;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*
+ * The Jackson converters of the application, one per wire format: JSON, and the
+ * binary Smile and CBOR formats that clients can ask for with an Accept (and send
+ * with a Content-Type) of application/x-jackson-smile or application/cbor. The
+ * three read and write the same models; only the encoding differs.
+ *
+ * Collections returned by the controllers (the note, category and reminder lists)
+ * are written element by element to the response stream through one generator,
+ * each element with an ObjectWriter kept per element class, instead of resolving
+ * a writer for the whole list type on every response. Elements are not flushed
+ * one by one; the generator and the response buffer decide when bytes go out.
+ * Any other body is written as by Spring's own Jackson converters.
+ */
+public class StreamingJacksonConverter extends AbstractJackson2HttpMessageConverter {
+
+	public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+	public static final MediaType APPLICATION_CBOR = new MediaType("application", "cbor");
+
+	private static final List<MediaType> FORMAT_TYPES = Arrays.asList(MediaType.APPLICATION_JSON, APPLICATION_SMILE,
+			APPLICATION_CBOR);
+
+	private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	public StreamingJacksonConverter(ObjectMapper objectMapper, MediaType... supportedMediaTypes) {
+		super(objectMapper, supportedMediaTypes);
+	}
+
+	/*
+	 * The ObjectMappers are built the way Spring MVC builds those of its default
+	 * converters, so the documents are the same as without this class.
+	 */
+	public static StreamingJacksonConverter json() {
+		return new StreamingJacksonConverter(Jackson2ObjectMapperBuilder.json().build(), MediaType.APPLICATION_JSON,
+				new MediaType("application", "*+json"));
+	}
+
+	public static StreamingJacksonConverter smile() {
+		return binary(Jackson2ObjectMapperBuilder.smile().build(), APPLICATION_SMILE);
+	}
+
+	public static StreamingJacksonConverter cbor() {
+		return binary(Jackson2ObjectMapperBuilder.cbor().build(), APPLICATION_CBOR);
+	}
+
+	/*
+	 * The format the converters answer an Accept header with: json, smile or cbor,
+	 * chosen as content negotiation does, by specificity and quality of the
+	 * accepted types and in the order of the converters on a tie; json when the
+	 * header is absent or accepts none of them.
+	 */
+	public static String format(String accept) {
+		List<MediaType> candidates = new ArrayList<>();
+		try {
+			for (MediaType acceptedType : MediaType.parseMediaTypes(accept)) {
+				for (MediaType formatType : FORMAT_TYPES) {
+					if (acceptedType.isCompatibleWith(formatType)) {
+						candidates.add(formatType.copyQualityValue(acceptedType));
+					}
+				}
+			}
+		} catch (InvalidMediaTypeException e) {
+			return "json";
+		}
+		MediaType.sortBySpecificityAndQuality(candidates);
+		if (candidates.isEmpty() || candidates.get(0).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+			return "json";
+		}
+		return candidates.get(0).isCompatibleWith(APPLICATION_SMILE) ? "smile" : "cbor";
+	}
+
+	/*
+	 * Binary formats have no charset, so none is added to their Content-Type.
+	 */
+	private static StreamingJacksonConverter binary(ObjectMapper objectMapper, MediaType mediaType) {
+		StreamingJacksonConverter converter = new StreamingJacksonConverter(objectMapper, mediaType);
+		converter.setDefaultCharset(null);
+		return converter;
+	}
+
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		if (!(object instanceof Collection)) {
+			super.writeInternal(object, type, outputMessage);
+			return;
+		}
+		JsonGenerator generator = getObjectMapper().getFactory().createGenerator(outputMessage.getBody(),
+				getJsonEncoding(outputMessage.getHeaders().getContentType()));
+		Collection<?> elements = (Collection<?>) object;
+		try {
+			generator.writeStartArray(elements.size());
+			for (Object element : elements) {
+				if (element == null) {
+					generator.writeNull();
+				} else {
+					writerFor(element.getClass()).writeValue(generator, element);
+				}
+			}
+			generator.writeEndArray();
+			generator.flush();
+		} catch (JsonProcessingException e) {
+			throw new HttpMessageNotWritableException("Could not write document: " + e.getMessage(), e);
+		}
+	}
+
+	private ObjectWriter writerFor(Class<?> elementClass) {
+		return writers.computeIfAbsent(elementClass,
+				key -> getObjectMapper().writerFor(key).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+	}
+
+}
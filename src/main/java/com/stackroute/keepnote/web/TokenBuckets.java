@@ -0,0 +1,108 @@
+package com.stackroute.keepnote.web;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Token buckets of ratePerSecond tokens per second holding up to burst tokens,
+ * one per key. Each bucket is a single long: the time at which it will be full
+ * again (the "theoretical arrival time" of the generic cell rate algorithm).
+ * Taking a token pushes that time one interval further, which is allowed as long
+ * as it stays within burst intervals of now.
+ *
+ * The buckets are AtomicLongs in a ConcurrentHashMap, and a token is taken by
+ * compare-and-set, so requests never wait for each other, not even those of the
+ * same user. A bucket that is full again holds nothing worth keeping. Once there
+ * are more than maxBuckets, the full buckets are dropped, then those closest to
+ * full until an eighth of maxBuckets is free again; one thread does this at a
+ * time while the others go on. Dropping a bucket, even while a token is being
+ * taken from it, only ever gives its key a full bucket back.
+ *
+ * Times are in nanoseconds, on any clock that starts at 0 or later and does not
+ * go backwards; a key without a bucket has a full one.
+ */
+public class TokenBuckets {
+
+	private final long intervalNanos;
+
+	private final long capacityNanos;
+
+	private final int maxBuckets;
+
+	private final ConcurrentHashMap<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	public TokenBuckets(double ratePerSecond, int burst, int maxBuckets) {
+		if (ratePerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Invalid rate " + ratePerSecond + " or burst " + burst);
+		}
+		this.intervalNanos = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond), 1);
+		this.capacityNanos = intervalNanos * burst;
+		this.maxBuckets = Math.max(maxBuckets, 1);
+	}
+
+	/*
+	 * Take a token from the bucket of key at nowNanos. Returns 0 if there was one,
+	 * otherwise how long until there is, in nanoseconds.
+	 */
+	public long tryAcquire(Object key, long nowNanos) {
+		AtomicLong bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = buckets.computeIfAbsent(key, k -> new AtomicLong());
+		}
+		while (true) {
+			long fullAt = bucket.get();
+			long next = Math.max(fullAt, nowNanos) + intervalNanos;
+			long wait = next - nowNanos - capacityNanos;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(fullAt, next)) {
+				break;
+			}
+		}
+		if (buckets.size() > maxBuckets && evicting.compareAndSet(false, true)) {
+			try {
+				evict(nowNanos);
+			} finally {
+				evicting.set(false);
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Number of buckets held. Full buckets are only dropped once there are more
+	 * than maxBuckets.
+	 */
+	public int size() {
+		return buckets.size();
+	}
+
+	private void evict(long nowNanos) {
+		List<Map.Entry<Object, Long>> held = new ArrayList<>(buckets.size());
+		for (Map.Entry<Object, AtomicLong> bucket : buckets.entrySet()) {
+			long fullAt = bucket.getValue().get();
+			if (fullAt <= nowNanos) {
+				buckets.remove(bucket.getKey(), bucket.getValue());
+			} else {
+				held.add(new AbstractMap.SimpleImmutableEntry<>(bucket.getKey(), fullAt));
+			}
+		}
+		int excess = held.size() - (maxBuckets - maxBuckets / 8);
+		if (excess > 0) {
+			held.sort(Map.Entry.comparingByValue());
+			for (int i = 0; i < excess; i++) {
+				buckets.remove(held.get(i).getKey());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.web;
+
+import java.util.Collection;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/*
+ * Adds "Vary: Accept" to the responses of the controllers. They answer in JSON,
+ * Smile or CBOR depending on the Accept header (see StreamingJacksonConverter), so
+ * caches have to keep one copy per format. The header is set before the handler
+ * runs, so that a 304 Not Modified carries it as well, and only once although the
+ * interceptor runs again on the async dispatch. It is registered by
+ * ApplicationContextConfig.
+ */
+public class VaryAcceptInterceptor extends HandlerInterceptorAdapter {
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!varies(response.getHeaders(HttpHeaders.VARY))) {
+			response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		}
+		return true;
+	}
+
+	private static boolean varies(Collection<String> varyHeaders) {
+		for (String varyHeader : varyHeaders) {
+			for (String header : varyHeader.split(",")) {
+				if (header.trim().equalsIgnoreCase(HttpHeaders.ACCEPT)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
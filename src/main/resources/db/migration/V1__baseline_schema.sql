@@ -0,0 +1,51 @@
+-- Schema as it was created by hibernate.hbm2ddl.auto=update. Databases created that
+-- way are baselined at this version and skip this script.
+
+CREATE TABLE User (
+	user_id VARCHAR(255) NOT NULL,
+	user_name VARCHAR(255),
+	user_password VARCHAR(255),
+	user_mobile VARCHAR(255),
+	user_added_date DATETIME,
+	PRIMARY KEY (user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE Category (
+	category_id INT NOT NULL,
+	category_name VARCHAR(255),
+	category_descr VARCHAR(255),
+	category_creation_date DATETIME,
+	category_creator VARCHAR(255),
+	PRIMARY KEY (category_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE Reminder (
+	reminder_id INT NOT NULL,
+	reminder_name VARCHAR(255),
+	reminder_descr VARCHAR(255),
+	reminder_type VARCHAR(255),
+	reminder_creator VARCHAR(255),
+	reminder_creation_date DATETIME,
+	PRIMARY KEY (reminder_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE Note (
+	note_id INT NOT NULL,
+	note_title VARCHAR(255),
+	note_content VARCHAR(255),
+	note_status VARCHAR(255),
+	note_creation_date DATETIME,
+	category_id INT,
+	reminder_id INT,
+	note_creator VARCHAR(255),
+	PRIMARY KEY (note_id),
+	CONSTRAINT fk_note_category FOREIGN KEY (category_id) REFERENCES Category (category_id),
+	CONSTRAINT fk_note_reminder FOREIGN KEY (reminder_id) REFERENCES Reminder (reminder_id)
+) ENGINE=InnoDB;
+
+-- Pooled id sequence of Note (see Note.noteId)
+CREATE TABLE note_id_seq (
+	next_val BIGINT
+) ENGINE=InnoDB;
+
+INSERT INTO note_id_seq VALUES (1);
@@ -0,0 +1,10 @@
+-- Every list query filters on the creator of the rows. Notes are also read in
+-- noteId order (keyset pagination, streaming), hence the second Note index.
+
+CREATE INDEX idx_note_creator_date ON Note (note_creator, note_creation_date);
+
+CREATE INDEX idx_note_creator_id ON Note (note_creator, note_id);
+
+CREATE INDEX idx_category_creator_date ON Category (category_creator, category_creation_date);
+
+CREATE INDEX idx_reminder_creator_date ON Reminder (reminder_creator, reminder_creation_date);
@@ -0,0 +1,10 @@
+-- Optimistic locking: every update increments the version of the row, and an
+-- update made from an older version is rejected (see the @Version fields).
+
+ALTER TABLE User ADD COLUMN user_version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE Category ADD COLUMN category_version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE Reminder ADD COLUMN reminder_version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE Note ADD COLUMN note_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- One row per committed write to a note, category or reminder, read by the delta
+-- sync endpoint (see ChangeLogEntry). A user's entries are read in change_id order.
+
+CREATE TABLE change_log (
+	change_id BIGINT NOT NULL AUTO_INCREMENT,
+	user_id VARCHAR(255) NOT NULL,
+	entity_type VARCHAR(16) NOT NULL,
+	entity_id INT NOT NULL,
+	operation VARCHAR(8) NOT NULL,
+	changed_at DATETIME(3) NOT NULL,
+	PRIMARY KEY (change_id)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_change_log_user_id ON change_log (user_id, change_id);
@@ -0,0 +1,9 @@
+-- Reminders can be given a due date, and are fired by the ReminderScheduler when
+-- it is reached. The scheduler reads the reminders not fired yet in due date
+-- order, one window of time at a time, hence the index.
+
+ALTER TABLE Reminder ADD COLUMN reminder_due_date DATETIME;
+
+ALTER TABLE Reminder ADD COLUMN reminder_fired_date DATETIME;
+
+CREATE INDEX idx_reminder_pending ON Reminder (reminder_fired_date, reminder_due_date);
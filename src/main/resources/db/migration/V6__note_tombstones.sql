@@ -0,0 +1,7 @@
+-- In soft-delete mode a deleted note is only stamped with its deletion date, and
+-- the row is purged later by the NoteCompactor, oldest tombstone first, hence the
+-- index.
+
+ALTER TABLE Note ADD COLUMN note_deleted_date DATETIME;
+
+CREATE INDEX idx_note_deleted_date ON Note (note_deleted_date);
@@ -0,0 +1,15 @@
+-- A database created by hbm2ddl before the migrations existed is baselined at
+-- version 1 and so skips V1, which is where note_id_seq is created. Such a
+-- database has the table created here, and note ids assigned by the clients, so
+-- the sequence starts after the highest of them rather than at 1.
+
+CREATE TABLE IF NOT EXISTS note_id_seq (
+	next_val BIGINT
+) ENGINE=InnoDB;
+
+INSERT INTO note_id_seq (next_val)
+	SELECT first_id FROM (SELECT COALESCE(MAX(note_id), 0) + 1 AS first_id FROM Note) ids
+	WHERE NOT EXISTS (SELECT * FROM note_id_seq);
+
+UPDATE note_id_seq SET next_val = (SELECT COALESCE(MAX(note_id), 0) + 1 FROM Note)
+	WHERE next_val <= (SELECT COALESCE(MAX(note_id), 0) FROM Note);
@@ -0,0 +1,5 @@
+-- Every node runs a ReminderScheduler. A node claims the reminders it is about to
+-- notify by setting their fired date together with a token of its own, then reads
+-- back which of them carry its token, so that each reminder is notified by one node.
+
+ALTER TABLE Reminder ADD COLUMN reminder_fired_by VARCHAR(64);
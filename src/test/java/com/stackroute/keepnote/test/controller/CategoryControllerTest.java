@@ -16,7 +16,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.ContextConfiguration;
@@ -31,6 +33,8 @@ import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.sync.ListTags;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -39,6 +43,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static com.stackroute.keepnote.test.controller.MockMvcDispatch.perform;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = { ApplicationContextConfig.class })
@@ -57,6 +63,11 @@ public class CategoryControllerTest {
 	private MockHttpSession session;
 	@Mock
 	CategoryService categoryService;
+	ChangeLogDAO changeLogDAO = mock(ChangeLogDAO.class);
+	@Spy
+	ListTags listTags = new ListTags(changeLogDAO);
+	@Spy
+	private HandlerExecutor handlerExecutor = new HandlerExecutor();
 	@InjectMocks
 	CategoryController categoryController;
 	private List<Category> categories = new ArrayList<Category>();
@@ -82,7 +93,7 @@ public class CategoryControllerTest {
 	public void testCreateCategorySuccess() throws Exception {
 
 		when(categoryService.createCategory(any())).thenReturn(true);
-		mockMvc.perform(post("/category").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+		perform(mockMvc, post("/category").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
 				.session(session).content(asJsonString(category))).andExpect(status().isCreated()).andDo(print());
 		verify(categoryService, times(1)).createCategory(Mockito.any(Category.class));
 		verifyNoMoreInteractions(categoryService);
@@ -93,7 +104,7 @@ public class CategoryControllerTest {
 	public void testCreateCategoryFailure() throws Exception {
 
 		when(categoryService.createCategory(category)).thenReturn(false);
-		mockMvc.perform(post("/category").contentType(MediaType.APPLICATION_JSON).content(asJsonString(category))
+		perform(mockMvc, post("/category").contentType(MediaType.APPLICATION_JSON).content(asJsonString(category))
 				.session(session)).andExpect(status().isConflict()).andDo(print());
 
 	}
@@ -102,7 +113,7 @@ public class CategoryControllerTest {
 	public void testCreateCategoryWithoutSessionFailure() throws Exception {
 
 		when(categoryService.createCategory(category)).thenReturn(false);
-		mockMvc.perform(post("/category").contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
+		perform(mockMvc, post("/category").contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
 				.andExpect(status().isUnauthorized()).andDo(print());
 
 	}
@@ -111,7 +122,7 @@ public class CategoryControllerTest {
 	public void testDeleteCategorySuccess() throws Exception {
 
 		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(true);
-		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isOk()).andDo(print());
 
 	}
@@ -120,7 +131,7 @@ public class CategoryControllerTest {
 	public void testDeleteCategoryFailure() throws Exception {
 
 		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
-		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 
 	}
@@ -129,7 +140,7 @@ public class CategoryControllerTest {
 	public void testDeleteCategoryWithoutSessionFailure() throws Exception {
 
 		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
-		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON))
+		perform(mockMvc, delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isUnauthorized()).andDo(print());
 
 	}
@@ -138,21 +149,30 @@ public class CategoryControllerTest {
 	
 	public void testUpdateCategorySuccess() throws Exception {
 		when(categoryService.updateCategory(any(), eq(category.getCategoryId()))).thenReturn(category);
-		mockMvc.perform(put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(category)).session(session)).andExpect(status().isOk());
 	}
 
+	@Test
+	public void testUpdateCategoryFailureWithStaleVersion() throws Exception {
+		when(categoryService.updateCategory(any(), eq(category.getCategoryId())))
+				.thenThrow(new OptimisticLockingFailureException("Category 1 was updated by another request"));
+		perform(mockMvc, put("/category/{id}", category.getCategoryId()).header("If-Match", "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)).session(session))
+				.andExpect(status().isPreconditionFailed());
+	}
+
 	@Test
 	public void testUpdateCategoryFailure() throws Exception {
 		when(categoryService.updateCategory(any(), eq(category.getCategoryId()))).thenReturn(null);
-		mockMvc.perform(put("/category/{id}", 2).contentType(MediaType.APPLICATION_JSON).content(asJsonString(category))
+		perform(mockMvc, put("/category/{id}", 2).contentType(MediaType.APPLICATION_JSON).content(asJsonString(category))
 				.session(session)).andExpect(status().isNotFound());
 	}
 
 	@Test
 	public void testUpdateCategoryWithoutSessionFailure() throws Exception {
 		when(categoryService.updateCategory(any(), eq(category.getCategoryId()))).thenReturn(category);
-		mockMvc.perform(put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(category))).andExpect(status().isUnauthorized());
 	}
 
@@ -166,7 +186,7 @@ public class CategoryControllerTest {
 		categories.add(category);
 
 		when(categoryService.getAllCategoryByUserId("Jhon123")).thenReturn(categories);
-		mockMvc.perform(get("/category").contentType(MediaType.APPLICATION_JSON).session(session))
+		perform(mockMvc, get("/category").contentType(MediaType.APPLICATION_JSON).session(session))
 				.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(3))).andDo(print());
 	}
 
@@ -180,7 +200,7 @@ public class CategoryControllerTest {
 		categories.add(category);
 
 		when(categoryService.getAllCategoryByUserId("Jhon123")).thenReturn(categories);
-		mockMvc.perform(get("/category").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized())
+		perform(mockMvc, get("/category").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized())
 				.andDo(print());
 	}
 
@@ -0,0 +1,35 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+/*
+ * The controller handlers return a CompletableFuture, which starts async
+ * processing even when the future is already complete. perform() runs the
+ * request and, if async processing was started, the async dispatch that writes
+ * the response, so that the expectations apply to the response the client gets.
+ * It waits for the async result itself, as a streamed response has no timeout
+ * for the mock request to wait on.
+ */
+final class MockMvcDispatch {
+
+	private static final long ASYNC_WAIT_MILLIS = 10000;
+
+	private MockMvcDispatch() {
+	}
+
+	static ResultActions perform(MockMvc mockMvc, RequestBuilder request) throws Exception {
+		ResultActions actions = mockMvc.perform(request);
+		MvcResult result = actions.andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			result.getAsyncResult(ASYNC_WAIT_MILLIS);
+			return mockMvc.perform(asyncDispatch(result));
+		}
+		return actions;
+	}
+
+}
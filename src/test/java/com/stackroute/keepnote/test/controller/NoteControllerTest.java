@@ -1,10 +1,14 @@
 package com.stackroute.keepnote.test.controller;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.hamcrest.Matchers.hasSize;
 import org.junit.After;
@@ -14,7 +18,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.ContextConfiguration;
@@ -23,14 +29,25 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.search.NoteSearchHit;
+import com.stackroute.keepnote.service.NoteSearchService;
 import com.stackroute.keepnote.service.NoteService;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.sync.ListTags;
+import com.stackroute.keepnote.web.StreamingJacksonConverter;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -38,6 +55,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static com.stackroute.keepnote.test.controller.MockMvcDispatch.perform;
+import com.stackroute.keepnote.web.HandlerExecutor;
+import com.stackroute.keepnote.web.VaryAcceptInterceptor;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = { ApplicationContextConfig.class })
@@ -55,6 +76,13 @@ public class NoteControllerTest {
 	private Reminder reminder;
 	@Mock
 	private NoteService noteService;
+	@Mock
+	private NoteSearchService noteSearchService;
+	private ChangeLogDAO changeLogDAO = mock(ChangeLogDAO.class);
+	@Spy
+	private ListTags listTags = new ListTags(changeLogDAO);
+	@Spy
+	private HandlerExecutor handlerExecutor = new HandlerExecutor();
 	@Autowired
 	private MockHttpSession session;
 	@InjectMocks
@@ -67,7 +95,7 @@ public class NoteControllerTest {
 	public void setUp() throws Exception {
 
 		MockitoAnnotations.initMocks(this);
-		mockMvc = MockMvcBuilders.standaloneSetup(noteController).build();
+		mockMvc = MockMvcBuilders.standaloneSetup(noteController).addInterceptors(new VaryAcceptInterceptor()).build();
 		// session = new MockHttpSession();
 		// Creating User Object
 		user = new User("Jhon123", "Jhon Simon", "974324567", "123456", new Date());
@@ -123,20 +151,34 @@ public class NoteControllerTest {
 		when(noteService.createNote(any())).thenReturn(true);
 		System.out.println(noteService.createNote(note));
 
-		mockMvc.perform(
+		perform(mockMvc, 
 				post("/note").contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)).session(session))
 				.andExpect(status().isCreated()).andDo(print());
 
 	}
 
+	@Test
+	public void testCreateNoteWithSmileBody() throws Exception {
+
+		when(noteService.createNote(any())).thenReturn(true);
+		MockMvc binaryMockMvc = MockMvcBuilders.standaloneSetup(noteController).setMessageConverters(
+				StreamingJacksonConverter.json(), StreamingJacksonConverter.smile(), StreamingJacksonConverter.cbor())
+				.build();
+		perform(binaryMockMvc, post("/note").contentType(StreamingJacksonConverter.APPLICATION_SMILE)
+				.content(new ObjectMapper(new SmileFactory()).writeValueAsBytes(note)).session(session))
+				.andExpect(status().isCreated()).andDo(print());
+		verify(noteService).createNote(argThat(created -> note.getNoteTitle().equals(created.getNoteTitle())));
+
+	}
+
 	@Test
 	public void testCreateNoteFailure() throws Exception {
 
 		when(noteService.createNote(any())).thenReturn(false);
 
-		mockMvc.perform(
+		perform(mockMvc, 
 				post("/note").contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)).session(session))
-				.andExpect(status().isConflict()).andDo(print());
+				.andExpect(status().isInternalServerError()).andDo(print());
 
 	}
 
@@ -145,15 +187,15 @@ public class NoteControllerTest {
 
 		when(noteService.createNote(any())).thenReturn(true);
 
-		mockMvc.perform(post("/note").contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)))
+		perform(mockMvc, post("/note").contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)))
 				.andExpect(status().isUnauthorized()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteNoteSuccess() throws Exception {
 
-		when(noteService.deleteNote(note.getNoteId())).thenReturn(true);
-		mockMvc.perform(delete("/note/{id}", note.getNoteId()).session(session)).andExpect(status().isOk())
+		when(noteService.deleteNote("Jhon123", note.getNoteId())).thenReturn(true);
+		perform(mockMvc, delete("/note/{id}", note.getNoteId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 
 	}
@@ -161,15 +203,23 @@ public class NoteControllerTest {
 	@Test
 	public void testDeleteNoteFailure() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
-		mockMvc.perform(delete("/note/{id}", 1).session(session)).andExpect(status().isNotFound()).andDo(print());
+		when(noteService.deleteNote("Jhon123", 1)).thenReturn(false);
+		perform(mockMvc, delete("/note/{id}", 1).session(session)).andExpect(status().isNotFound()).andDo(print());
+	}
+
+	@Test
+	public void testDeleteNoteOfOtherUserFailure() throws Exception {
+
+		when(noteService.deleteNote("Jhon123", 2)).thenThrow(new NoteNotFoundException("Note not found"));
+		perform(mockMvc, delete("/note/{id}", 2).session(session)).andExpect(status().isNotFound());
+		verify(noteService, never()).deleteNote(2);
 	}
 
 	@Test
 	public void testDeleteNoteFailureWithoutSession() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
-		mockMvc.perform(delete("/note/{id}", 1)).andExpect(status().isUnauthorized()).andDo(print());
+		when(noteService.deleteNote("Jhon123", 1)).thenReturn(false);
+		perform(mockMvc, delete("/note/{id}", 1)).andExpect(status().isUnauthorized()).andDo(print());
 	}
 
 	@Test
@@ -179,7 +229,7 @@ public class NoteControllerTest {
 				reminder, user.getUserId());
 		note.setNoteContent("updating note card");
 		when(noteService.updateNote(any(), eq(1))).thenReturn(note);
-		mockMvc.perform(put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(note)).session(session)).andExpect(status().isOk()).andDo(print());
 
 	}
@@ -188,16 +238,37 @@ public class NoteControllerTest {
 	public void testUpdateNoteFailure() throws ReminderNotFoundException, Exception {
 		note.setNoteContent("updating note card");
 		when(noteService.updateNote(note, note.getNoteId())).thenReturn(null);
-		mockMvc.perform(put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+		perform(mockMvc, put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 	}
 
+	@Test
+	public void testUpdateNoteKeepsSessionUserAsCreator() throws Exception {
+		note = new Note(1, "Testing for Step-3", "Complete testing for step-3", "Active", new Date(), category,
+				reminder, "Smith456");
+		when(noteService.updateNote(any(), eq(1))).thenReturn(note);
+		perform(mockMvc, put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+				.session(session)).andExpect(status().isOk());
+		verify(noteService).updateNote(argThat(updated -> "Jhon123".equals(updated.getCreatedBy())), eq(1));
+	}
+
+	@Test
+	public void testUpdateNoteFailureWithStaleVersion() throws Exception {
+		note = new Note(1, "Testing for Step-3", "Complete testing for step-3", "Active", new Date(), category,
+				reminder, user.getUserId());
+		when(noteService.updateNote(any(), eq(1)))
+				.thenThrow(new OptimisticLockingFailureException("Note 1 was updated by another request"));
+		perform(mockMvc, put("/note/{id}", 1).header("If-Match", "\"3\"").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(note)).session(session)).andExpect(status().isPreconditionFailed());
+		verify(noteService).updateNote(argThat(updated -> Integer.valueOf(3).equals(updated.getVersion())), eq(1));
+	}
+
 	@Test
 	public void testUpdateNoteFailureWithoutSession() throws ReminderNotFoundException, Exception {
 		// when(noteService.getNoteById(5)).thenReturn(null);
 		note.setNoteContent("updating note card");
 		when(noteService.updateNote(note, note.getNoteId())).thenReturn(note);
-		mockMvc.perform(put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)))
+		perform(mockMvc, put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note)))
 				.andExpect(status().isUnauthorized()).andDo(print());
 	}
 
@@ -205,16 +276,198 @@ public class NoteControllerTest {
 	public void testGetAllNotesByUserIdSuccess() throws Exception {
 
 		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
-		mockMvc.perform(get("/note").contentType(MediaType.APPLICATION_JSON).session(session))
+		perform(mockMvc, get("/note").contentType(MediaType.APPLICATION_JSON).session(session))
 				.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(3))).andDo(print());
 
 	}
 
+	@Test
+	public void testGetAllNotesByUserIdAsCbor() throws Exception {
+
+		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
+		MockMvc binaryMockMvc = MockMvcBuilders.standaloneSetup(noteController).setMessageConverters(
+				StreamingJacksonConverter.json(), StreamingJacksonConverter.smile(), StreamingJacksonConverter.cbor())
+				.build();
+		byte[] body = perform(binaryMockMvc, get("/note").accept(StreamingJacksonConverter.APPLICATION_CBOR)
+				.session(session)).andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "application/cbor")).andReturn().getResponse()
+				.getContentAsByteArray();
+		Note[] notes = new ObjectMapper(new CBORFactory()).readValue(body, Note[].class);
+		assertEquals(3, notes.length);
+		assertEquals(allNotesByUserId.get(0).getNoteTitle(), notes[0].getNoteTitle());
+
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdNotModified() throws Exception {
+
+		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
+		when(changeLogDAO.getLastChangeId("Jhon123")).thenReturn(41L, 41L, 42L);
+		String tag = perform(mockMvc, get("/note").contentType(MediaType.APPLICATION_JSON).session(session))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+		perform(mockMvc, get("/note").header("If-None-Match", tag).session(session))
+				.andExpect(status().isNotModified()).andExpect(header().string("ETag", tag));
+		perform(mockMvc, get("/note").header("If-None-Match", tag).session(session)).andExpect(status().isOk());
+		verify(noteService, times(2)).getAllNotesByUserId("Jhon123");
+
+	}
+
+	@Test
+	public void testStreamNotes() throws Exception {
+
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			allNotesByUserId.forEach(consumer);
+			return null;
+		}).when(noteService).streamAllNotesByUserId(eq("Jhon123"), any());
+		perform(mockMvc, get("/note/stream").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3))).andDo(print());
+		assertEquals(0, handlerExecutor.getInFlight());
+
+	}
+
+	@Test
+	public void testStreamNotesFailureWithoutSession() throws Exception {
+
+		perform(mockMvc, get("/note/stream")).andExpect(status().isUnauthorized()).andDo(print());
+		verify(noteService, never()).streamAllNotesByUserId(any(), any());
+		assertEquals(0, handlerExecutor.getInFlight());
+
+	}
+
 	@Test
 	public void testGetAllNotesByUserIdFailureWithoutSession() throws Exception {
 
 		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
-		mockMvc.perform(get("/note").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized())
+		perform(mockMvc, get("/note").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized())
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testCreateNotesSuccess() throws Exception {
+
+		when(noteService.createNotes(any())).thenReturn(3);
+		perform(mockMvc, post("/notes/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId)).session(session)).andExpect(status().isCreated())
+				.andExpect(jsonPath("$").value(3)).andDo(print());
+
+	}
+
+	@Test
+	public void testCreateNotesFailureWithoutSession() throws Exception {
+
+		when(noteService.createNotes(any())).thenReturn(3);
+		perform(mockMvc, post("/notes/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId))).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteDetailsSuccess() throws Exception {
+
+		when(noteService.getNoteById("Jhon123", 1, NoteFetchProfile.WITH_CATEGORY)).thenReturn(note);
+		perform(mockMvc, get("/note/{id}", 1).param("fetch", "withCategory").session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.noteId").value(note.getNoteId())).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteDetailsTaggedPerRepresentation() throws Exception {
+
+		note.setVersion(3);
+		when(noteService.getNoteById("Jhon123", 1, NoteFetchProfile.FULL)).thenReturn(note);
+		when(noteService.getNoteById("Jhon123", 1, NoteFetchProfile.SUMMARY)).thenReturn(note);
+		perform(mockMvc, get("/note/{id}", 1).session(session)).andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"3-full-json\"")).andExpect(header().string("Vary", "Accept"));
+		perform(mockMvc, get("/note/{id}", 1).accept(StreamingJacksonConverter.APPLICATION_CBOR).session(session))
+				.andExpect(status().isOk()).andExpect(header().string("ETag", "\"3-full-cbor\""));
+		perform(mockMvc, get("/note/{id}", 1).param("fetch", "summary").session(session))
+				.andExpect(status().isOk()).andExpect(header().string("ETag", "\"3-summary-json\""));
+
+	}
+
+	@Test
+	public void testUpdateNoteWithRepresentationTag() throws Exception {
+
+		Note update = new Note(1, "Testing", "Testing tags", "Active", new Date(), null, null, "Jhon123");
+		when(noteService.updateNote(any(), eq(1))).thenReturn(note);
+		perform(mockMvc, put("/note/{id}", 1).header("If-Match", "\"3-full-cbor\"")
+				.contentType(MediaType.APPLICATION_JSON).content(asJsonString(update)).session(session))
+				.andExpect(status().isOk());
+		verify(noteService).updateNote(argThat(updated -> Integer.valueOf(3).equals(updated.getVersion())), eq(1));
+
+	}
+
+	@Test
+	public void testGetNoteDetailsFailureForOtherUsersNote() throws Exception {
+
+		when(noteService.getNoteById("Jhon123", 2, NoteFetchProfile.FULL))
+				.thenThrow(new NoteNotFoundException("Note not found"));
+		perform(mockMvc, get("/note/{id}", 2).session(session)).andExpect(status().isNotFound()).andDo(print());
+		verify(noteService).getNoteById("Jhon123", 2, NoteFetchProfile.FULL);
+
+	}
+
+	@Test
+	public void testGetNoteDetailsFailureWithUnknownFetch() throws Exception {
+
+		perform(mockMvc, get("/note/{id}", 1).param("fetch", "everything").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteSummariesSuccess() throws Exception {
+
+		List<NoteSummary> summaries = new ArrayList<NoteSummary>();
+		summaries.add(new NoteSummary(1, "Testing for Step-3", "Active", new Date(), 1, "Testing", null, null));
+		when(noteService.getNoteSummariesByUserId("Jhon123")).thenReturn(summaries);
+		perform(mockMvc, get("/note/summary").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$[0].categoryName").value("Testing"))
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteSummariesFailureWithoutSession() throws Exception {
+
+		perform(mockMvc, get("/note/summary")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesPageSuccess() throws Exception {
+
+		when(noteService.getNotesByUserId("Jhon123", 0, 2)).thenReturn(new NotePage(allNotesByUserId.subList(0, 2), 2));
+		perform(mockMvc, get("/note/page").param("after", "0").param("limit", "2").session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.notes", hasSize(2)))
+				.andExpect(jsonPath("$.nextCursor").value(2)).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesPageFailureWithoutSession() throws Exception {
+
+		perform(mockMvc, get("/note/page")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNotesSuccess() throws Exception {
+
+		List<NoteSearchHit> hits = new ArrayList<NoteSearchHit>();
+		hits.add(new NoteSearchHit(1, "Testing for Step-3", 1.5));
+		when(noteSearchService.searchNotes("Jhon123", "testing", 20)).thenReturn(hits);
+		perform(mockMvc, get("/note/search").param("q", "testing").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$[0].noteId").value(1)).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNotesFailureWithoutSession() throws Exception {
+
+		perform(mockMvc, get("/note/search").param("q", "testing")).andExpect(status().isUnauthorized())
 				.andDo(print());
 
 	}
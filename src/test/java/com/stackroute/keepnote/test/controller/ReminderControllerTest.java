@@ -19,6 +19,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
@@ -34,6 +35,10 @@ import com.stackroute.keepnote.controller.ReminderController;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.ReminderService;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.sync.ListTags;
+import static com.stackroute.keepnote.test.controller.MockMvcDispatch.perform;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = { ApplicationContextConfig.class })
@@ -47,6 +52,11 @@ public class ReminderControllerTest {
 	MockHttpSession session;
 	@Mock
 	ReminderService reminderService;
+	ChangeLogDAO changeLogDAO = mock(ChangeLogDAO.class);
+	@Spy
+	ListTags listTags = new ListTags(changeLogDAO);
+	@Spy
+	private HandlerExecutor handlerExecutor = new HandlerExecutor();
 	@InjectMocks
 	ReminderController reminderController;
 	List<Reminder> allReminders = new ArrayList<Reminder>();
@@ -66,42 +76,42 @@ public class ReminderControllerTest {
 	
 	public void testCreateReminderSuccess() throws Exception {
 		when(reminderService.createReminder(any())).thenReturn(true);
-		mockMvc.perform(post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder))
+		perform(mockMvc, post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder))
 				.session(session)).andExpect(status().isCreated());
 	}
 
 	@Test
 	public void testCreateReminderFailure() throws Exception {
 		when(reminderService.createReminder(any())).thenReturn(false);
-		mockMvc.perform(post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder))
+		perform(mockMvc, post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder))
 				.session(session)).andExpect(status().isConflict());
 	}
 
 	@Test
 	public void testCreateReminderWithoutSessionFailure() throws Exception {
 		when(reminderService.createReminder(any())).thenReturn(true);
-		mockMvc.perform(post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
+		perform(mockMvc, post("/reminder").contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
 				.andExpect(status().isUnauthorized());
 	}
 
 	@Test
 	public void testDeleteReminderSuccess() throws Exception {
 		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(true);
-		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session)).andExpect(status().isOk())
+		perform(mockMvc, delete("/reminder/{id}", reminder.getReminderId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderFailure() throws Exception {
 		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
-		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session))
+		perform(mockMvc, delete("/reminder/{id}", reminder.getReminderId()).session(session))
 				.andExpect(status().isNotFound()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderWithoutSessionFailure() throws Exception {
 		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
-		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId())).andExpect(status().isUnauthorized())
+		perform(mockMvc, delete("/reminder/{id}", reminder.getReminderId())).andExpect(status().isUnauthorized())
 				.andDo(print());
 	}
 
@@ -110,7 +120,7 @@ public class ReminderControllerTest {
 		when(reminderService.updateReminder(any(),eq( reminder.getReminderId()))).thenReturn(reminder);
 		reminder.setReminderDescription("updating reminder");
 
-		mockMvc.perform(put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(reminder)).session(session)).andExpect(status().isOk());
 	}
 
@@ -119,7 +129,7 @@ public class ReminderControllerTest {
 		when(reminderService.updateReminder(any(),eq( reminder.getReminderId()))).thenReturn(null);
 		reminder.setReminderDescription("updating reminder");
 
-		mockMvc.perform(put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(reminder)).session(session)).andExpect(status().isNotFound());
 	}
 
@@ -128,7 +138,7 @@ public class ReminderControllerTest {
 		when(reminderService.updateReminder(any(),eq( reminder.getReminderId()))).thenReturn(null);
 		reminder.setReminderDescription("updating reminder");
 
-		mockMvc.perform(put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(reminder))).andExpect(status().isUnauthorized());
 	}
 
@@ -141,7 +151,7 @@ public class ReminderControllerTest {
 		allReminders.add(reminder);
 
 		when(reminderService.getAllReminderByUserId(user.getUserId())).thenReturn(allReminders);
-		mockMvc.perform(get("/reminder").contentType(MediaType.APPLICATION_JSON).session(session))
+		perform(mockMvc, get("/reminder").contentType(MediaType.APPLICATION_JSON).session(session))
 				.andExpect(status().isOk());
 	}
 
@@ -154,13 +164,13 @@ public class ReminderControllerTest {
 		allReminders.add(reminder);
 
 		when(reminderService.getAllReminderByUserId(user.getUserId())).thenReturn(allReminders);
-		mockMvc.perform(get("/reminder").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized());
+		perform(mockMvc, get("/reminder").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnauthorized());
 	}
 
 	@Test
 	public void testGetReminderByIdSuccess() throws Exception {
 		when(reminderService.getReminderById(reminder.getReminderId())).thenReturn(reminder);
-		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isOk());
 
 	}
@@ -168,7 +178,7 @@ public class ReminderControllerTest {
 	@Test
 	public void testGetReminderByIdFailure() throws Exception {
 		when(reminderService.getReminderById(reminder.getReminderId())).thenReturn(null);
-		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isNotFound());
 
 	}
@@ -176,7 +186,7 @@ public class ReminderControllerTest {
 	@Test
 	public void testGetReminderByIdWithoutSessionFailure() throws Exception {
 		when(reminderService.getReminderById(reminder.getReminderId())).thenReturn(null);
-		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON))
+		perform(mockMvc, get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isUnauthorized());
 
 	}
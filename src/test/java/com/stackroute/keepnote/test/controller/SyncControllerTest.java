@@ -0,0 +1,87 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.controller.SyncController;
+import com.stackroute.keepnote.model.SyncBatch;
+import com.stackroute.keepnote.model.SyncedNote;
+import com.stackroute.keepnote.service.SyncService;
+import static com.stackroute.keepnote.test.controller.MockMvcDispatch.perform;
+import com.stackroute.keepnote.web.HandlerExecutor;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@WebAppConfiguration
+public class SyncControllerTest {
+
+	private MockMvc mockMvc;
+	@Autowired
+	private MockHttpSession session;
+	@Mock
+	SyncService syncService;
+	@Spy
+	HandlerExecutor handlerExecutor = new HandlerExecutor();
+	@InjectMocks
+	SyncController syncController;
+	private SyncBatch batch;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(syncController).build();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		batch = new SyncBatch();
+		batch.setToken("b");
+		batch.getNotes().add(new SyncedNote(1, "Testing-1", "Testing sync", "Active", new Date(), null, null, 0));
+		batch.getDeletedReminders().add(2);
+	}
+
+	@Test
+	public void testGetChangesSuccess() throws Exception {
+		when(syncService.getChanges("Jhon123", "a", 100)).thenReturn(batch);
+		perform(mockMvc, get("/sync").param("since", "a").param("limit", "100").session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.token", is("b")))
+				.andExpect(jsonPath("$.hasMore", is(false))).andExpect(jsonPath("$.notes", hasSize(1)))
+				.andExpect(jsonPath("$.deletedReminders", hasSize(1)))
+				.andExpect(jsonPath("$.categories").doesNotExist()).andDo(print());
+	}
+
+	@Test
+	public void testGetChangesWithInvalidToken() throws Exception {
+		when(syncService.getChanges("Jhon123", "-", 500)).thenThrow(new NumberFormatException("-"));
+		perform(mockMvc, get("/sync").param("since", "-").session(session)).andExpect(status().isBadRequest())
+				.andDo(print());
+	}
+
+	@Test
+	public void testGetChangesWithoutSessionFailure() throws Exception {
+		perform(mockMvc, get("/sync")).andExpect(status().isUnauthorized()).andDo(print());
+		verifyZeroInteractions(syncService);
+	}
+
+}
@@ -1,9 +1,11 @@
 package com.stackroute.keepnote.test.controller;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Date;
@@ -21,6 +23,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.UserAuthenticationController;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.AuthTokenService;
 import com.stackroute.keepnote.service.UserService;
 
 public class UserAuthenticationControllerTest {
@@ -54,6 +57,17 @@ public class UserAuthenticationControllerTest {
 
 	}
 
+	@Test
+	public void testLoginIssuesTokenInTokenMode() throws Exception {
+
+		authController.setAuthTokenService(new AuthTokenService("token", "test-secret", 3600, 100));
+		when(userService.validateUser(user.getUserId(), user.getUserPassword())).thenReturn(true);
+		mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
+				.andExpect(status().isOk()).andExpect(header().string("Authorization", startsWith("Bearer ")))
+				.andDo(print());
+
+	}
+
 	@Test
 	public void testLoginFailure() throws Exception {
 
@@ -84,6 +98,14 @@ public class UserAuthenticationControllerTest {
 
 	}
 
+	@Test
+	public void testLogoutInTokenMode() throws Exception {
+
+		authController.setAuthTokenService(new AuthTokenService("token", "test-secret", 3600, 100));
+		mockMvc.perform(get("/logout").session(session)).andExpect(status().isNotImplemented()).andDo(print());
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
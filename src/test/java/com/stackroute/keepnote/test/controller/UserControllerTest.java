@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -29,6 +30,8 @@ import com.stackroute.keepnote.controller.UserController;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.UserService;
+import static com.stackroute.keepnote.test.controller.MockMvcDispatch.perform;
+import com.stackroute.keepnote.web.HandlerExecutor;
 
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = { ApplicationContextConfig.class })
@@ -41,8 +44,10 @@ public class UserControllerTest {
 	private MockHttpSession session;
 	@Mock
 	private UserService userService;
+	@Spy
+	private HandlerExecutor handlerExecutor = new HandlerExecutor();
 	@InjectMocks
-	private UserController userController = new UserController(userService);
+	private UserController userController = new UserController(userService, handlerExecutor);
 
 	@Before
 	public void setUp() throws Exception {
@@ -60,7 +65,7 @@ public class UserControllerTest {
 	@Test
 	public void testRegisterUserSuccess() throws Exception {
 		when(userService.registerUser(any())).thenReturn(true);
-		mockMvc.perform(post("/user/register").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
+		perform(mockMvc, post("/user/register").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
 				.andExpect(status().isCreated()).andDo(print());
 	}
 
@@ -68,7 +73,7 @@ public class UserControllerTest {
 	public void testRegisterUserFailure() throws UserAlreadyExistException, Exception {
 
 		when(userService.registerUser(any())).thenThrow(UserAlreadyExistException.class);
-		mockMvc.perform(post("/user/register").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
+		perform(mockMvc, post("/user/register").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
 				.andExpect(status().isConflict()).andDo(print());
 	}
 
@@ -77,7 +82,7 @@ public class UserControllerTest {
 		when(userService.updateUser(any(), eq(user.getUserId()))).thenReturn(user);
 
 		user.setUserMobile("9898989898");
-		mockMvc.perform(put("/user/{id}", user.getUserId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/user/{id}", user.getUserId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(user)).session(session)).andExpect(status().isOk());
 	}
 
@@ -86,7 +91,7 @@ public class UserControllerTest {
 		when(userService.updateUser(any(), eq(user.getUserId()))).thenReturn(null);
 
 		user.setUserMobile("9898989898");
-		mockMvc.perform(put("/user/{id}", user.getUserId()).contentType(MediaType.APPLICATION_JSON)
+		perform(mockMvc, put("/user/{id}", user.getUserId()).contentType(MediaType.APPLICATION_JSON)
 				.content(asJsonString(user)).session(session)).andExpect(status().isNotFound());
 	}
 
@@ -95,48 +100,55 @@ public class UserControllerTest {
 		when(userService.updateUser(any(), eq(user.getUserId()))).thenReturn(user);
 
 		user.setUserMobile("9898989898");
-		mockMvc.perform(
+		perform(mockMvc, 
 				put("/user/{id}", user.getUserId()).contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
 				.andExpect(status().isUnauthorized());
 	}
 
+	@Test
+	public void testUpdateOtherUserFailure() throws Exception {
+		perform(mockMvc, put("/user/{id}", "Smith456").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(user)).session(session)).andExpect(status().isUnauthorized());
+		verify(userService, never()).updateUser(any(), any());
+	}
+
 	@Test
 	public void testDeleteUserSuccess() throws Exception {
 		when(userService.deleteUser(user.getUserId())).thenReturn(true);
-		mockMvc.perform(delete("/user/{id}", user.getUserId()).session(session)).andExpect(status().isOk())
+		perform(mockMvc, delete("/user/{id}", user.getUserId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 	}
 
 	@Test
 	public void testDeleteUserFailure() throws Exception {
 		when(userService.deleteUser(user.getUserId())).thenReturn(false);
-		mockMvc.perform(delete("/user/{id}", user.getUserId()).session(session)).andExpect(status().isNotFound())
+		perform(mockMvc, delete("/user/{id}", user.getUserId()).session(session)).andExpect(status().isNotFound())
 				.andDo(print());
 	}
 
 	@Test
 	public void testDeleteUserWithoutSessionFailure() throws Exception {
 		when(userService.deleteUser(user.getUserId())).thenReturn(false);
-		mockMvc.perform(delete("/user/{id}", user.getUserId())).andExpect(status().isUnauthorized()).andDo(print());
+		perform(mockMvc, delete("/user/{id}", user.getUserId())).andExpect(status().isUnauthorized()).andDo(print());
 	}
 
 	@Test
 	public void testGetByUserIdSuccess() throws Exception {
 		when(userService.getUserById(user.getUserId())).thenReturn(user);
-		mockMvc.perform(get("/user/{id}", user.getUserId()).session(session)).andExpect(status().isOk()).andDo(print());
+		perform(mockMvc, get("/user/{id}", user.getUserId()).session(session)).andExpect(status().isOk()).andDo(print());
 	}
 
 	@Test
 	public void testGetByUserIdFailure() throws Exception {
 		when(userService.getUserById(user.getUserId())).thenReturn(null);
-		mockMvc.perform(get("/user/{id}", user.getUserId()).session(session)).andExpect(status().isNotFound())
+		perform(mockMvc, get("/user/{id}", user.getUserId()).session(session)).andExpect(status().isNotFound())
 				.andDo(print());
 	}
 
 	@Test
 	public void testGetByUserIdWithoutSessionFailure() throws Exception {
 		when(userService.getUserById(user.getUserId())).thenReturn(null);
-		mockMvc.perform(get("/user/{id}", user.getUserId())).andExpect(status().isUnauthorized()).andDo(print());
+		perform(mockMvc, get("/user/{id}", user.getUserId())).andExpect(status().isUnauthorized()).andDo(print());
 	}
 
 	public static String asJsonString(final Object obj) {
@@ -2,6 +2,7 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 import javax.persistence.Query;
@@ -13,6 +14,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
@@ -69,6 +71,18 @@ public class CategoryDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testGetCategoriesByIds() {
+		Category other = new Category(2, "Other", "Created by another user", null, "Jhon456", null);
+		categoryDAO.createCategory(category);
+		categoryDAO.createCategory(other);
+		List<Category> categories = categoryDAO.getCategoriesByIds("Jhon123",
+				Arrays.asList(category.getCategoryId(), other.getCategoryId(), 999));
+		assertEquals(1, categories.size());
+		assertEquals("Testing", categories.get(0).getCategoryName());
+	}
+
 	@Test
 	public void testDeleteCategorySuccess() {
 		categoryDAO.createCategory(category);
@@ -96,6 +110,26 @@ public class CategoryDAOImplTest {
 		assertEquals("Testing DAO layer in spring MVC", savedCategory.getCategoryDescription());
 	}
 
+	@Test
+	public void testUpdateCategoryOfOtherUser() throws CategoryNotFoundException {
+		categoryDAO.createCategory(category);
+		Category other = new Category(category.getCategoryId(), "Testing", "Overwritten", null, "Smith456", null);
+		assertEquals(false, categoryDAO.updateCategory(other));
+		assertEquals("Jhon123", categoryDAO.getCategoryById(category.getCategoryId()).getCategoryCreatedBy());
+	}
+
+	@Test(expected = OptimisticLockingFailureException.class)
+	public void testUpdateCategoryWithStaleVersion() {
+		categoryDAO.createCategory(category);
+		Category first = new Category(1, "Testing", "First update", null, "Jhon123", null);
+		first.setVersion(0);
+		assertEquals(true, categoryDAO.updateCategory(first));
+		assertEquals(Integer.valueOf(1), first.getVersion());
+		Category second = new Category(1, "Testing", "Second update", null, "Jhon123", null);
+		second.setVersion(0);
+		categoryDAO.updateCategory(second);
+	}
+
 	@Test
 	public void testGetCategoryById() throws CategoryNotFoundException {
 		categoryDAO.createCategory(category);
@@ -115,4 +149,16 @@ public class CategoryDAOImplTest {
 		assertEquals(3, allCategories.size());
 	}
 
+	@Test
+	public void testDeleteCategoriesByUserId() {
+		categoryDAO.createCategory(category);
+		categoryDAO.createCategory(new Category(2, "Testing", "All about testing", null, "Jhon123", null));
+		categoryDAO.createCategory(new Category(3, "Testing", "All about testing", null, "Jhon456", null));
+		assertEquals(2, categoryDAO.deleteCategoriesByUserId("Jhon123", 5).size());
+		assertTrue(categoryDAO.deleteCategoriesByUserId("Jhon123", 5).isEmpty());
+		sessionFactory.getCurrentSession().clear();
+		assertTrue(categoryDAO.getAllCategoryByUserId("Jhon123").isEmpty());
+		assertEquals(1, categoryDAO.getAllCategoryByUserId("Jhon456").size());
+	}
+
 }
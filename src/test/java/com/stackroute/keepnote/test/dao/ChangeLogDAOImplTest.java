@@ -0,0 +1,137 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.dao.ChangeLogDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+import com.stackroute.keepnote.model.Note;
+
+@RunWith(SpringRunner.class)
+@Transactional
+@WebAppConfiguration
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, TransactionalTestExecutionListener.class })
+public class ChangeLogDAOImplTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	private ChangeLogDAO changeLogDAO;
+	private NoteDAOImpl noteDAO;
+	private Note note;
+
+	@Before
+	public void setUp() {
+		changeLogDAO = new ChangeLogDAOImpl(sessionFactory);
+		noteDAO = new NoteDAOImpl(sessionFactory);
+		noteDAO.setChangeLogDAO(changeLogDAO);
+		note = new Note(1, "Testing-1", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Query query = sessionFactory.getCurrentSession().createQuery("DELETE from ChangeLogEntry");
+		query.executeUpdate();
+		query = sessionFactory.getCurrentSession().createQuery("DELETE from Note");
+		query.executeUpdate();
+	}
+
+	@Test
+	@Rollback(true)
+	public void testWritesAreLogged() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		note.setNoteContent("Updated");
+		noteDAO.UpdateNote(note);
+		noteDAO.deleteNote(note.getNoteId());
+		List<ChangeLogEntry> entries = changeLogDAO.getChangesSince("Jhon123", 0, 10);
+		assertEquals(3, entries.size());
+		assertEquals(Operation.SAVE, entries.get(0).getOperation());
+		assertEquals(Operation.SAVE, entries.get(1).getOperation());
+		assertEquals(Operation.DELETE, entries.get(2).getOperation());
+		assertEquals(EntityType.NOTE, entries.get(2).getEntityType());
+		assertEquals(note.getNoteId(), entries.get(2).getEntityId());
+		assertTrue(changeLogDAO.getChangesSince("Jhon456", 0, 10).isEmpty());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testEntriesAreInsertedAtCommit() {
+		Query count = sessionFactory.getCurrentSession().createQuery("select count(*) from ChangeLogEntry");
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 1, Operation.SAVE);
+		assertEquals(0L, count.getSingleResult());
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(synchronization -> synchronization.beforeCommit(false));
+		assertEquals(1L, count.getSingleResult());
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 2, Operation.SAVE);
+		assertEquals(2, changeLogDAO.getChangesSince("Jhon123", 0, 10).size());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetChangesSince() {
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 1, Operation.SAVE);
+		changeLogDAO.record("Jhon123", EntityType.CATEGORY, 2, Operation.SAVE);
+		changeLogDAO.record("Jhon123", EntityType.REMINDER, 3, Operation.DELETE);
+		List<ChangeLogEntry> all = changeLogDAO.getChangesSince("Jhon123", 0, 10);
+		List<ChangeLogEntry> page = changeLogDAO.getChangesSince("Jhon123", all.get(0).getChangeId(), 1);
+		assertEquals(1, page.size());
+		assertEquals(EntityType.CATEGORY, page.get(0).getEntityType());
+		assertEquals(2, page.get(0).getEntityId());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetLastChangeId() {
+		assertEquals(0, changeLogDAO.getLastChangeId("Jhon123"));
+		assertEquals(0, changeLogDAO.getLastChangeId("Jhon123", new Date()));
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 1, Operation.SAVE);
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 2, Operation.SAVE);
+		List<ChangeLogEntry> entries = changeLogDAO.getChangesSince("Jhon123", 0, 10);
+		assertEquals(entries.get(1).getChangeId(),
+				changeLogDAO.getLastChangeId("Jhon123", new Date(System.currentTimeMillis() + 60000)));
+		assertEquals(0, changeLogDAO.getLastChangeId("Jhon123", new Date(System.currentTimeMillis() - 60000)));
+		assertEquals(entries.get(1).getChangeId(), changeLogDAO.getLastChangeId("Jhon123"));
+		changeLogDAO.record("Jhon456", EntityType.NOTE, 3, Operation.SAVE);
+		assertEquals(entries.get(1).getChangeId(), changeLogDAO.getLastChangeId("Jhon123"));
+	}
+
+	@Test
+	public void testDeleteChangesByUserId() {
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 1, Operation.SAVE);
+		changeLogDAO.record("Jhon123", EntityType.NOTE, 2, Operation.SAVE);
+		changeLogDAO.record("Jhon123", EntityType.CATEGORY, 1, Operation.DELETE);
+		changeLogDAO.record("Jhon456", EntityType.NOTE, 3, Operation.SAVE);
+		assertEquals(2, changeLogDAO.deleteChangesByUserId("Jhon123", 2));
+		assertEquals(1, changeLogDAO.deleteChangesByUserId("Jhon123", 2));
+		assertEquals(0, changeLogDAO.deleteChangesByUserId("Jhon123", 2));
+		assertTrue(changeLogDAO.getChangesSince("Jhon123", 0, 10).isEmpty());
+		assertEquals(1, changeLogDAO.getChangesSince("Jhon456", 0, 10).size());
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -12,6 +13,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
@@ -24,7 +26,12 @@ import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.NoteDAOImpl;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFetchProfile;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncedNote;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -72,6 +79,19 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testCreateNoteIgnoresClientNoteId() throws NoteNotFoundException {
+
+		Note sameId = new Note(1, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		assertTrue(noteDAO.createNote(note));
+		assertTrue(noteDAO.createNote(sameId));
+		assertNotEquals(note.getNoteId(), sameId.getNoteId());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(sameId.getNoteId());
+
+	}
+
 	@Test
 	@Rollback(true)
 	public void testDeleteNoteSuccess() throws NoteNotFoundException {
@@ -97,6 +117,57 @@ public class NoteDAOImplTest {
 		noteDAO.deleteNote(note3.getNoteId());
 	}
 
+	@Test
+	@Rollback(true)
+	public void testGetAllNotesByUserIdReadOnly() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+		List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+		assertTrue(sessionFactory.getCurrentSession().isReadOnly(notes.get(0)));
+		notes.get(0).setNoteTitle("Not saved");
+		sessionFactory.getCurrentSession().flush();
+		sessionFactory.getCurrentSession().clear();
+		assertEquals("Testing-1", noteDAO.getNoteById(note.getNoteId()).getNoteTitle());
+		noteDAO.deleteNote(note.getNoteId());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetNoteSummariesByUserId() throws NoteNotFoundException {
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		sessionFactory.getCurrentSession().save(category);
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		List<NoteSummary> summaries = noteDAO.getNoteSummariesByUserId("Jhon123");
+		assertEquals(2, summaries.size());
+		assertEquals("Testing-1", summaries.get(0).getNoteTitle());
+		assertNull(summaries.get(0).getCategoryName());
+		assertEquals("Testing", summaries.get(1).getCategoryName());
+		assertNull(summaries.get(1).getReminderName());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetSyncedNotes() throws NoteNotFoundException {
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		sessionFactory.getCurrentSession().save(category);
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		assertEquals(2, noteDAO.getSyncedNotes("Jhon123", null).size());
+		List<SyncedNote> synced = noteDAO.getSyncedNotes("Jhon123", Arrays.asList(note2.getNoteId(), 999));
+		assertEquals(1, synced.size());
+		assertEquals("Testing Service layer", synced.get(0).getNoteContent());
+		assertEquals(Integer.valueOf(category.getCategoryId()), synced.get(0).getCategoryId());
+		assertNull(synced.get(0).getReminderId());
+		assertTrue(noteDAO.getSyncedNotes("Jhon456", Arrays.asList(note.getNoteId())).isEmpty());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+	}
+
 	@Test
 	@Rollback(true)
 	public void testGetNoteById() throws NoteNotFoundException {
@@ -108,6 +179,39 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testGetNoteByIdWithFetchProfile() throws NoteNotFoundException {
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		Reminder reminder = new Reminder(1, "Due", "Due date", "Urgent", "Jhon123", null, new Date());
+		sessionFactory.getCurrentSession().save(category);
+		sessionFactory.getCurrentSession().save(reminder);
+		note.setCategory(category);
+		note.setReminder(reminder);
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+
+		Note summary = noteDAO.getNoteById("Jhon123", note.getNoteId(), NoteFetchProfile.SUMMARY);
+		assertNull(summary.getCategory());
+		assertNull(summary.getReminder());
+		Note withCategory = noteDAO.getNoteById("Jhon123", note.getNoteId(), NoteFetchProfile.WITH_CATEGORY);
+		assertEquals(Category.class, withCategory.getCategory().getClass());
+		assertEquals("Testing", withCategory.getCategory().getCategoryName());
+		assertNull(withCategory.getReminder());
+		Note full = noteDAO.getAllNotesByUserId("Jhon123", NoteFetchProfile.FULL).get(0);
+		assertEquals("Testing", full.getCategory().getCategoryName());
+		assertEquals(Reminder.class, full.getReminder().getClass());
+		assertEquals("Due", full.getReminder().getReminderName());
+		noteDAO.deleteNote(note.getNoteId());
+	}
+
+	@Test(expected = NoteNotFoundException.class)
+	public void testGetNoteByIdWithFetchProfileOfOtherUser() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+		noteDAO.getNoteById("Jhon456", note.getNoteId(), NoteFetchProfile.FULL);
+	}
+
 	@Test(expected = NoteNotFoundException.class)
 	@Rollback(true)
 	public void testGetNoteByIdFailure() throws NoteNotFoundException {
@@ -135,4 +239,192 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testUpdateDetachedNote() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+		Note detached = new Note(note.getNoteId(), "Testing-1", "Updated without a read", "Active", new Date(), null,
+				null, "Jhon123");
+		assertEquals(true, noteDAO.UpdateNote(detached));
+		assertEquals("Updated without a read", noteDAO.getNoteById(note.getNoteId()).getNoteContent());
+		noteDAO.deleteNote(note.getNoteId());
+	}
+
+	@Test(expected = OptimisticLockingFailureException.class)
+	@Rollback(true)
+	public void testUpdateNoteWithStaleVersion() {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+		Note first = new Note(note.getNoteId(), "Testing-1", "First update", "Active", new Date(), null, null,
+				"Jhon123");
+		first.setVersion(0);
+		assertEquals(true, noteDAO.UpdateNote(first));
+		assertEquals(Integer.valueOf(1), first.getVersion());
+		Note second = new Note(note.getNoteId(), "Testing-1", "Second update", "Active", new Date(), null, null,
+				"Jhon123");
+		second.setVersion(0);
+		noteDAO.UpdateNote(second);
+	}
+
+	@Test
+	@Rollback(true)
+	public void testUpdateNoteOfOtherUser() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().clear();
+		Note other = new Note(note.getNoteId(), "Testing-1", "Overwritten", "Active", new Date(), null, null,
+				"Smith456");
+		assertEquals(false, noteDAO.UpdateNote(other));
+		other.setVersion(0);
+		assertEquals(false, noteDAO.UpdateNote(other));
+		Note stored = noteDAO.getNoteById(note.getNoteId());
+		assertEquals("Jhon123", stored.getCreatedBy());
+		assertEquals(note.getNoteContent(), stored.getNoteContent());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testUpdateMissingNote() {
+		assertEquals(false, noteDAO.UpdateNote(note));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetNotesByUserIdPage() throws NoteNotFoundException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.createNote(note3);
+		List<Note> firstPage = noteDAO.getNotesByUserId("Jhon123", 0, 2);
+		assertEquals(2, firstPage.size());
+		List<Note> secondPage = noteDAO.getNotesByUserId("Jhon123", firstPage.get(1).getNoteId(), 2);
+		assertEquals(1, secondPage.size());
+		assertEquals("Testing-3", secondPage.get(0).getNoteTitle());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+		noteDAO.deleteNote(note3.getNoteId());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testCreateNotes() throws NoteNotFoundException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		boolean status = noteDAO.createNotes(Arrays.asList(note, note2));
+		assertEquals(true, status);
+		List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+		assertEquals(2, notes.size());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+	}
+
+	@Test
+	public void testDeleteNotesByUserIdInChunks() throws NoteNotFoundException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.createNote(note3);
+		noteDAO.createNote(new Note(4, "Testing-4", "Testing Service layer", "Active", new Date(), null, null, "Jhon456"));
+		assertEquals(Arrays.asList(note.getNoteId(), note2.getNoteId()), noteDAO.deleteNotesByUserId("Jhon123", 2));
+		assertEquals(Arrays.asList(note3.getNoteId()), noteDAO.deleteNotesByUserId("Jhon123", 2));
+		assertTrue(noteDAO.deleteNotesByUserId("Jhon123", 2).isEmpty());
+		sessionFactory.getCurrentSession().clear();
+		assertTrue(noteDAO.getAllNotesByUserId("Jhon123").isEmpty());
+		assertEquals(1, noteDAO.getAllNotesByUserId("Jhon456").size());
+	}
+
+	@Test
+	public void testDetachNotesFromCategoryAndReminder() throws NoteNotFoundException {
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		Reminder reminder = new Reminder(1, "Due", "Due date", "Urgent", "Jhon123", null, new Date());
+		sessionFactory.getCurrentSession().save(category);
+		sessionFactory.getCurrentSession().save(reminder);
+		note.setCategory(category);
+		note.setReminder(reminder);
+		noteDAO.createNote(note);
+		noteDAO.createNote(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, null, "Jhon123"));
+		noteDAO.createNote(new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+		assertEquals(1, noteDAO.detachNotesFromCategory(category.getCategoryId(), 1));
+		assertEquals(1, noteDAO.detachNotesFromCategory(category.getCategoryId(), 1));
+		assertEquals(0, noteDAO.detachNotesFromCategory(category.getCategoryId(), 1));
+		assertEquals(1, noteDAO.detachNotesFromReminder(reminder.getReminderId(), 10));
+		sessionFactory.getCurrentSession().clear();
+		Note detached = noteDAO.getNoteById("Jhon123", note.getNoteId(), NoteFetchProfile.FULL);
+		assertNull(detached.getCategory());
+		assertNull(detached.getReminder());
+		assertEquals(Integer.valueOf(2), detached.getVersion());
+		assertEquals(3, noteDAO.getAllNotesByUserId("Jhon123").size());
+	}
+
+	@Test
+	public void testSoftDeleteNote() throws NoteNotFoundException {
+		((NoteDAOImpl) noteDAO).setSoftDelete(true);
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		sessionFactory.getCurrentSession().save(category);
+		note.setCategory(category);
+		noteDAO.createNote(note);
+		assertNull(noteDAO.getOldestDeletedDate());
+		assertTrue(noteDAO.deleteNote(note.getNoteId()));
+		try {
+			noteDAO.getNoteById(note.getNoteId());
+			fail();
+		} catch (NoteNotFoundException e) {
+		}
+		try {
+			noteDAO.deleteNote(note.getNoteId());
+			fail();
+		} catch (NoteNotFoundException e) {
+		}
+		sessionFactory.getCurrentSession().clear();
+		assertTrue(noteDAO.getAllNotesByUserId("Jhon123").isEmpty());
+		assertFalse(noteDAO.UpdateNote(note));
+		assertEquals(0, noteDAO.detachNotesFromCategory(category.getCategoryId(), 10));
+		assertNotNull(noteDAO.getOldestDeletedDate());
+	}
+
+	@Test
+	public void testDeleteNoteOfOtherUser() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		for (boolean softDelete : new boolean[] { false, true }) {
+			((NoteDAOImpl) noteDAO).setSoftDelete(softDelete);
+			try {
+				noteDAO.deleteNote("Smith456", note.getNoteId());
+				fail();
+			} catch (NoteNotFoundException e) {
+			}
+			sessionFactory.getCurrentSession().clear();
+			assertEquals("Jhon123", noteDAO.getNoteById(note.getNoteId()).getCreatedBy());
+		}
+		assertTrue(noteDAO.deleteNote("Jhon123", note.getNoteId()));
+	}
+
+	@Test
+	public void testPurgeDeletedNotes() throws NoteNotFoundException {
+		((NoteDAOImpl) noteDAO).setSoftDelete(true);
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNotes(Arrays.asList(note, note2, note3));
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+		Date now = new Date(System.currentTimeMillis() + 1000);
+		assertEquals(0, noteDAO.purgeDeletedNotes(new Date(now.getTime() - 60000), 10));
+		assertEquals(1, noteDAO.purgeDeletedNotes(now, 1));
+		assertEquals(1, noteDAO.purgeDeletedNotes(now, 1));
+		assertEquals(0, noteDAO.purgeDeletedNotes(now, 1));
+		assertNull(noteDAO.getOldestDeletedDate());
+		assertEquals(1, noteDAO.getAllNotesByUserId("Jhon123").size());
+	}
+
+	@Test
+	public void testDeleteNotesByUserIdRemovesTombstones() throws NoteNotFoundException {
+		((NoteDAOImpl) noteDAO).setSoftDelete(true);
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.deleteNote(note.getNoteId());
+		assertEquals(Arrays.asList(note.getNoteId(), note2.getNoteId()), noteDAO.deleteNotesByUserId("Jhon123", 10));
+		assertNull(noteDAO.getOldestDeletedDate());
+	}
+
 }
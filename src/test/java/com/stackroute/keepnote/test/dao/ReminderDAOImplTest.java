@@ -2,8 +2,10 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
@@ -26,6 +28,7 @@ import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.dao.ReminderDAOImpl;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.DueReminder;
 import com.stackroute.keepnote.model.Reminder;
 
 @RunWith(SpringRunner.class)
@@ -81,6 +84,28 @@ public class ReminderDAOImplTest {
 		assertEquals("email notification", savedReminder.getReminderDescription());
 	}
 
+	@Test
+	public void testUpdateDetachedReminder() throws ReminderNotFoundException {
+		reminderDAO.createReminder(reminder);
+		Reminder detached = new Reminder(reminder.getReminderId(), "Email", "email notification", "notification",
+				"Jhon123", null, new Date());
+		boolean status = reminderDAO.updateReminder(detached);
+		assertEquals(true, status);
+		sessionFactory.getCurrentSession().clear();
+		Reminder savedReminder = reminderDAO.getReminderById(reminder.getReminderId());
+		assertEquals("email notification", savedReminder.getReminderDescription());
+	}
+
+	@Test
+	public void testUpdateReminderOfOtherUser() throws ReminderNotFoundException {
+		reminderDAO.createReminder(reminder);
+		Reminder other = new Reminder(reminder.getReminderId(), "Email", "overwritten", "notification",
+				"Smith456", null, new Date());
+		assertEquals(false, reminderDAO.updateReminder(other));
+		sessionFactory.getCurrentSession().clear();
+		assertEquals("Jhon123", reminderDAO.getReminderById(reminder.getReminderId()).getReminderCreatedBy());
+	}
+
 	@Test
 	public void testDeleteReminderSuccess() throws ReminderNotFoundException {
 		reminderDAO.createReminder(reminder);
@@ -127,4 +152,73 @@ public class ReminderDAOImplTest {
 		assertEquals(3, allReminder.size());
 	}
 
+	private Reminder dueReminder(int reminderId, long dueMillis) {
+		Reminder due = new Reminder(reminderId, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		due.setDueDate(new Date(dueMillis));
+		return due;
+	}
+
+	@Test
+	public void testGetPendingReminders() {
+		long now = System.currentTimeMillis() / 1000 * 1000;
+		reminderDAO.createReminder(dueReminder(1, now - 60000));
+		reminderDAO.createReminder(dueReminder(2, now + 60000));
+		reminderDAO.createReminder(dueReminder(3, now + 60000));
+		reminderDAO.createReminder(dueReminder(4, now + 7200000));
+		reminderDAO.createReminder(reminder);
+		Date until = new Date(now + 3600000);
+		List<DueReminder> first = reminderDAO.getPendingReminders(null, 0, until, 2);
+		assertEquals(Arrays.asList(1, 2), ids(first));
+		DueReminder last = first.get(1);
+		List<DueReminder> second = reminderDAO.getPendingReminders(last.getDueDate(), last.getReminderId(), until, 2);
+		assertEquals(Arrays.asList(3), ids(second));
+		assertEquals(Arrays.asList(2, 3), ids(reminderDAO.getPendingReminders(new Date(now), Integer.MAX_VALUE, until, 10)));
+	}
+
+	@Test
+	public void testClaimReminders() {
+		long now = System.currentTimeMillis() / 1000 * 1000;
+		reminderDAO.createReminder(dueReminder(1, now - 60000));
+		reminderDAO.createReminder(dueReminder(2, now - 1000));
+		reminderDAO.createReminder(reminder = dueReminder(3, now + 60000));
+		List<DueReminder> due = reminderDAO.getDueReminders(Arrays.asList(1, 2, 3, 4));
+		assertEquals(Arrays.asList(1, 2, 3), ids(due));
+		assertTrue(due.get(0).getNoteIds().isEmpty());
+		assertEquals(Arrays.asList(1, 2), reminderDAO.claimReminders(Arrays.asList(1, 2, 3), new Date(now), "node-a"));
+		assertTrue(reminderDAO.claimReminders(Arrays.asList(1, 2), new Date(now), "node-b").isEmpty());
+		assertEquals(Arrays.asList(3), ids(reminderDAO.getDueReminders(Arrays.asList(1, 2, 3))));
+		assertEquals(0, reminderDAO.releaseReminders(Arrays.asList(1, 2), "node-b"));
+		assertEquals(1, reminderDAO.releaseReminders(Arrays.asList(2), "node-a"));
+		assertEquals(Arrays.asList(2), reminderDAO.claimReminders(Arrays.asList(1, 2), new Date(now), "node-b"));
+	}
+
+	@Test
+	public void testUpdateDueDateRearmsReminder() throws ReminderNotFoundException {
+		long now = System.currentTimeMillis() / 1000 * 1000;
+		reminderDAO.createReminder(dueReminder(1, now - 60000));
+		reminderDAO.claimReminders(Arrays.asList(1), new Date(now), "node-a");
+		sessionFactory.getCurrentSession().clear();
+		assertTrue(reminderDAO.updateReminder(dueReminder(1, now - 60000)));
+		assertTrue(reminderDAO.getDueReminders(Arrays.asList(1)).isEmpty());
+		assertTrue(reminderDAO.updateReminder(dueReminder(1, now + 60000)));
+		assertEquals(Arrays.asList(1), ids(reminderDAO.getDueReminders(Arrays.asList(1))));
+	}
+
+	private static List<Integer> ids(List<DueReminder> reminders) {
+		return reminders.stream().map(DueReminder::getReminderId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testDeleteRemindersByUserId() {
+		reminderDAO.createReminder(reminder);
+		reminderDAO.createReminder(new Reminder(2, "Email", "Email reminder", "notification", "Jhon123", null, new Date()));
+		reminderDAO.createReminder(new Reminder(3, "Email", "Email reminder", "notification", "Jhon456", null, new Date()));
+		assertEquals(1, reminderDAO.deleteRemindersByUserId("Jhon123", 1).size());
+		assertEquals(1, reminderDAO.deleteRemindersByUserId("Jhon123", 1).size());
+		assertTrue(reminderDAO.deleteRemindersByUserId("Jhon123", 1).isEmpty());
+		sessionFactory.getCurrentSession().clear();
+		assertTrue(reminderDAO.getAllReminderByUserId("Jhon123").isEmpty());
+		assertEquals(1, reminderDAO.getAllReminderByUserId("Jhon456").size());
+	}
+
 }
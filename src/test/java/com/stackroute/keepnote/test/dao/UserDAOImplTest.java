@@ -26,6 +26,8 @@ import com.stackroute.keepnote.dao.UserDAO;
 import com.stackroute.keepnote.dao.UserDaoImpl;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.CredentialCache;
+import com.stackroute.keepnote.security.PasswordHasher;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -111,6 +113,36 @@ public class UserDAOImplTest {
 
 	}
 
+	@Test
+	public void testValidateUserUpgradesPlaintextPassword() throws UserNotFoundException {
+
+		userDAO.registerUser(user);
+		PasswordHasher passwordHasher = new PasswordHasher(1000);
+		((UserDaoImpl) userDAO).setPasswordHasher(passwordHasher);
+		assertEquals(true, userDAO.validateUser("Jhon123", "123456"));
+		String stored = userDAO.getUserById("Jhon123").getUserPassword();
+		assertTrue(passwordHasher.isHashed(stored));
+		assertEquals(true, userDAO.validateUser("Jhon123", "123456"));
+		assertEquals(false, userDAO.validateUser("Jhon123", "654321"));
+
+	}
+
+	@Test
+	public void testCredentialsCachedUntilUserIsUpdated() throws UserNotFoundException {
+
+		userDAO.registerUser(user);
+		CredentialCache credentialCache = new CredentialCache(10, 300);
+		((UserDaoImpl) userDAO).setPasswordHasher(new PasswordHasher(1000));
+		((UserDaoImpl) userDAO).setCredentialCache(credentialCache);
+		userDAO.validateUser("Jhon123", "123456");
+		assertNotNull(credentialCache.get("Jhon123"));
+		User fetchedUser = userDAO.getUserById("Jhon123");
+		fetchedUser.setUserMobile("9000000000");
+		userDAO.updateUser(fetchedUser);
+		assertNull(credentialCache.get("Jhon123"));
+
+	}
+
 	@Test(expected = UserNotFoundException.class)
 	public void testValidateUserFailure() throws UserNotFoundException {
 
@@ -0,0 +1,96 @@
+package com.stackroute.keepnote.test.datasource;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.datasource.ReplicaRoutingDataSource;
+
+public class ReplicaRoutingDataSourceTest {
+
+	private JdbcTemplate replicaTemplate;
+	private MetricRegistry metricRegistry;
+	private ReplicaRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+		DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", "");
+		createOrigin(new JdbcTemplate(primary), "primary");
+		replicaTemplate = new JdbcTemplate(replica);
+		createOrigin(replicaTemplate, "replica");
+		replicaTemplate.execute("CREATE TABLE IF NOT EXISTS replica_lag (seconds INT)");
+		replicaTemplate.execute("DELETE FROM replica_lag");
+		replicaTemplate.execute("INSERT INTO replica_lag VALUES (0)");
+
+		metricRegistry = new MetricRegistry();
+		routingDataSource = new ReplicaRoutingDataSource(primary, Collections.singletonMap("r1", replica),
+				metricRegistry);
+		routingDataSource.setLagQuery("SELECT seconds FROM replica_lag");
+		routingDataSource.setMaxLagSeconds(5);
+		routingDataSource.setLagCheckIntervalMs(0);
+		routingDataSource.afterPropertiesSet();
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		routingDataSource.destroy();
+	}
+
+	@Test
+	public void testReadOnlyTransactionGoesToReplica() {
+		transactionTemplate.setReadOnly(true);
+		assertEquals("replica", queryOrigin());
+		assertEquals(1, metricRegistry.meter("datasource.route.r1").getCount());
+	}
+
+	@Test
+	public void testReadWriteTransactionGoesToPrimary() {
+		assertEquals("primary", queryOrigin());
+		assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM origin", String.class));
+		assertEquals(0, metricRegistry.meter("datasource.route.r1").getCount());
+	}
+
+	@Test
+	public void testLaggingReplicaFallsBackToPrimary() {
+		replicaTemplate.execute("UPDATE replica_lag SET seconds = 60");
+		routingDataSource.checkReplicas();
+		transactionTemplate.setReadOnly(true);
+		assertEquals("primary", queryOrigin());
+		assertEquals(1, metricRegistry.meter("datasource.route.fallback").getCount());
+
+		replicaTemplate.execute("UPDATE replica_lag SET seconds = 1");
+		routingDataSource.checkReplicas();
+		assertEquals("replica", queryOrigin());
+	}
+
+	private String queryOrigin() {
+		return transactionTemplate
+				.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM origin", String.class));
+	}
+
+	private static void createOrigin(JdbcTemplate template, String name) {
+		template.execute("CREATE TABLE IF NOT EXISTS origin (name VARCHAR(20))");
+		template.execute("DELETE FROM origin");
+		template.update("INSERT INTO origin VALUES (?)", name);
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.test.datasource;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.datasource.SchemaIndexCheck;
+import com.stackroute.keepnote.model.Note;
+
+public class SchemaIndexCheckTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private MetricRegistry metricRegistry;
+	private SchemaIndexCheck schemaIndexCheck;
+
+	@Before
+	public void setUp() {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:index-check;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS Note");
+		jdbcTemplate.execute("CREATE TABLE Note (note_id INT PRIMARY KEY, note_creator VARCHAR(255), "
+				+ "note_creation_date DATETIME, note_title VARCHAR(255), note_deleted_date DATETIME)");
+		jdbcTemplate.execute("CREATE INDEX idx_note_deleted_date ON Note (note_deleted_date)");
+		metricRegistry = new MetricRegistry();
+		schemaIndexCheck = new SchemaIndexCheck(dataSource, metricRegistry, Note.class);
+	}
+
+	@Test
+	public void testMissingIndexesAreReported() {
+		assertEquals(Arrays.asList("idx_note_creator_date", "idx_note_creator_id"), schemaIndexCheck.check());
+		assertEquals(2, metricRegistry.getGauges().get("schema.missing-indexes").getValue());
+	}
+
+	@Test
+	public void testIndexWithSameLeadingColumnsCounts() {
+		jdbcTemplate.execute("CREATE INDEX idx_note_creator_id ON Note (note_creator, note_id)");
+		jdbcTemplate.execute("CREATE INDEX other_name ON Note (note_creator, note_creation_date, note_title)");
+		assertEquals(Collections.emptyList(), schemaIndexCheck.check());
+		assertEquals(0, metricRegistry.getGauges().get("schema.missing-indexes").getValue());
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.stackroute.keepnote.test.datasource;
+
+import static org.junit.Assert.*;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+
+public class SchemaMigrationTest {
+
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:migration;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+	}
+
+	/*
+	 * The schema hbm2ddl.auto=update created from the entities before the
+	 * migrations, with note ids assigned by the clients.
+	 */
+	private void createPreMigrationSchema() {
+		jdbcTemplate.execute("create table User (user_id varchar(255) not null, user_added_date datetime, "
+				+ "user_mobile varchar(255), user_name varchar(255), user_password varchar(255), "
+				+ "primary key (user_id)) engine=InnoDB");
+		jdbcTemplate.execute("create table Category (category_id integer not null, category_creation_date datetime, "
+				+ "category_creator varchar(255), category_descr varchar(255), category_name varchar(255), "
+				+ "primary key (category_id)) engine=InnoDB");
+		jdbcTemplate.execute("create table Reminder (reminder_id integer not null, reminder_creation_date datetime, "
+				+ "reminder_creator varchar(255), reminder_descr varchar(255), reminder_name varchar(255), "
+				+ "reminder_type varchar(255), primary key (reminder_id)) engine=InnoDB");
+		jdbcTemplate.execute("create table Note (note_id integer not null, note_content varchar(255), "
+				+ "note_creation_date datetime, note_creator varchar(255), note_status varchar(255), "
+				+ "note_title varchar(255), category_id integer, reminder_id integer, primary key (note_id)) "
+				+ "engine=InnoDB");
+		jdbcTemplate.execute("alter table Note add constraint FK_note_category foreign key (category_id) "
+				+ "references Category (category_id)");
+		jdbcTemplate.execute("alter table Note add constraint FK_note_reminder foreign key (reminder_id) "
+				+ "references Reminder (reminder_id)");
+		jdbcTemplate.update("insert into Note (note_id, note_title, note_creator) values (3, 'Testing-3', 'Jhon123')");
+		jdbcTemplate.update("insert into Note (note_id, note_title, note_creator) values (7, 'Testing-7', 'Jhon123')");
+	}
+
+	@Test
+	public void testPreMigrationSchemaGetsNoteIdSequenceAfterExistingIds() {
+		createPreMigrationSchema();
+		ApplicationContextConfig.flyway(dataSource).migrate();
+		assertEquals(Long.valueOf(8), jdbcTemplate.queryForObject("select next_val from note_id_seq", Long.class));
+		assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("select count(*) from note_id_seq", Integer.class));
+		assertEquals(Integer.valueOf(0),
+				jdbcTemplate.queryForObject("select note_version from Note where note_id = 7", Integer.class));
+		assertNull(jdbcTemplate.queryForObject("select note_deleted_date from Note where note_id = 7",
+				java.util.Date.class));
+	}
+
+	@Test
+	public void testEmptyDatabaseStartsNoteIdsAtOne() {
+		ApplicationContextConfig.flyway(dataSource).migrate();
+		assertEquals(Long.valueOf(1), jdbcTemplate.queryForObject("select next_val from note_id_seq", Long.class));
+		assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("select count(*) from note_id_seq", Integer.class));
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.stackroute.keepnote.test.reminder;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.DueReminder;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.reminder.ReminderNotifier;
+import com.stackroute.keepnote.reminder.ReminderSchedule;
+import com.stackroute.keepnote.reminder.ReminderScheduler;
+
+public class ReminderSchedulerTest {
+
+	@Mock
+	ReminderDAO reminderDAO;
+	@Mock
+	ReminderNotifier reminderNotifier;
+	ReminderSchedule reminderSchedule;
+	ReminderScheduler reminderScheduler;
+	MetricRegistry metricRegistry;
+	private long now = 1_000_000_000L;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		metricRegistry = new MetricRegistry();
+		reminderSchedule = new ReminderSchedule(1000, 64, now);
+		reminderScheduler = new ReminderScheduler(reminderDAO, reminderSchedule, metricRegistry, false, 1000, 60, 2,
+				60);
+		reminderScheduler.setReminderNotifier(reminderNotifier);
+		when(reminderDAO.getPendingReminders(any(), anyInt(), any(), anyInt())).thenReturn(Collections.emptyList());
+		when(reminderDAO.claimReminders(any(), any(), anyString()))
+				.thenAnswer(invocation -> new ArrayList<>(invocation.<List<Integer>>getArgument(0)));
+	}
+
+	private DueReminder due(int reminderId, long dueMillis) {
+		return new DueReminder(reminderId, "Email", "notification", "Jhon123", new Date(dueMillis));
+	}
+
+	@Test
+	public void testLoadsWindowAndFiresDueReminders() {
+		DueReminder overdue = due(1, now - 5000);
+		DueReminder soon = due(2, now + 3000);
+		DueReminder later = due(3, now + 3000);
+		when(reminderDAO.getPendingReminders(isNull(), eq(Integer.MAX_VALUE), eq(new Date(now + 3600000)), eq(2)))
+				.thenReturn(Arrays.asList(overdue, soon));
+		when(reminderDAO.getPendingReminders(eq(soon.getDueDate()), eq(2), eq(new Date(now + 3600000)), eq(2)))
+				.thenReturn(Arrays.asList(later));
+		when(reminderDAO.getDueReminders(Arrays.asList(1))).thenReturn(Arrays.asList(overdue));
+		when(reminderDAO.getDueReminders(Arrays.asList(2, 3))).thenReturn(Arrays.asList(soon, later));
+
+		assertEquals(0, reminderScheduler.tick(now));
+		assertEquals(1, reminderScheduler.tick(now + 1000));
+		verify(reminderNotifier).notify(Arrays.asList(overdue));
+		verify(reminderDAO).claimReminders(eq(Arrays.asList(1)), eq(new Date(now + 1000)), anyString());
+		assertEquals(2, reminderSchedule.size());
+
+		assertEquals(0, reminderScheduler.tick(now + 2000));
+		assertEquals(2, reminderScheduler.tick(now + 3000));
+		verify(reminderNotifier).notify(Arrays.asList(soon, later));
+		assertEquals(0, reminderSchedule.size());
+		assertEquals(3, metricRegistry.meter("reminders.fired").getCount());
+	}
+
+	@Test
+	public void testWrittenReminderInsideWindowIsScheduled() {
+		reminderScheduler.tick(now);
+		Reminder reminder = new Reminder(5, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		reminder.setDueDate(new Date(now + 10000));
+		reminderSchedule.schedule(reminder);
+		reminder.setDueDate(new Date(now + 7200000));
+		Reminder moved = new Reminder(6, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		moved.setDueDate(new Date(now + 10000));
+		reminderSchedule.schedule(moved);
+		moved.setDueDate(new Date(now + 7200000));
+		reminderSchedule.schedule(moved);
+		assertEquals(1, reminderSchedule.size());
+
+		DueReminder stored = due(5, now + 10000);
+		when(reminderDAO.getDueReminders(Arrays.asList(5))).thenReturn(Arrays.asList(stored));
+		assertEquals(1, reminderScheduler.tick(now + 10000));
+		verify(reminderNotifier).notify(Arrays.asList(stored));
+	}
+
+	@Test
+	public void testSkipsRemindersNoLongerDue() {
+		reminderScheduler.tick(now);
+		reminderSchedule.schedule(1, new Date(now + 1000));
+		reminderSchedule.schedule(2, new Date(now + 1000));
+		DueReminder postponed = due(2, now + 5000);
+		when(reminderDAO.getDueReminders(Arrays.asList(1, 2))).thenReturn(Arrays.asList(postponed));
+		assertEquals(0, reminderScheduler.tick(now + 1000));
+		verify(reminderNotifier, never()).notify(any());
+		assertEquals(1, reminderSchedule.size());
+	}
+
+	@Test
+	public void testSkipsRemindersClaimedByAnotherNode() {
+		reminderScheduler.tick(now);
+		reminderSchedule.schedule(1, new Date(now + 1000));
+		reminderSchedule.schedule(2, new Date(now + 1000));
+		DueReminder first = due(1, now + 1000);
+		DueReminder second = due(2, now + 1000);
+		when(reminderDAO.getDueReminders(Arrays.asList(1, 2))).thenReturn(Arrays.asList(first, second));
+		doReturn(Arrays.asList(2)).when(reminderDAO)
+				.claimReminders(eq(Arrays.asList(1, 2)), eq(new Date(now + 1000)), anyString());
+		assertEquals(1, reminderScheduler.tick(now + 1000));
+		verify(reminderNotifier).notify(Arrays.asList(second));
+		assertEquals(0, reminderSchedule.size());
+	}
+
+	@Test
+	public void testFailedBatchIsRetried() {
+		reminderScheduler.tick(now);
+		reminderSchedule.schedule(1, new Date(now + 1000));
+		DueReminder reminder = due(1, now + 1000);
+		when(reminderDAO.getDueReminders(Arrays.asList(1))).thenReturn(Arrays.asList(reminder));
+		List<List<DueReminder>> notified = new ArrayList<>();
+		doThrow(new IllegalStateException("mail server down")).doAnswer(invocation -> {
+			notified.add(invocation.getArgument(0));
+			return null;
+		}).when(reminderNotifier).notify(any());
+
+		assertEquals(0, reminderScheduler.tick(now + 1000));
+		verify(reminderDAO).releaseReminders(eq(Collections.singleton(1)), anyString());
+		assertEquals(1, metricRegistry.meter("reminders.notify-failures").getCount());
+		assertEquals(0, reminderScheduler.tick(now + 60000));
+		assertEquals(1, reminderScheduler.tick(now + 61000));
+		assertEquals(Arrays.asList(Arrays.asList(reminder)), notified);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.test.reminder;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.stackroute.keepnote.reminder.TimingWheel;
+
+public class TimingWheelTest {
+
+	private List<Integer> advance(TimingWheel<Integer> wheel, long tick) {
+		List<Integer> expired = new ArrayList<>();
+		wheel.advance(tick, expired);
+		return expired;
+	}
+
+	@Test
+	public void testExpiresAtDeadline() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(4, 3, 100);
+		wheel.add(1, 103);
+		wheel.add(2, 100 + 4 * 4 + 2);
+		wheel.add(3, 100 + 4 * 4 * 4 - 1);
+		assertEquals(3, wheel.size());
+		assertTrue(advance(wheel, 102).isEmpty());
+		assertEquals(Arrays.asList(1), advance(wheel, 103));
+		assertTrue(advance(wheel, 117).isEmpty());
+		assertEquals(Arrays.asList(2), advance(wheel, 118));
+		assertTrue(advance(wheel, 162).isEmpty());
+		assertEquals(Arrays.asList(3), advance(wheel, 163));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testPastDeadlineExpiresOnNextTick() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(4, 2, 100);
+		wheel.add(1, 50);
+		assertEquals(Arrays.asList(1), advance(wheel, 101));
+	}
+
+	@Test
+	public void testDeadlineBeyondTopLevel() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(4, 2, 0);
+		wheel.add(1, 1000);
+		assertTrue(advance(wheel, 999).isEmpty());
+		assertEquals(Arrays.asList(1), advance(wheel, 1000));
+	}
+
+	@Test
+	public void testCancel() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(4, 3, 0);
+		TimingWheel.Timeout<Integer> cancelled = wheel.add(1, 20);
+		wheel.add(2, 20);
+		assertTrue(wheel.cancel(cancelled));
+		assertFalse(wheel.cancel(cancelled));
+		assertFalse(cancelled.isPending());
+		assertEquals(Arrays.asList(2), advance(wheel, 20));
+	}
+
+	@Test
+	public void testRandomDeadlines() {
+		TimingWheel<Integer> wheel = new TimingWheel<>(8, 3, 0);
+		Random random = new Random(42);
+		int[] deadlines = new int[2000];
+		for (int i = 0; i < deadlines.length; i++) {
+			deadlines[i] = 1 + random.nextInt(1500);
+			wheel.add(i, deadlines[i]);
+		}
+		for (long tick = 1; tick <= 1500; tick++) {
+			for (int value : advance(wheel, tick)) {
+				assertEquals(tick, deadlines[value]);
+			}
+		}
+		assertEquals(0, wheel.size());
+	}
+
+}
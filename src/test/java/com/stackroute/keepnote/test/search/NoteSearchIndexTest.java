@@ -0,0 +1,75 @@
+package com.stackroute.keepnote.test.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteSearchHit;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+
+public class NoteSearchIndexTest {
+
+	private NoteSearchIndex index;
+
+	@Before
+	public void setUp() {
+		index = new NoteSearchIndex();
+		index.index(new Note(1, "Spring testing", "Testing controllers with MockMvc", "Active", new Date(), null, null, "Jhon123"));
+		index.index(new Note(2, "Groceries", "Milk, bread and spring onions", "Active", new Date(), null, null, "Jhon123"));
+		index.index(new Note(3, "Hibernate", "Second level cache regions", "Active", new Date(), null, null, "Jhon123"));
+		index.index(new Note(4, "Spring boot", "Not my note", "Active", new Date(), null, null, "Smith456"));
+	}
+
+	@Test
+	public void testSearchRanksTitleMatchFirst() {
+		List<NoteSearchHit> hits = index.search("Jhon123", "spring", 10);
+		assertEquals(2, hits.size());
+		assertEquals(1, hits.get(0).getNoteId());
+		assertEquals(2, hits.get(1).getNoteId());
+		assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+	}
+
+	@Test
+	public void testSearchOnlyReturnsNotesOfUser() {
+		List<NoteSearchHit> hits = index.search("Smith456", "spring", 10);
+		assertEquals(1, hits.size());
+		assertEquals(4, hits.get(0).getNoteId());
+		assertTrue(index.search("Unknown", "spring", 10).isEmpty());
+	}
+
+	@Test
+	public void testPrefixSearch() {
+		List<NoteSearchHit> hits = index.search("Jhon123", "hiber*", 10);
+		assertEquals(1, hits.size());
+		assertEquals("Hibernate", hits.get(0).getNoteTitle());
+		assertTrue(index.search("Jhon123", "hiber", 10).isEmpty());
+	}
+
+	@Test
+	public void testSearchLimit() {
+		assertEquals(1, index.search("Jhon123", "spring", 1).size());
+	}
+
+	@Test
+	public void testReindexReplacesPreviousVersion() {
+		index.index(new Note(3, "Hibernate", "Query cache", "Active", new Date(), null, null, "Jhon123"));
+		assertTrue(index.search("Jhon123", "regions", 10).isEmpty());
+		assertEquals(1, index.search("Jhon123", "query", 10).size());
+		assertEquals(4, index.size());
+	}
+
+	@Test
+	public void testRemove() {
+		index.remove(1);
+		List<NoteSearchHit> hits = index.search("Jhon123", "spring", 10);
+		assertEquals(1, hits.size());
+		assertEquals(2, hits.get(0).getNoteId());
+		assertEquals(3, index.size());
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.stackroute.keepnote.test.security;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.security.AuthTokenService;
+
+public class AuthTokenServiceTest {
+
+	private AuthTokenService authTokenService;
+
+	@Before
+	public void setUp() {
+		authTokenService = new AuthTokenService("token", "test-secret-test-secret-test-secret", 3600, 100);
+	}
+
+	@Test
+	public void testIssueAndVerifyToken() {
+		String token = authTokenService.issueToken("Jhon123");
+		assertEquals("Jhon123", authTokenService.verifyToken(token));
+		assertEquals("Jhon123", authTokenService.verifyToken(token));
+	}
+
+	@Test
+	public void testVerifyTamperedToken() {
+		String token = authTokenService.issueToken("Jhon123");
+		// not the last character: its low bits may be padding and decode unchanged
+		int at = token.length() - 5;
+		String tampered = token.substring(0, at) + (token.charAt(at) == 'A' ? 'B' : 'A') + token.substring(at + 1);
+		assertNull(authTokenService.verifyToken(tampered));
+		assertNull(authTokenService.verifyToken("not-a-token"));
+		assertNull(authTokenService.verifyToken(null));
+	}
+
+	@Test
+	public void testVerifyTokenOfOtherSecret() {
+		AuthTokenService otherNode = new AuthTokenService("token", "another-secret", 3600, 100);
+		assertNull(otherNode.verifyToken(authTokenService.issueToken("Jhon123")));
+	}
+
+	@Test
+	public void testVerifyExpiredToken() {
+		AuthTokenService expiring = new AuthTokenService("token", "test-secret", -1, 100);
+		assertNull(expiring.verifyToken(expiring.issueToken("Jhon123")));
+	}
+
+	@Test
+	public void testMode() {
+		assertTrue(authTokenService.isTokenMode());
+		assertFalse(new AuthTokenService("session", "", 3600, 100).isTokenMode());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTokenModeWithoutSecret() {
+		new AuthTokenService("token", " ", 3600, 100);
+	}
+
+}
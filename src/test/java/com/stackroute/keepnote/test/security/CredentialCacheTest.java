@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.test.security;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.stackroute.keepnote.security.CredentialCache;
+
+public class CredentialCacheTest {
+
+	@Test
+	public void testPutGetAndEvict() {
+		CredentialCache credentialCache = new CredentialCache(10, 300);
+		credentialCache.put("Jhon123", "hash-1");
+		assertEquals("hash-1", credentialCache.get("Jhon123"));
+		credentialCache.evict("Jhon123");
+		assertNull(credentialCache.get("Jhon123"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntryIsDropped() {
+		CredentialCache credentialCache = new CredentialCache(2, 300);
+		credentialCache.put("Jhon123", "hash-1");
+		credentialCache.put("Smith456", "hash-2");
+		credentialCache.get("Jhon123");
+		credentialCache.put("George3706", "hash-3");
+		assertEquals(2, credentialCache.size());
+		assertEquals("hash-1", credentialCache.get("Jhon123"));
+		assertNull(credentialCache.get("Smith456"));
+	}
+
+	@Test
+	public void testExpiredEntryIsNotReturned() {
+		CredentialCache credentialCache = new CredentialCache(10, 0);
+		credentialCache.put("Jhon123", "hash-1");
+		assertNull(credentialCache.get("Jhon123"));
+		assertEquals(0, credentialCache.size());
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.stackroute.keepnote.test.security;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.security.PasswordHasher;
+
+public class PasswordHasherTest {
+
+	private PasswordHasher passwordHasher;
+
+	@Before
+	public void setUp() {
+		passwordHasher = new PasswordHasher(1000);
+	}
+
+	@Test
+	public void testHashAndMatch() {
+		String stored = passwordHasher.hash("123456");
+		assertTrue(passwordHasher.isHashed(stored));
+		assertTrue(passwordHasher.matches("123456", stored));
+		assertFalse(passwordHasher.matches("654321", stored));
+		assertNotEquals(stored, passwordHasher.hash("123456"));
+	}
+
+	@Test
+	public void testMatchPlaintextPassword() {
+		assertTrue(passwordHasher.matches("123456", "123456"));
+		assertFalse(passwordHasher.matches("123456", "654321"));
+		assertTrue(passwordHasher.needsRehash("123456"));
+	}
+
+	@Test
+	public void testNeedsRehashWhenIterationsAreRaised() {
+		String stored = passwordHasher.hash("123456");
+		assertFalse(passwordHasher.needsRehash(stored));
+		PasswordHasher stronger = new PasswordHasher(2000);
+		assertTrue(stronger.needsRehash(stored));
+		assertTrue(stronger.matches("123456", stored));
+	}
+
+}
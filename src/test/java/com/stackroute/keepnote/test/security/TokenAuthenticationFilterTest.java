@@ -0,0 +1,56 @@
+package com.stackroute.keepnote.test.security;
+
+import static org.junit.Assert.*;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.security.AuthTokenService;
+import com.stackroute.keepnote.security.TokenAuthenticationFilter;
+
+public class TokenAuthenticationFilterTest {
+
+	private AuthTokenService authTokenService;
+	private TokenAuthenticationFilter filter;
+	private MockHttpServletRequest request;
+	private MockFilterChain chain;
+
+	@Before
+	public void setUp() {
+		authTokenService = new AuthTokenService("token", "test-secret-test-secret-test-secret", 3600, 100);
+		filter = new TokenAuthenticationFilter(authTokenService);
+		request = new MockHttpServletRequest("GET", "/note");
+		chain = new MockFilterChain();
+	}
+
+	@Test
+	public void testValidTokenSetsLoggedInUser() throws Exception {
+		request.addHeader("Authorization", "Bearer " + authTokenService.issueToken("Jhon123"));
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+		HttpServletRequest filtered = (HttpServletRequest) chain.getRequest();
+		assertEquals("Jhon123", filtered.getSession().getAttribute(TokenAuthenticationFilter.LOGGEDIN_USERID));
+		assertNull(request.getSession(false));
+	}
+
+	@Test
+	public void testInvalidTokenLeavesUserLoggedOut() throws Exception {
+		request.addHeader("Authorization", "Bearer invalid");
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+		HttpServletRequest filtered = (HttpServletRequest) chain.getRequest();
+		assertNull(filtered.getSession().getAttribute(TokenAuthenticationFilter.LOGGEDIN_USERID));
+		assertNull(request.getSession(false));
+	}
+
+	@Test
+	public void testSessionModePassesRequestThrough() throws Exception {
+		filter = new TokenAuthenticationFilter(new AuthTokenService("session", "", 3600, 100));
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+		assertSame(request, chain.getRequest());
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.service.BulkDeleteServiceImpl;
+
+public class BulkDeleteServiceImplTest {
+
+	@Mock
+	NoteDAO noteDAO;
+	@Mock
+	CategoryDAO categoryDAO;
+	@Mock
+	ReminderDAO reminderDAO;
+	@Mock
+	ChangeLogDAO changeLogDAO;
+	BulkDeleteServiceImpl bulkDeleteServiceImpl;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		bulkDeleteServiceImpl = new BulkDeleteServiceImpl(noteDAO, categoryDAO, reminderDAO, changeLogDAO, 2);
+	}
+
+	@Test
+	public void testDeleteUserDataInChunks() {
+		when(noteDAO.deleteNotesByUserId("Jhon123", 2)).thenReturn(Arrays.asList(1, 2), Arrays.asList(3, 4),
+				Arrays.asList(5));
+		when(categoryDAO.deleteCategoriesByUserId("Jhon123", 2)).thenReturn(Arrays.asList(1, 2),
+				Collections.emptyList());
+		when(reminderDAO.deleteRemindersByUserId("Jhon123", 2)).thenReturn(Arrays.asList(1));
+		when(changeLogDAO.deleteChangesByUserId("Jhon123", 2)).thenReturn(2, 0);
+
+		assertEquals(10, bulkDeleteServiceImpl.deleteUserData("Jhon123"));
+		InOrder order = inOrder(noteDAO, categoryDAO, reminderDAO, changeLogDAO);
+		order.verify(noteDAO, times(3)).deleteNotesByUserId("Jhon123", 2);
+		order.verify(categoryDAO, times(2)).deleteCategoriesByUserId("Jhon123", 2);
+		order.verify(reminderDAO, times(1)).deleteRemindersByUserId("Jhon123", 2);
+		order.verify(changeLogDAO, times(2)).deleteChangesByUserId("Jhon123", 2);
+	}
+
+	@Test
+	public void testDetachCategoryNotes() {
+		when(noteDAO.detachNotesFromCategory(1, 2)).thenReturn(2, 1);
+		assertEquals(3, bulkDeleteServiceImpl.detachCategoryNotes(1));
+		verify(noteDAO, times(2)).detachNotesFromCategory(1, 2);
+	}
+
+	@Test
+	public void testDetachReminderNotes() {
+		when(noteDAO.detachNotesFromReminder(1, 2)).thenReturn(0);
+		assertEquals(0, bulkDeleteServiceImpl.detachReminderNotes(1));
+		verify(noteDAO, times(1)).detachNotesFromReminder(1, 2);
+	}
+
+}
@@ -88,6 +88,13 @@ public class CategoryServiceImplTest {
 
 	}
 
+	@Test(expected = CategoryNotFoundException.class)
+	public void testUpdateCategoryOfOtherUserFailure() throws CategoryNotFoundException {
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(categoryDAO.updateCategory(category)).thenReturn(false);
+		categoryServiceImpl.updateCategory(category, 1);
+	}
+
 	@Test
 	public void testGetCategoryByIdSuccess() throws CategoryNotFoundException {
 
@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.service.NoteCompactor;
+import com.stackroute.keepnote.web.HandlerExecutor;
+
+public class NoteCompactorTest {
+
+	@Mock
+	NoteDAO noteDAO;
+	@Mock
+	HandlerExecutor handlerExecutor;
+	MetricRegistry metricRegistry;
+	NoteCompactor noteCompactor;
+	private long now = 1_000_000_000L;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		metricRegistry = new MetricRegistry();
+		noteCompactor = new NoteCompactor(noteDAO, handlerExecutor, metricRegistry, false, 60, 300, 2, 1);
+	}
+
+	@Test
+	public void testPurgesInBatchesUntilShortBatch() {
+		when(noteDAO.purgeDeletedNotes(new Date(now - 300000), 2)).thenReturn(2, 2, 1);
+		when(noteDAO.getOldestDeletedDate()).thenReturn(new Date(now - 60000));
+		assertEquals(5, noteCompactor.compact(now));
+		verify(noteDAO, times(3)).purgeDeletedNotes(new Date(now - 300000), 2);
+		assertEquals(5, metricRegistry.meter("notes.compactor.purged").getCount());
+		assertEquals(60L, metricRegistry.getGauges().get("notes.compactor.lag-seconds").getValue());
+	}
+
+	@Test
+	public void testDefersUnderLoad() {
+		when(noteDAO.purgeDeletedNotes(any(), anyInt())).thenReturn(2);
+		when(handlerExecutor.getInFlight()).thenReturn(0, 2);
+		when(noteDAO.getOldestDeletedDate()).thenReturn(new Date(now - 600000));
+		assertEquals(2, noteCompactor.compact(now));
+		verify(noteDAO, times(1)).purgeDeletedNotes(any(), anyInt());
+		assertEquals(1, metricRegistry.meter("notes.compactor.deferred").getCount());
+		assertEquals(600000L, noteCompactor.getLagMillis());
+	}
+
+	@Test
+	public void testDefersBeforeFirstBatch() {
+		when(handlerExecutor.getInFlight()).thenReturn(5);
+		assertEquals(0, noteCompactor.compact(now));
+		verify(noteDAO, never()).purgeDeletedNotes(any(), anyInt());
+		assertEquals(0L, noteCompactor.getLagMillis());
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteSearchHit;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.service.NoteSearchServiceImpl;
+
+public class NoteSearchServiceImplTest {
+
+	@Mock
+	private NoteDAO noteDAO;
+
+	private NoteSearchIndex noteSearchIndex;
+
+	private NoteSearchServiceImpl noteSearchServiceImpl;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		noteSearchIndex = new NoteSearchIndex();
+		noteSearchServiceImpl = new NoteSearchServiceImpl(noteDAO, noteSearchIndex);
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(0);
+			consumer.accept(new Note(1, "Testing", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+			consumer.accept(new Note(2, "Shopping", "Buy milk", "Active", new Date(), null, null, "Jhon123"));
+			return null;
+		}).when(noteDAO).streamAllNotes(any(Consumer.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRebuildIndex() {
+		int indexed = noteSearchServiceImpl.rebuildIndex();
+		assertEquals(2, indexed);
+		assertEquals(2, noteSearchIndex.size());
+		verify(noteDAO, times(1)).streamAllNotes(any(Consumer.class));
+	}
+
+	@Test
+	public void testSearchNotes() {
+		noteSearchServiceImpl.rebuildIndex();
+		List<NoteSearchHit> hits = noteSearchServiceImpl.searchNotes("Jhon123", "milk", 0);
+		assertEquals(1, hits.size());
+		assertEquals(2, hits.get(0).getNoteId());
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,6 +22,8 @@ import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.service.NoteServiceImpl;
 
@@ -120,6 +123,31 @@ public class NoteServiceImplTest {
 
 	}
 
+	@Test
+	public void testCreateNotesSuccess() throws ReminderNotFoundException, CategoryNotFoundException {
+		notes.add(note);
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123"));
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(noteDAO.createNotes(notes)).thenReturn(true);
+		int created = noteServiceImpl.createNotes(notes);
+		assertEquals(2, created);
+		verify(noteDAO, times(1)).createNotes(notes);
+		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
+		verify(reminderDAO, times(1)).getReminderById(reminder.getReminderId());
+
+	}
+
+	@Test
+	public void testCreateNotesFailure() throws ReminderNotFoundException, CategoryNotFoundException {
+		notes.add(note);
+		when(noteDAO.createNotes(notes)).thenReturn(false);
+		int created = noteServiceImpl.createNotes(notes);
+		assertEquals(0, created);
+		verify(noteDAO, times(1)).createNotes(notes);
+
+	}
+
 	@Test
 	public void testDeleteNoteSuccess() throws NoteNotFoundException {
 		when(noteDAO.deleteNote(1)).thenReturn(true);
@@ -153,6 +181,17 @@ public class NoteServiceImplTest {
 
 	}
 
+	@Test
+	public void testGetNoteSummariesByUserId() {
+
+		List<NoteSummary> summaries = new ArrayList<NoteSummary>();
+		summaries.add(new NoteSummary(1, "Testing-1", "Active", new Date(), 1, "Testing", null, null));
+		when(noteDAO.getNoteSummariesByUserId("Jhon123")).thenReturn(summaries);
+		assertEquals(summaries, noteServiceImpl.getNoteSummariesByUserId("Jhon123"));
+		verify(noteDAO, times(1)).getNoteSummariesByUserId("Jhon123");
+
+	}
+
 	@Test
 	public void testGetNoteByIdSuccess() throws NoteNotFoundException {
 		when(noteDAO.getNoteById(note.getNoteId())).thenReturn(note);
@@ -177,12 +216,11 @@ public class NoteServiceImplTest {
 		note.setNoteContent("Testing updateNote()");
 		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
-		when(noteDAO.getNoteById(1)).thenReturn(note);
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -195,12 +233,11 @@ public class NoteServiceImplTest {
 		note.setReminder(null);
 		when(reminderDAO.getReminderById(1)).thenReturn(null);
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
-		when(noteDAO.getNoteById(1)).thenReturn(note);
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -213,11 +250,10 @@ public class NoteServiceImplTest {
 		note.setCategory(null);
 		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
 		when(categoryDAO.getCategoryById(1)).thenReturn(null);
-		when(noteDAO.getNoteById(1)).thenReturn(note);
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -231,11 +267,10 @@ public class NoteServiceImplTest {
 		note.setCategory(null);
 		when(reminderDAO.getReminderById(1)).thenReturn(null);
 		when(categoryDAO.getCategoryById(1)).thenReturn(null);
-		when(noteDAO.getNoteById(1)).thenReturn(note);
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -247,11 +282,36 @@ public class NoteServiceImplTest {
 		note.setNoteContent("Testing updateNote()");
 		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
-		when(noteDAO.getNoteById(1)).thenThrow(NoteNotFoundException.class);
-		when(noteDAO.UpdateNote(note)).thenReturn(true);
+		when(noteDAO.UpdateNote(note)).thenReturn(false);
 		@SuppressWarnings("unused")
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 
 	}
 
+	@Test
+	public void testGetNotesByUserIdFullPage() {
+
+		notes.add(note);
+		note = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123");
+		notes.add(note);
+		when(noteDAO.getNotesByUserId("Jhon123", 0, 2)).thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", 0, 2);
+		assertEquals(2, page.getNotes().size());
+		assertEquals(Integer.valueOf(2), page.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", 0, 2);
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdLastPage() {
+
+		notes.add(note);
+		when(noteDAO.getNotesByUserId("Jhon123", 0, NoteServiceImpl.MAX_PAGE_SIZE)).thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", 0, 100000);
+		assertEquals(1, page.getNotes().size());
+		assertNull(page.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", 0, NoteServiceImpl.MAX_PAGE_SIZE);
+
+	}
+
 }
@@ -0,0 +1,108 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ChangeLogEntry;
+import com.stackroute.keepnote.model.ChangeLogEntry.EntityType;
+import com.stackroute.keepnote.model.ChangeLogEntry.Operation;
+import com.stackroute.keepnote.model.SyncBatch;
+import com.stackroute.keepnote.model.SyncedNote;
+import com.stackroute.keepnote.service.SyncServiceImpl;
+
+public class SyncServiceImplTest {
+
+	@Mock
+	ChangeLogDAO changeLogDAO;
+	@Mock
+	NoteDAO noteDAO;
+	@Mock
+	CategoryDAO categoryDAO;
+	@Mock
+	ReminderDAO reminderDAO;
+	SyncServiceImpl syncServiceImpl;
+	private Date old = new Date(System.currentTimeMillis() - 60000);
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		syncServiceImpl = new SyncServiceImpl(changeLogDAO, noteDAO, categoryDAO, reminderDAO, 1000);
+	}
+
+	private ChangeLogEntry entry(long changeId, EntityType entityType, int entityId, Operation operation,
+			Date changedAt) {
+		ChangeLogEntry entry = new ChangeLogEntry("Jhon123", entityType, entityId, operation, changedAt);
+		entry.setChangeId(changeId);
+		return entry;
+	}
+
+	@Test
+	public void testSnapshotWithoutToken() {
+		SyncedNote note = new SyncedNote(1, "Testing-1", "Testing sync", "Active", old, null, null, 0);
+		Category category = new Category(1, "Testing", "All about testing", old, "Jhon123", null);
+		when(changeLogDAO.getLastChangeId(eq("Jhon123"), any(Date.class))).thenReturn(40L);
+		when(noteDAO.getSyncedNotes("Jhon123", null)).thenReturn(Arrays.asList(note));
+		when(categoryDAO.getAllCategoryByUserId("Jhon123")).thenReturn(Arrays.asList(category));
+		SyncBatch batch = syncServiceImpl.getChanges("Jhon123", null, 500);
+		assertEquals(Long.toString(40, 36), batch.getToken());
+		assertFalse(batch.isHasMore());
+		assertEquals(Arrays.asList(note), batch.getNotes());
+		assertEquals(Arrays.asList(category), batch.getCategories());
+		assertTrue(batch.getReminders().isEmpty());
+	}
+
+	@Test
+	public void testChangesAreCollapsedPerEntity() {
+		List<ChangeLogEntry> entries = Arrays.asList(entry(11, EntityType.NOTE, 1, Operation.SAVE, old),
+				entry(12, EntityType.NOTE, 2, Operation.SAVE, old),
+				entry(13, EntityType.NOTE, 1, Operation.DELETE, old),
+				entry(14, EntityType.CATEGORY, 5, Operation.DELETE, old),
+				entry(15, EntityType.NOTE, 2, Operation.SAVE, old));
+		SyncedNote note = new SyncedNote(2, "Testing-2", "Testing sync", "Active", old, null, null, 1);
+		when(changeLogDAO.getChangesSince("Jhon123", 10, 501)).thenReturn(entries);
+		when(noteDAO.getSyncedNotes("Jhon123", Arrays.asList(2))).thenReturn(Arrays.asList(note));
+		SyncBatch batch = syncServiceImpl.getChanges("Jhon123", Long.toString(10, 36), 500);
+		assertEquals(Long.toString(15, 36), batch.getToken());
+		assertFalse(batch.isHasMore());
+		assertEquals(Arrays.asList(note), batch.getNotes());
+		assertEquals(Arrays.asList(1), batch.getDeletedNotes());
+		assertEquals(Arrays.asList(5), batch.getDeletedCategories());
+		verify(categoryDAO).getCategoriesByIds("Jhon123", Collections.emptyList());
+	}
+
+	@Test
+	public void testTokenStopsBeforeUnsettledChanges() {
+		List<ChangeLogEntry> entries = Arrays.asList(entry(11, EntityType.REMINDER, 1, Operation.DELETE, old),
+				entry(12, EntityType.REMINDER, 2, Operation.DELETE, new Date()),
+				entry(13, EntityType.REMINDER, 3, Operation.DELETE, old));
+		when(changeLogDAO.getChangesSince("Jhon123", 10, 3)).thenReturn(entries);
+		SyncBatch batch = syncServiceImpl.getChanges("Jhon123", Long.toString(10, 36), 2);
+		assertEquals(Long.toString(11, 36), batch.getToken());
+		assertTrue(batch.isHasMore());
+		assertEquals(Arrays.asList(1, 2), batch.getDeletedReminders());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidToken() {
+		syncServiceImpl.getChanges("Jhon123", "not a token", 500);
+	}
+
+}
@@ -1,23 +1,35 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.exception.LoginUnavailableException;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.security.CredentialCache;
+import com.stackroute.keepnote.security.PasswordHasher;
+import com.stackroute.keepnote.service.BulkDeleteService;
 import com.stackroute.keepnote.service.UserServiceImpl;
 
 public class UserServiceImplTest {
@@ -116,6 +128,82 @@ public class UserServiceImplTest {
 
 	}
 
+	@Test
+	public void testRegisterUserHashesPassword() throws UserAlreadyExistException {
+
+		PasswordHasher passwordHasher = new PasswordHasher(1000);
+		userServiceImpl.setPasswordHasher(passwordHasher);
+		when(userDAO.registerUser(user)).thenReturn(true);
+		userServiceImpl.registerUser(user);
+		assertTrue(passwordHasher.isHashed(user.getUserPassword()));
+		assertTrue(passwordHasher.matches("123456", user.getUserPassword()));
+	}
+
+	@Test
+	public void testRegisterUserHashesPasswordLookingLikeHash() throws UserAlreadyExistException {
+
+		PasswordHasher passwordHasher = new PasswordHasher(1000);
+		userServiceImpl.setPasswordHasher(passwordHasher);
+		String chosen = PasswordHasher.PREFIX + "2000000000$c2FsdA==$aGFzaA==";
+		user.setUserPassword(chosen);
+		when(userDAO.registerUser(user)).thenReturn(true);
+		userServiceImpl.registerUser(user);
+		assertNotEquals(chosen, user.getUserPassword());
+		assertFalse(passwordHasher.needsRehash(user.getUserPassword()));
+		assertTrue(passwordHasher.matches(chosen, user.getUserPassword()));
+	}
+
+	@Test
+	public void testValidateUserOnVerificationExecutor() throws UserNotFoundException {
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(1));
+		try {
+			userServiceImpl.setPasswordVerificationExecutor(executor);
+			when(userDAO.validateUser("Jhon123", "123456")).thenReturn(true);
+			assertEquals(true, userServiceImpl.validateUser("Jhon123", "123456"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testValidateUserFromCredentialCache() throws UserNotFoundException {
+
+		PasswordHasher passwordHasher = new PasswordHasher(1000);
+		CredentialCache credentialCache = new CredentialCache(10, 300);
+		credentialCache.put("Jhon123", passwordHasher.hash("123456"));
+		userServiceImpl.setPasswordHasher(passwordHasher);
+		userServiceImpl.setCredentialCache(credentialCache);
+		assertEquals(true, userServiceImpl.validateUser("Jhon123", "123456"));
+		verify(userDAO, never()).validateUser("Jhon123", "123456");
+	}
+
+	@Test(expected = LoginUnavailableException.class)
+	public void testValidateUserRejectedWhenVerificationQueueIsFull() throws Exception {
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(1));
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> awaitQuietly(release));
+			executor.execute(() -> awaitQuietly(release));
+			userServiceImpl.setPasswordVerificationExecutor(executor);
+			userServiceImpl.validateUser("Jhon123", "123456");
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Test
 	public void testDeleteUserSuccess() {
 
@@ -125,6 +213,17 @@ public class UserServiceImplTest {
 		verify(userDAO, times(1)).deleteUser("Jhon123");
 	}
 
+	@Test
+	public void testDeleteUserDeletesDataFirst() {
+		BulkDeleteService bulkDeleteService = mock(BulkDeleteService.class);
+		userServiceImpl.setBulkDeleteService(bulkDeleteService);
+		when(userDAO.deleteUser("Jhon123")).thenReturn(true);
+		assertEquals(true, userServiceImpl.deleteUser("Jhon123"));
+		InOrder order = inOrder(bulkDeleteService, userDAO);
+		order.verify(bulkDeleteService).deleteUserData("Jhon123");
+		order.verify(userDAO).deleteUser("Jhon123");
+	}
+
 	@Test
 	public void testDeleteUserFailure() {
 		when(userDAO.deleteUser("Jhon123")).thenReturn(false);
@@ -0,0 +1,70 @@
+package com.stackroute.keepnote.test.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.dao.ChangeLogDAO;
+import com.stackroute.keepnote.sync.ListTags;
+import com.stackroute.keepnote.sync.ListTags.Tagged;
+
+public class ListTagsTest {
+
+	private ChangeLogDAO changeLogDAO;
+
+	private ListTags listTags;
+
+	private Supplier<List<String>> reader;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		changeLogDAO = mock(ChangeLogDAO.class);
+		listTags = new ListTags(changeLogDAO);
+		reader = mock(Supplier.class);
+		when(reader.get()).thenReturn(Arrays.asList("note"));
+	}
+
+	@Test
+	public void testTagIsTheLastChangeOfTheUser() {
+		when(changeLogDAO.getLastChangeId("Jhon123")).thenReturn(0L, 36L);
+		Tagged<List<String>> first = listTags.read("Jhon123", tag -> false, reader);
+		assertEquals("W/\"0\"", first.getTag());
+		assertTrue(first.isModified());
+		assertEquals(Arrays.asList("note"), first.getList());
+		assertEquals("W/\"10\"", listTags.read("Jhon123", tag -> false, reader).getTag());
+		InOrder order = inOrder(changeLogDAO, reader);
+		order.verify(changeLogDAO).getLastChangeId("Jhon123");
+		order.verify(reader).get();
+	}
+
+	@Test
+	public void testListIsNotReadWhenNotModified() {
+		when(changeLogDAO.getLastChangeId("Jhon123")).thenReturn(7L);
+		Tagged<List<String>> tagged = listTags.read("Jhon123", tag -> tag.equals("W/\"7\""), reader);
+		assertFalse(tagged.isModified());
+		assertNull(tagged.getList());
+		verify(reader, never()).get();
+	}
+
+	@Test
+	public void testReadFromPrimary() throws Exception {
+		Transactional transactional = ListTags.class
+				.getMethod("read", String.class, Predicate.class, Supplier.class).getAnnotation(Transactional.class);
+		assertFalse(transactional.readOnly());
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.controller.ETags;
+import com.stackroute.keepnote.web.CompressionFilter;
+
+public class CompressionFilterTest {
+
+	private CompressionFilter filter;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+	private String largeBody;
+
+	@Before
+	public void setUp() {
+		filter = new CompressionFilter(true, 1024, "application/json,text/*", 6);
+		request = new MockHttpServletRequest("GET", "/note");
+		response = new MockHttpServletResponse();
+		StringBuilder body = new StringBuilder("[");
+		for (int i = 0; i < 200; i++) {
+			body.append("{\"noteId\":").append(i).append(",\"noteContent\":\"Testing compression\"},");
+		}
+		largeBody = body.append("{}]").toString();
+	}
+
+	private MockFilterChain chainWriting(String contentType, String body) {
+		return chainWriting(contentType, body, null);
+	}
+
+	private MockFilterChain chainWriting(String contentType, String body, String etag) {
+		return new MockFilterChain(new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				if (etag != null) {
+					resp.setHeader("ETag", etag);
+				}
+				resp.setContentType(contentType);
+				resp.setContentLength(body.length());
+				resp.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+				resp.getOutputStream().flush();
+			}
+		});
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] chunk = new byte[1024];
+		for (int n; (n = in.read(chunk)) > 0;) {
+			out.write(chunk, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testLargeJsonIsGzipped() throws Exception {
+		request.addHeader("Accept-Encoding", "gzip, deflate");
+		filter.doFilter(request, response, chainWriting("application/json;charset=UTF-8", largeBody));
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertNull(response.getHeader("Content-Length"));
+		assertTrue(response.getContentAsByteArray().length < largeBody.length());
+		assertEquals(largeBody,
+				read(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))));
+	}
+
+	@Test
+	public void testDeflateWhenPreferred() throws Exception {
+		request.addHeader("Accept-Encoding", "gzip;q=0.5, deflate");
+		filter.doFilter(request, response, chainWriting("application/json", largeBody));
+		assertEquals("deflate", response.getHeader("Content-Encoding"));
+		assertEquals(largeBody,
+				read(new InflaterInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))));
+	}
+
+	@Test
+	public void testStrongETagOfCompressedBodyNamesEncoding() throws Exception {
+		request.addHeader("Accept-Encoding", "gzip");
+		filter.doFilter(request, response, chainWriting("application/json", largeBody, "\"3-full-json\""));
+		assertEquals("\"3-full-json-gzip\"", response.getHeader("ETag"));
+		assertEquals(Integer.valueOf(3), ETags.parseIfMatch(response.getHeader("ETag")));
+	}
+
+	@Test
+	public void testETagOfUncompressedBodyIsKept() throws Exception {
+		request.addHeader("Accept-Encoding", "deflate");
+		filter.doFilter(request, response, chainWriting("application/json", "[]", "\"3\""));
+		assertEquals("\"3\"", response.getHeader("ETag"));
+		response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chainWriting("application/json", largeBody, "W/\"2s\""));
+		assertEquals("deflate", response.getHeader("Content-Encoding"));
+		assertEquals("W/\"2s\"", response.getHeader("ETag"));
+	}
+
+	@Test
+	public void testSmallBodyIsSentAsIs() throws Exception {
+		request.addHeader("Accept-Encoding", "gzip");
+		filter.doFilter(request, response, chainWriting("application/json", "[]"));
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals(2, response.getContentLength());
+		assertEquals("[]", response.getContentAsString());
+	}
+
+	@Test
+	public void testOtherContentTypeIsSentAsIs() throws Exception {
+		request.addHeader("Accept-Encoding", "gzip");
+		filter.doFilter(request, response, chainWriting("image/png", largeBody));
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals(largeBody.length(), response.getContentLength());
+		assertEquals(largeBody, response.getContentAsString());
+	}
+
+	@Test
+	public void testWithoutAcceptEncoding() throws Exception {
+		MockFilterChain chain = chainWriting("application/json", largeBody);
+		filter.doFilter(request, response, chain);
+		assertSame(response, chain.getResponse());
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertEquals(largeBody, response.getContentAsString());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		filter = new CompressionFilter(false, 1024, "application/json", 6);
+		request.addHeader("Accept-Encoding", "gzip");
+		filter.doFilter(request, response, chainWriting("application/json", largeBody));
+		assertNull(response.getHeader("Content-Encoding"));
+		assertNull(response.getHeader("Vary"));
+	}
+
+	@Test
+	public void testNegotiate() {
+		assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip"));
+		assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, *"));
+		assertEquals("gzip", CompressionFilter.negotiate("*;q=0.5"));
+		assertNull(CompressionFilter.negotiate("br, identity"));
+		assertNull(CompressionFilter.negotiate("*;q=0"));
+	}
+
+}
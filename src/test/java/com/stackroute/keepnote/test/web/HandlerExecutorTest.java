@@ -0,0 +1,170 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.web.HandlerExecutor;
+
+public class HandlerExecutorTest {
+
+	private ThreadPoolExecutor pool;
+	private MockEnvironment environment;
+	private MetricRegistry metricRegistry;
+	private CountDownLatch release;
+
+	@Before
+	public void setUp() {
+		pool = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+		environment = new MockEnvironment().withProperty("keepnote.async.enabled", "true")
+				.withProperty("keepnote.async.limit.createNotes", "1");
+		metricRegistry = new MetricRegistry();
+		release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		pool.shutdownNow();
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	private ResponseEntity<?> blocked() {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return new ResponseEntity<>(HttpStatus.OK);
+	}
+
+	@Test
+	public void testInlineRunsOnCallingThread() {
+		Thread caller = Thread.currentThread();
+		CompletableFuture<ResponseEntity<?>> future = new HandlerExecutor().submit("getNotes",
+				() -> new ResponseEntity<>(Thread.currentThread() == caller ? HttpStatus.OK : HttpStatus.CONFLICT));
+		assertTrue(future.isDone());
+		assertEquals(HttpStatus.OK, future.join().getStatusCode());
+	}
+
+	@Test
+	public void testRunsOnPool() {
+		Thread caller = Thread.currentThread();
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		ResponseEntity<?> response = executor.submit("getNotes",
+				() -> new ResponseEntity<>(Thread.currentThread() == caller ? HttpStatus.CONFLICT : HttpStatus.OK))
+				.join();
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+	}
+
+	@Test
+	public void testDisabledRunsInline() {
+		environment.setProperty("keepnote.async.enabled", "false");
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		assertTrue(executor.submit("getNotes", () -> new ResponseEntity<>(HttpStatus.OK)).isDone());
+		assertEquals(0, pool.getTaskCount());
+	}
+
+	@Test
+	public void testEndpointLimitRejects() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		CompletableFuture<ResponseEntity<?>> first = executor.submit("createNotes", this::blocked);
+		ResponseEntity<?> second = executor.submit("createNotes", this::blocked).join();
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, second.getStatusCode());
+		assertEquals("1", second.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(1, metricRegistry.meter("handlers.createNotes.rejected").getCount());
+		assertEquals(HttpStatus.OK,
+				executor.submit("getNotes", () -> new ResponseEntity<>(HttpStatus.OK)).join().getStatusCode());
+
+		release.countDown();
+		assertEquals(HttpStatus.OK, first.join().getStatusCode());
+		assertEquals(HttpStatus.OK, executor.submit("createNotes", this::blocked).join().getStatusCode());
+	}
+
+	@Test
+	public void testFullPoolRejects() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		executor.submit("getNotes", this::blocked);
+		executor.submit("getNotes", this::blocked);
+		executor.submit("getNotes", this::blocked);
+		ResponseEntity<?> rejected = executor.submit("getNotes", this::blocked).join();
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+		assertEquals(1, metricRegistry.meter("handlers.getNotes.rejected").getCount());
+	}
+
+	@Test
+	public void testCountsInFlight() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		CompletableFuture<ResponseEntity<?>> first = executor.submit("createNotes", this::blocked);
+		executor.submit("createNotes", this::blocked).join();
+		assertEquals(1, executor.getInFlight());
+		release.countDown();
+		first.join();
+		assertEquals(0, executor.getInFlight());
+	}
+
+	@Test
+	public void testStreamHoldsPermitUntilResponseIsComplete() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAsyncSupported(true);
+		ServletRequestAttributes attributes = new ServletRequestAttributes(request, new MockHttpServletResponse());
+		RequestContextHolder.setRequestAttributes(attributes);
+		StreamingResponseBody body = outputStream -> outputStream.write('x');
+		assertEquals(HttpStatus.OK, executor.stream("createNotes", () -> ResponseEntity.ok(body)).getStatusCode());
+		request.startAsync().setTimeout(30000);
+		attributes.requestCompleted();
+		assertEquals(0, request.getAsyncContext().getTimeout());
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+				executor.stream("createNotes", () -> ResponseEntity.ok(body)).getStatusCode());
+		assertEquals(1, executor.getInFlight());
+		request.getAsyncContext().complete();
+		assertEquals(0, executor.getInFlight());
+	}
+
+	@Test
+	public void testStreamWithoutBodyReleasesAtEndOfRequest() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		ServletRequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(attributes);
+		assertEquals(HttpStatus.UNAUTHORIZED, executor
+				.stream("createNotes", () -> new ResponseEntity<>(HttpStatus.UNAUTHORIZED)).getStatusCode());
+		assertEquals(1, executor.getInFlight());
+		attributes.requestCompleted();
+		assertEquals(0, executor.getInFlight());
+	}
+
+	@Test
+	public void testFailureCompletesExceptionally() {
+		HandlerExecutor executor = new HandlerExecutor(pool, environment, metricRegistry);
+		CompletableFuture<ResponseEntity<?>> future = executor.submit("getNotes", () -> {
+			throw new IllegalStateException("failed");
+		});
+		try {
+			future.join();
+			fail();
+		} catch (Exception e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+}
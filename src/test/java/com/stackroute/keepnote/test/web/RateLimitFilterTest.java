@@ -0,0 +1,125 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stackroute.keepnote.security.TokenAuthenticationFilter;
+import com.stackroute.keepnote.web.RateLimitFilter;
+
+public class RateLimitFilterTest {
+
+	private MetricRegistry metricRegistry;
+	private RateLimitFilter filter;
+
+	@Before
+	public void setUp() {
+		metricRegistry = new MetricRegistry();
+		filter = new RateLimitFilter(metricRegistry, true, 0.01, 2, 1000, "X-Forwarded-For", 1);
+	}
+
+	private MockHttpServletRequest request(String userId) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/note");
+		if (userId != null) {
+			request.getSession().setAttribute(TokenAuthenticationFilter.LOGGEDIN_USERID, userId);
+		}
+		return request;
+	}
+
+	private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	@Test
+	public void testRejectsUserOverRate() throws Exception {
+		assertEquals(HttpStatus.OK.value(), perform(request("Jhon123")).getStatus());
+		assertEquals(HttpStatus.OK.value(), perform(request("Jhon123")).getStatus());
+		MockHttpServletResponse rejected = perform(request("Jhon123"));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+		assertEquals("100", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals(HttpStatus.OK.value(), perform(request("Jhon456")).getStatus());
+		assertEquals(1, metricRegistry.meter("ratelimit.rejected").getCount());
+		assertEquals(0, filter.getInFlight());
+	}
+
+	@Test
+	public void testAnonymousRequestsCountedByAddress() throws Exception {
+		MockHttpServletRequest request = request(null);
+		request.setRemoteAddr("10.0.0.1");
+		perform(request);
+		perform(request);
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), perform(request).getStatus());
+		request.setRemoteAddr("10.0.0.2");
+		assertEquals(HttpStatus.OK.value(), perform(request).getStatus());
+	}
+
+	@Test
+	public void testAnonymousRequestsCountedByForwardedAddress() throws Exception {
+		MockHttpServletRequest request = request(null);
+		request.setRemoteAddr("10.0.0.254");
+		request.addHeader("X-Forwarded-For", "203.0.113.9, 198.51.100.1");
+		perform(request);
+		perform(request);
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), perform(request).getStatus());
+		MockHttpServletRequest other = request(null);
+		other.setRemoteAddr("10.0.0.254");
+		other.addHeader("X-Forwarded-For", "198.51.100.2");
+		assertEquals(HttpStatus.OK.value(), perform(other).getStatus());
+	}
+
+	@Test
+	public void testUserIdDoesNotShareBucketOfAddress() throws Exception {
+		MockHttpServletRequest anonymous = request(null);
+		anonymous.setRemoteAddr("10.0.0.1");
+		perform(anonymous);
+		perform(anonymous);
+		assertEquals(HttpStatus.OK.value(), perform(request("10.0.0.1")).getStatus());
+	}
+
+	@Test
+	public void testShedsOverConcurrencyUntilAsyncCompletes() throws Exception {
+		MockHttpServletRequest async = request("Jhon123");
+		async.setAsyncSupported(true);
+		filter.doFilter(async, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				req.startAsync();
+			}
+		}));
+		assertEquals(1, filter.getInFlight());
+
+		MockHttpServletResponse shed = perform(request("Jhon456"));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), shed.getStatus());
+		assertEquals("1", shed.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals(1, metricRegistry.meter("ratelimit.shed").getCount());
+
+		async.getAsyncContext().complete();
+		assertEquals(0, filter.getInFlight());
+		assertEquals(HttpStatus.OK.value(), perform(request("Jhon456")).getStatus());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		filter = new RateLimitFilter(new MetricRegistry(), false, 0.01, 1, 1000, "", 1);
+		perform(request("Jhon123"));
+		assertEquals(HttpStatus.OK.value(), perform(request("Jhon123")).getStatus());
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.SyncBatch;
+import com.stackroute.keepnote.web.StreamingJacksonConverter;
+
+public class StreamingJacksonConverterTest {
+
+	private ObjectMapper objectMapper;
+	private List<Object> notes;
+
+	@Before
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		Category category = new Category(1, "Testing", "All about testing", new Date(0), "Jhon123", null);
+		notes = Arrays.asList(
+				new Note(1, "Testing-1", "Testing Service layer", "Active", new Date(0), category, null, "Jhon123"),
+				null, new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(0), null, null, "Jhon123"));
+	}
+
+	@Test
+	public void testListIsWrittenLikeJackson() throws Exception {
+		MockHttpOutputMessage message = new MockHttpOutputMessage();
+		StreamingJacksonConverter.json().write(notes, List.class, MediaType.APPLICATION_JSON_UTF8, message);
+		assertEquals(objectMapper.writeValueAsString(notes), message.getBodyAsString());
+	}
+
+	@Test
+	public void testFormatFollowsAccept() {
+		assertEquals("json", StreamingJacksonConverter.format(null));
+		assertEquals("json", StreamingJacksonConverter.format("*/*"));
+		assertEquals("cbor", StreamingJacksonConverter.format("application/cbor"));
+		assertEquals("smile", StreamingJacksonConverter.format("application/json;q=0.5, application/x-jackson-smile"));
+		assertEquals("json", StreamingJacksonConverter.format("application/cbor;q=0.5, application/*"));
+		assertEquals("json", StreamingJacksonConverter.format("not a media type"));
+	}
+
+	@Test
+	public void testOtherBodiesAreWrittenAsBefore() throws Exception {
+		SyncBatch batch = new SyncBatch();
+		batch.setToken("a");
+		MockHttpOutputMessage message = new MockHttpOutputMessage();
+		StreamingJacksonConverter.json().write(batch, SyncBatch.class, MediaType.APPLICATION_JSON_UTF8, message);
+		assertEquals(objectMapper.writeValueAsString(batch), message.getBodyAsString());
+	}
+
+	@Test
+	public void testBinaryFormatsMatchTheirObjectMapper() throws Exception {
+		for (StreamingJacksonConverter converter : Arrays.asList(StreamingJacksonConverter.smile(),
+				StreamingJacksonConverter.cbor())) {
+			MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+			MockHttpOutputMessage message = new MockHttpOutputMessage();
+			converter.write(notes, List.class, mediaType, message);
+			assertArrayEquals(converter.getObjectMapper().writeValueAsBytes(notes), message.getBodyAsBytes());
+			assertEquals(mediaType, message.getHeaders().getContentType());
+
+			MockHttpInputMessage input = new MockHttpInputMessage(
+					converter.getObjectMapper().writeValueAsBytes(notes.get(0)));
+			input.getHeaders().setContentType(mediaType);
+			Note read = (Note) converter.read(Note.class, null, input);
+			assertEquals("Testing-1", read.getNoteTitle());
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.stackroute.keepnote.web.TokenBuckets;
+
+public class TokenBucketsTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	public void testBurstThenRate() {
+		TokenBuckets buckets = new TokenBuckets(2, 3, 1000);
+		long now = 10 * SECOND;
+		assertEquals(0, buckets.tryAcquire("Jhon123", now));
+		assertEquals(0, buckets.tryAcquire("Jhon123", now));
+		assertEquals(0, buckets.tryAcquire("Jhon123", now));
+		assertEquals(SECOND / 2, buckets.tryAcquire("Jhon123", now));
+		assertEquals(0, buckets.tryAcquire("Jhon123", now + SECOND / 2));
+		assertTrue(buckets.tryAcquire("Jhon123", now + SECOND / 2) > 0);
+		assertEquals(0, buckets.tryAcquire("Jhon123", now + 10 * SECOND));
+	}
+
+	@Test
+	public void testUsersHaveOwnBuckets() {
+		TokenBuckets buckets = new TokenBuckets(1, 1, 1000);
+		assertEquals(0, buckets.tryAcquire("Jhon123", SECOND));
+		assertTrue(buckets.tryAcquire("Jhon123", SECOND) > 0);
+		assertEquals(0, buckets.tryAcquire("Jhon456", SECOND));
+	}
+
+	@Test
+	public void testCollidingKeysHaveOwnBuckets() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		TokenBuckets buckets = new TokenBuckets(1, 1, 1000);
+		assertEquals(0, buckets.tryAcquire("Aa", SECOND));
+		assertTrue(buckets.tryAcquire("Aa", SECOND) > 0);
+		assertEquals(0, buckets.tryAcquire("BB", SECOND));
+	}
+
+	@Test
+	public void testFullBucketsAreDroppedBeyondMaxBuckets() {
+		TokenBuckets buckets = new TokenBuckets(1, 2, 2);
+		buckets.tryAcquire("Jhon123", SECOND);
+		buckets.tryAcquire("Jhon456", SECOND);
+		assertEquals(2, buckets.size());
+		buckets.tryAcquire("Jhon789", 4 * SECOND);
+		assertEquals(1, buckets.size());
+	}
+
+	@Test
+	public void testClosestToFullDroppedBeyondMaxBuckets() {
+		TokenBuckets buckets = new TokenBuckets(1, 1, 2);
+		buckets.tryAcquire("Jhon123", SECOND);
+		buckets.tryAcquire("Jhon456", SECOND + SECOND / 2);
+		buckets.tryAcquire("Jhon789", SECOND + SECOND / 2);
+		assertEquals(2, buckets.size());
+		assertTrue(buckets.tryAcquire("Jhon789", SECOND + SECOND / 2) > 0);
+		assertEquals(0, buckets.tryAcquire("Jhon123", SECOND + SECOND / 2));
+	}
+
+	@Test
+	public void testConcurrentAcquireTakesBurstOnce() throws Exception {
+		TokenBuckets buckets = new TokenBuckets(0.001, 100, 1000);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger granted = new AtomicInteger();
+		try {
+			for (int i = 0; i < 8; i++) {
+				pool.execute(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < 50; j++) {
+						if (buckets.tryAcquire("Jhon123", SECOND) == 0) {
+							granted.incrementAndGet();
+						}
+					}
+				});
+			}
+			start.countDown();
+			pool.shutdown();
+			assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(100, granted.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRate() {
+		new TokenBuckets(0, 1, 1000);
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.stackroute.keepnote.test.web;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.web.VaryAcceptInterceptor;
+
+public class VaryAcceptInterceptorTest {
+
+	@Test
+	public void testAddsVaryAcceptOnce() {
+		VaryAcceptInterceptor interceptor = new VaryAcceptInterceptor();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/note/1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.addHeader("Vary", "Accept-Encoding");
+		assertTrue(interceptor.preHandle(request, response, null));
+		assertTrue(interceptor.preHandle(request, response, null));
+		assertEquals(Arrays.asList("Accept-Encoding", "Accept"), response.getHeaders("Vary"));
+	}
+
+}